@@ -0,0 +1,129 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * La classe {@link ChunkCodecBenchmark} mesure le temps nécessaire pour compacter puis
+ * décompacter tous les chunks d'une carte avec des arbres et des terrils.
+ * Les temps mesurés peuvent être comparés à ceux de {@link GameMapGeneratorBenchmark}
+ * pour une carte de même taille : décompacter une carte doit être plus rapide que la
+ * générer à nouveau.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkCodecBenchmark {
+
+    /**
+     * La taille de la carte, sous la forme {@code hauteurxlargeur}.
+     */
+    @Param({ "64x256", "128x1024", "256x4096" })
+    private String size;
+
+    /**
+     * Les identifiants des blocs de chacun des chunks de la carte.
+     */
+    private List<short[]> chunks;
+
+    /**
+     * La représentation compacte de chacun des chunks de la carte.
+     */
+    private List<byte[]> encoded;
+
+    /**
+     * Le tableau dans lequel les chunks sont compactés.
+     */
+    private byte[] encodeBuffer;
+
+    /**
+     * Le tableau dans lequel les chunks sont décompactés.
+     */
+    private short[] decodeBuffer;
+
+    /**
+     * Génère la carte et compacte une première fois ses chunks.
+     */
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        int height = Integer.parseInt(dimensions[0]);
+        int width = Integer.parseInt(dimensions[1]);
+        GameMap map = GameMapGenerator.generateMapWithTreesAndSlagHeaps(height, width,
+                new CellFactory(), width / 16, width / 64, 42);
+
+        chunks = new ArrayList<>();
+        encoded = new ArrayList<>();
+        encodeBuffer = new byte[ChunkCodec.MAX_SIZE];
+        decodeBuffer = new short[Chunk.SIZE * Chunk.SIZE];
+        map.forEachLoadedColumn((column, index) -> {
+            for (Chunk chunk : column) {
+                if (chunk != null) {
+                    short[] blocks = chunk.copyBlocks(new short[Chunk.SIZE * Chunk.SIZE]);
+                    chunks.add(blocks);
+                    encoded.add(Arrays.copyOf(encodeBuffer, ChunkCodec.encode(blocks, encodeBuffer)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Compacte tous les chunks de la carte.
+     *
+     * @return La taille totale (en octets) des chunks compactés.
+     */
+    @Benchmark
+    public int encode() {
+        int total = 0;
+        for (short[] blocks : chunks) {
+            total += ChunkCodec.encode(blocks, encodeBuffer);
+        }
+        return total;
+    }
+
+    /**
+     * Décompacte tous les chunks de la carte.
+     *
+     * @return La somme des identifiants des premiers blocs des chunks.
+     */
+    @Benchmark
+    public int decode() {
+        int sum = 0;
+        for (byte[] data : encoded) {
+            ChunkCodec.decode(data, decodeBuffer);
+            sum += decodeBuffer[0];
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,123 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * La classe {@link FlatcraftGameBenchmark} mesure le temps nécessaire au joueur pour
+ * creuser vers le bas, ce qui comprend l'application de la gravité.
+ *
+ * Le joueur creuse les colonnes de la carte les unes après les autres.
+ * Lorsqu'il atteint le bas d'une colonne, celle-ci est restaurée avant que le joueur ne
+ * passe à la suivante, afin que la carte ne s'épuise pas au cours d'une itération.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlatcraftGameBenchmark {
+
+    /**
+     * La hauteur de la carte.
+     */
+    private static final int HEIGHT = 128;
+
+    /**
+     * La largeur de la carte.
+     */
+    private static final int WIDTH = 1024;
+
+    /**
+     * La graine à partir de laquelle la carte est générée.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Le jeu dans lequel le joueur creuse.
+     */
+    private FlatcraftGame game;
+
+    /**
+     * La carte du jeu.
+     */
+    private GameMap map;
+
+    /**
+     * La carte dans son état initial, utilisée pour restaurer les colonnes creusées.
+     */
+    private GameMap original;
+
+    /**
+     * Le joueur qui creuse.
+     */
+    private Player player;
+
+    /**
+     * Prépare une nouvelle partie sans interface graphique.
+     */
+    @Setup(Level.Iteration)
+    public void setUp() {
+        game = new FlatcraftGame(WIDTH, HEIGHT);
+        game.setTerInter(new HeadlessInterface());
+        map = GameMapGenerator.generateMapWithTreesAndSlagHeaps(HEIGHT, WIDTH,
+                game.getCellFactory(), WIDTH / 16, WIDTH / 64, SEED);
+        original = GameMapGenerator.generateMapWithTreesAndSlagHeaps(HEIGHT, WIDTH,
+                game.getCellFactory(), WIDTH / 16, WIDTH / 64, SEED);
+        game.prepare(map);
+        player = game.getPlayer();
+    }
+
+    /**
+     * Fait creuser le joueur vers le bas.
+     *
+     * @return La ligne atteinte par le joueur.
+     */
+    @Benchmark
+    public int digDown() {
+        if ((player.getRow() + 1) >= HEIGHT) {
+            nextColumn();
+        }
+        game.digDown();
+        return player.getRow();
+    }
+
+    /**
+     * Restaure la colonne creusée par le joueur, puis le place en haut de la colonne
+     * suivante.
+     */
+    private void nextColumn() {
+        int column = player.getColumn();
+        for (int row = 0; row < HEIGHT; row++) {
+            map.setBlockAt(row, column, original.getBlockAt(row, column));
+        }
+        player.setColumn((column + 1) % WIDTH);
+        player.setRow(map.getSoilHeight());
+    }
+
+}
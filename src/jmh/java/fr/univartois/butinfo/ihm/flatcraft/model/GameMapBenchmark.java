@@ -0,0 +1,156 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * La classe {@link GameMapBenchmark} mesure le temps d'accès aux cellules d'une
+ * {@link GameMap}, lorsqu'elles sont parcourues dans l'ordre ou au hasard.
+ * Chaque invocation accède à {@value #ACCESSES} cellules : les temps mesurés sont
+ * donnés par cellule.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameMapBenchmark {
+
+    /**
+     * Le nombre de cellules auxquelles chaque invocation accède.
+     */
+    private static final int ACCESSES = 1 << 16;
+
+    /**
+     * La hauteur de la carte.
+     */
+    private static final int HEIGHT = 128;
+
+    /**
+     * La largeur de la carte.
+     */
+    @Param({ "512", "8192" })
+    private int width;
+
+    /**
+     * La carte sur laquelle les accès sont effectués.
+     */
+    private GameMap map;
+
+    /**
+     * Les lignes des cellules auxquelles accéder au hasard.
+     */
+    private int[] rows;
+
+    /**
+     * Les colonnes des cellules auxquelles accéder au hasard.
+     */
+    private int[] columns;
+
+    /**
+     * Les cellules (détachées de la carte) écrites sur la carte.
+     */
+    private Cell[] cells;
+
+    /**
+     * Génère la carte et les positions auxquelles accéder.
+     */
+    @Setup
+    public void setUp() {
+        CellFactory factory = new CellFactory();
+        map = GameMapGenerator.generateMapWithTreesAndSlagHeaps(HEIGHT, width, factory,
+                width / 16, width / 64, 42);
+
+        SplittableRandom random = new SplittableRandom(42);
+        rows = new int[ACCESSES];
+        columns = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            rows[i] = random.nextInt(HEIGHT);
+            columns[i] = random.nextInt(width);
+        }
+
+        BlockRegistry registry = map.getRegistry();
+        cells = new Cell[] {
+                new Cell(registry, BlockRegistry.DIRT), new Cell(registry, BlockRegistry.GOLD_BLOCK) };
+    }
+
+    /**
+     * Lit des cellules de la carte ligne par ligne.
+     *
+     * @return La somme des identifiants des blocs lus.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int sequentialGetAt() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += map.getAt(i / width % HEIGHT, i % width).getBlock();
+        }
+        return sum;
+    }
+
+    /**
+     * Lit des cellules de la carte prises au hasard.
+     *
+     * @return La somme des identifiants des blocs lus.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public int randomGetAt() {
+        int sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            sum += map.getAt(rows[i], columns[i]).getBlock();
+        }
+        return sum;
+    }
+
+    /**
+     * Écrit des cellules de la carte ligne par ligne.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void sequentialSetAt() {
+        for (int i = 0; i < ACCESSES; i++) {
+            map.setAt(i / width % HEIGHT, i % width, cells[i & 1]);
+        }
+    }
+
+    /**
+     * Écrit des cellules de la carte prises au hasard.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ACCESSES)
+    public void randomSetAt() {
+        for (int i = 0; i < ACCESSES; i++) {
+            map.setAt(rows[i], columns[i], cells[i & 1]);
+        }
+    }
+
+}
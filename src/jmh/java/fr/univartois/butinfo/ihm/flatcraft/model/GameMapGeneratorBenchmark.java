@@ -0,0 +1,109 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * La classe {@link GameMapGeneratorBenchmark} mesure le temps de génération d'une carte
+ * avec des arbres et des terrils, pour différentes tailles de carte.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GameMapGeneratorBenchmark {
+
+    /**
+     * La taille de la carte, sous la forme {@code hauteurxlargeur}.
+     */
+    @Param({ "64x256", "128x1024", "256x4096" })
+    private String size;
+
+    /**
+     * La hauteur de la carte.
+     */
+    private int height;
+
+    /**
+     * La largeur de la carte.
+     */
+    private int width;
+
+    /**
+     * La fabrique de cellules utilisée pour générer la carte.
+     */
+    private CellFactory factory;
+
+    /**
+     * Lit la taille de la carte à générer.
+     */
+    @Setup
+    public void setUp() {
+        String[] dimensions = size.split("x");
+        height = Integer.parseInt(dimensions[0]);
+        width = Integer.parseInt(dimensions[1]);
+        factory = new CellFactory();
+    }
+
+    /**
+     * Génère une carte de manière séquentielle.
+     *
+     * @return La carte générée.
+     */
+    @Benchmark
+    public GameMap generate() {
+        return GameMapGenerator.generateMapWithTreesAndSlagHeaps(height, width, factory,
+                width / 16, width / 64);
+    }
+
+    /**
+     * Génère une carte en parallèle, à partir d'une graine.
+     *
+     * @return La carte générée.
+     */
+    @Benchmark
+    public GameMap generateSeeded() {
+        return GameMapGenerator.generateMapWithTreesAndSlagHeaps(height, width, factory,
+                width / 16, width / 64, 42);
+    }
+
+    /**
+     * Génère une carte à partir de bruits cohérents, en chargeant toutes ses colonnes de
+     * chunks.
+     *
+     * @return La carte générée.
+     */
+    @Benchmark
+    public GameMap generateTerrain() {
+        GameMap map = GameMapGenerator.generateTerrainMap(height, width, factory, 42);
+        map.ensureLoaded(0, width - 1);
+        return map;
+    }
+
+}
@@ -0,0 +1,128 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * La classe {@link ReplayBenchmark} mesure le temps nécessaire pour rejouer une partie
+ * enregistrée, ce qui comprend la génération de la carte et tous les pas de simulation.
+ *
+ * La partie est enregistrée une fois pour toutes avant les mesures : deux joueurs y
+ * réalisent des actions tirées au hasard (avec une graine fixée) sur une carte infinie.
+ * Chaque mesure rejoue cette même partie, qui sert ainsi de charge de référence pour
+ * détecter les régressions de performance.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayBenchmark {
+
+    /**
+     * La hauteur de la carte.
+     */
+    private static final int HEIGHT = 128;
+
+    /**
+     * La largeur de la partie.
+     */
+    private static final int WIDTH = 256;
+
+    /**
+     * La graine à partir de laquelle la partie est générée.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * Le nombre de pas de simulation de la partie enregistrée.
+     */
+    private static final int TICKS = 2000;
+
+    /**
+     * L'enregistrement à rejouer.
+     */
+    private InputReplayer replayer;
+
+    /**
+     * Enregistre la partie à rejouer, et vérifie qu'elle est rejouée à l'identique.
+     *
+     * @throws IOException Si l'enregistrement ne peut pas être écrit ou relu.
+     * @throws IllegalStateException Si la partie rejouée diffère de la partie
+     *         enregistrée, auquel cas les mesures n'auraient pas de sens.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FlatcraftGame game = new FlatcraftGame(WIDTH, HEIGHT);
+        game.setSeed(SEED);
+        game.setUnbounded(true);
+        game.setTerInter(new HeadlessInterface());
+        game.prepare();
+
+        Path file = Files.createTempFile("flatcraft", ".replay");
+        file.toFile().deleteOnExit();
+        SplittableRandom random = new SplittableRandom(SEED);
+        InputRecorder recorder = InputRecorder.start(file, game);
+        try {
+            Player other = game.addPlayer("player");
+            for (int tick = 0; tick < TICKS; tick++) {
+                Player actor = random.nextBoolean() ? game.getPlayer() : other;
+                if ((random.nextInt(4) == 0) && ((actor.getRow() + 2) < HEIGHT)) {
+                    // Les joueurs se déplacent deux fois plus souvent qu'ils ne creusent.
+                    int action = random.nextInt(9);
+                    game.perform(actor, PlayerAction.fromCode((action < 6) ? (action % 2)
+                            : (action - 4)));
+                }
+                game.getGameLoop().step();
+            }
+
+        } finally {
+            recorder.close();
+        }
+
+        replayer = InputReplayer.load(file);
+        if (!replayer.matches(replayer.replay())) {
+            throw new IllegalStateException("Replayed game differs from the recording!");
+        }
+    }
+
+    /**
+     * Rejoue la partie enregistrée.
+     *
+     * @return La partie rejouée.
+     */
+    @Benchmark
+    public FlatcraftGame replay() {
+        return replayer.replay();
+    }
+
+}
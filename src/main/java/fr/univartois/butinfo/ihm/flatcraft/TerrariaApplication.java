@@ -17,6 +17,7 @@
 package fr.univartois.butinfo.ihm.flatcraft;
 
 import fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaController;
+import fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetrics;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -34,6 +35,11 @@ import java.io.IOException;
  */
 public class TerrariaApplication extends Application {
 
+    /**
+     * La période (en secondes) à laquelle les mesures de performance sont journalisées.
+     */
+    private static final long METRICS_LOG_PERIOD = 60;
+
     /**
      * Cette méthode permet d'initialiser l'affichage de la fenêtre de l'application.
      *
@@ -55,10 +61,24 @@ public class TerrariaApplication extends Application {
         // On peut ensuite donner un titre à la fenêtre.
         stage.setTitle("Terraria!");
 
+        // Les mesures de performance sont consultables via JMX, et journalisées.
+        PerformanceMetrics.getDefault().register();
+        PerformanceMetrics.getDefault().startLogging(METRICS_LOG_PERIOD);
+
         // Enfin, on affiche la fenêtre.
         stage.show();
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see javafx.application.Application#stop()
+     */
+    @Override
+    public void stop() {
+        PerformanceMetrics.getDefault().stopLogging();
+    }
+
     /**
      * Cette méthode exécute l'application JavaFX.
      * Pour le cours d'IHM, la méthode {@code main} d'une application JavaFX sera
@@ -1,79 +1,89 @@
 package fr.univartois.butinfo.ihm.flatcraft.controller;
 
 import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch;
 import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
 import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.Player;
+import fr.univartois.butinfo.ihm.flatcraft.view.Camera;
+import fr.univartois.butinfo.ihm.flatcraft.view.MapRenderer;
+import fr.univartois.butinfo.ihm.flatcraft.view.SpriteStore;
 import javafx.fxml.FXML;
-import javafx.fxml.Initializable;
-import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.layout.GridPane;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.Rectangle;
 import javafx.stage.Stage;
 
-import java.net.URL;
-
 public class TerrariaController implements TerrariaInterface {
 
+    /**
+     * La taille (en pixels) du côté d'une cellule à l'écran, qui est celle des sprites.
+     */
+    private static final int TILE_SIZE = 32;
+
     @FXML
-    private GridPane grilleFond;
+    private Pane vue;
 
     @FXML
-    private GridPane grillePerso;
+    private Canvas canvasFond;
+
+    @FXML
+    private Canvas canvasPerso;
     private Stage stage;
 
+    private FlatcraftGame game;
+
+    private Camera camera;
+
+    private MapRenderer renderer;
+
     public void setStage(Stage stage) {
         this.stage = stage;
     }
 
-    private ImageView[][] grilleViewPerso;
-    private ImageView[][] grilleViewFond;
     @FXML
     void initialize() {
-        grilleViewPerso=new ImageView[grillePerso.getRowCount()][grillePerso.getColumnCount()];
-        grilleViewFond=new ImageView[grilleFond.getRowCount()][grilleFond.getColumnCount()];
-        for (int i = 0; i < grillePerso.getRowCount(); i++) {
-            for (int j = 0; j < grillePerso.getColumnCount(); j++) {
-                grilleViewPerso[i][j]=new ImageView();
-            }
-        }
-        for (int i = 0; i < grilleFond.getRowCount(); i++) {
-            for (int j = 0; j < grilleFond.getColumnCount(); j++) {
-                grilleViewFond[i][j]=new ImageView();
-            }
-        }
-
-    }
-    private Image loadImage(String name) {
-        URL urlImage = getClass().getResource("./images/" + name + ".gif");
-        assert urlImage != null;
-        return new Image(urlImage.toExternalForm(), 12, 12, true, false);
-    }
-    private void afficher() {
-        for (int i = 0; i < grilleFond.getRowCount(); i++) {
-            for (int j = 0; j < grilleFond.getColumnCount(); j++) {
-               grilleViewPerso[i][j]=new ImageView();
-               grilleFond.add(grilleViewPerso[i][j],i,j);
-            }
-        }
+        camera = new Camera(TILE_SIZE);
+        renderer = new MapRenderer(canvasFond, canvasPerso, camera, new SpriteStore());
+
+        // Seule la partie de la carte visible par la caméra doit apparaître.
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(vue.widthProperty());
+        clip.heightProperty().bind(vue.heightProperty());
+        vue.setClip(clip);
+        vue.widthProperty().addListener((p, o, n) -> camera.setViewportSize(vue.getWidth(), vue.getHeight()));
+        vue.heightProperty().addListener((p, o, n) -> camera.setViewportSize(vue.getWidth(), vue.getHeight()));
     }
 
     @Override
     public void setGame(FlatcraftGame game) {
-
+        this.game = game;
+        renderer.setGameLoop(game.getGameLoop());
+        renderer.setMovableIndex(game.getMovableIndex());
     }
 
     @Override
     public void initializeView(GameMap gameMap) {
-
+        renderer.setMap(gameMap);
+        renderer.setLightEngine((game == null) ? null : game.getLightEngine());
+        renderer.start();
     }
 
     @Override
     public void addMovableObject(AbstractMovable movableObject) {
-
+        renderer.addMovable(movableObject);
+        if (movableObject instanceof Player) {
+            camera.follow(movableObject);
+        }
     }
 
     @Override
     public void removeMovableObject(AbstractMovable movableObject) {
+        renderer.removeMovable(movableObject);
+    }
 
+    @Override
+    public void cellsChanged(CellChangeBatch changes) {
+        renderer.cellsChanged(changes);
     }
 }
@@ -1,6 +1,7 @@
 package fr.univartois.butinfo.ihm.flatcraft.controller;
 
 import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch;
 import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
 import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
 
@@ -9,4 +10,5 @@ public interface TerrariaInterface {
     void initializeView(GameMap gameMap);
     void addMovableObject(AbstractMovable movableObject);
     void removeMovableObject(AbstractMovable movableObject);
+    void cellsChanged(CellChangeBatch changes);
 }
@@ -14,8 +14,6 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.scene.image.Image;
-
 /**
  * La classe AbstractMovable est la classe parente des différents objets mobiles pouvant
  * se déplacer dans le jeu Flatcraft.
@@ -42,9 +40,25 @@ public abstract class AbstractMovable {
     private int column;
 
     /**
-     * L'image représentant cet objet mobile.
+     * La ligne où se trouvait cet objet mobile au début du dernier pas de simulation.
+     */
+    private int previousRow;
+
+    /**
+     * La colonne où se trouvait cet objet mobile au début du dernier pas de simulation.
+     */
+    private int previousColumn;
+
+    /**
+     * L'index spatial dans lequel cet objet mobile est rangé, ou {@code null} s'il n'est
+     * pas indexé.
+     */
+    SpatialIndex index;
+
+    /**
+     * Le nom du sprite représentant cet objet mobile.
      */
-    private final Image sprite;
+    private final String spriteName;
 
     /**
      * Les points de vie restants pour cet objet mobile.
@@ -55,12 +69,12 @@ public abstract class AbstractMovable {
      * Crée une nouvelle instance d'AbstractMovable.
      *
      * @param game Le jeu Flatcraft dans lequel l'objet se déplace.
-     * @param sprite L'image représentant l'objet.
+     * @param spriteName Le nom du sprite représentant l'objet.
      * @param initialHealth Les points de vie initiaux de l'objet.
      */
-    protected AbstractMovable(FlatcraftGame game, Image sprite, int initialHealth) {
+    protected AbstractMovable(FlatcraftGame game, String spriteName, int initialHealth) {
         this.game = game;
-        this.sprite = sprite;
+        this.spriteName = spriteName;
         this.health = initialHealth;
     }
 
@@ -70,7 +84,11 @@ public abstract class AbstractMovable {
      * @param row La nouvelle ligne où se trouve cet objet mobile.
      */
     public void setRow(int row) {
+        int oldRow = this.row;
         this.row = row;
+        if (index != null) {
+            index.moved(this, oldRow, column);
+        }
     }
 
     /**
@@ -88,7 +106,11 @@ public abstract class AbstractMovable {
      * @param column La nouvelle colonne où se trouve cet objet mobile.
      */
     public void setColumn(int column) {
+        int oldColumn = this.column;
         this.column = column;
+        if (index != null) {
+            index.moved(this, row, oldColumn);
+        }
     }
 
     /**
@@ -101,12 +123,54 @@ public abstract class AbstractMovable {
     }
 
     /**
-     * Donne l'image représentant cet objet mobile.
+     * Donne la ligne où se trouvait cet objet mobile au début du dernier pas de
+     * simulation.
+     * Elle permet d'afficher l'objet entre sa position précédente et sa position
+     * actuelle.
+     *
+     * @return La ligne précédente de cet objet mobile.
+     */
+    public int getPreviousRow() {
+        return previousRow;
+    }
+
+    /**
+     * Donne la colonne où se trouvait cet objet mobile au début du dernier pas de
+     * simulation.
+     * Elle permet d'afficher l'objet entre sa position précédente et sa position
+     * actuelle.
+     *
+     * @return La colonne précédente de cet objet mobile.
+     */
+    public int getPreviousColumn() {
+        return previousColumn;
+    }
+
+    /**
+     * Mémorise la position actuelle de cet objet mobile comme sa position précédente.
+     */
+    void savePosition() {
+        previousRow = row;
+        previousColumn = column;
+    }
+
+    /**
+     * Met à jour cet objet mobile lors d'un pas de simulation du jeu.
+     * Par défaut, un objet mobile ne fait rien de lui-même.
+     *
+     * @param tick Le numéro du pas de simulation.
+     */
+    public void tick(long tick) {
+        // Par défaut, l'objet ne se déplace pas seul.
+    }
+
+    /**
+     * Donne le nom du sprite représentant cet objet mobile.
      *
-     * @return L'image représentant cet objet mobile.
+     * @return Le nom du sprite représentant cet objet mobile.
      */
-    public Image getSprite() {
-        return sprite;
+    public String getSpriteName() {
+        return spriteName;
     }
 
     /**
@@ -0,0 +1,326 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * La classe {@link BlockRegistry} associe à chaque type de bloc du jeu Flatcraft un
+ * identifiant de type {@code short}.
+ * La carte ne stocke que ces identifiants : les {@link Resource} correspondantes ne sont
+ * créées qu'une seule fois par type de bloc, à la demande.
+ * Le nom d'un bloc est aussi celui de son sprite, que la vue se charge de retrouver :
+ * le registre ne dépend ainsi pas de JavaFX.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class BlockRegistry {
+
+    /**
+     * L'identifiant d'une cellule vide.
+     */
+    public static final short EMPTY = 0;
+
+    /**
+     * L'identifiant du ciel bleu.
+     */
+    public static final short ICE = 1;
+
+    /**
+     * L'identifiant d'un nuage.
+     */
+    public static final short CLOUD = 2;
+
+    /**
+     * L'identifiant du tronc d'un arbre.
+     */
+    public static final short TREE = 3;
+
+    /**
+     * L'identifiant des feuilles d'un arbre.
+     */
+    public static final short LEAVES = 4;
+
+    /**
+     * L'identifiant de la pelouse.
+     */
+    public static final short GRASS = 5;
+
+    /**
+     * L'identifiant de la pelouse de jungle.
+     */
+    public static final short JUNGLEGRASS = 6;
+
+    /**
+     * L'identifiant de l'eau.
+     */
+    public static final short WATER = 7;
+
+    /**
+     * L'identifiant de la terre.
+     */
+    public static final short DIRT = 8;
+
+    /**
+     * L'identifiant du minerai d'or.
+     */
+    public static final short GOLD_BLOCK = 9;
+
+    /**
+     * L'identifiant du minerai de diamant.
+     */
+    public static final short DIAMOND_BLOCK = 10;
+
+    /**
+     * L'identifiant du minerai de bronze.
+     */
+    public static final short BRONZE_BLOCK = 11;
+
+    /**
+     * L'identifiant du minerai de charbon.
+     */
+    public static final short COAL_BLOCK = 12;
+
+    /**
+     * L'identifiant du minerai de cuivre.
+     */
+    public static final short COPPER_BLOCK = 13;
+
+    /**
+     * Les noms des blocs, indexés par leur identifiant.
+     */
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Les identifiants des blocs, indexés par leur nom.
+     */
+    private final Map<String, Short> ids = new HashMap<>();
+
+    /**
+     * L'ensemble des identifiants correspondant à des ressources.
+     */
+    private final BitSet resourceBlocks = new BitSet();
+
+    /**
+     * L'ensemble des identifiants correspondant à de l'air, dans lequel les fluides
+     * peuvent s'écouler.
+     */
+    private final BitSet airBlocks = new BitSet();
+
+    /**
+     * L'ensemble des identifiants correspondant à des fluides.
+     */
+    private final BitSet fluidBlocks = new BitSet();
+
+    /**
+     * Les niveaux de lumière émis par les blocs, indexés par leur identifiant.
+     */
+    private byte[] lightEmissions = new byte[16];
+
+    /**
+     * Les ressources déjà créées, indexées par l'identifiant de leur bloc.
+     */
+    private Resource[] resources = new Resource[16];
+
+    /**
+     * Crée une nouvelle instance de BlockRegistry.
+     * Les blocs de base du jeu y sont enregistrés avec les identifiants donnés par les
+     * constantes de cette classe.
+     */
+    public BlockRegistry() {
+        names.add(null);
+        register("ice", false);
+        register("cloud", false);
+        register("tree", false);
+        register("leaves", false);
+        register("grass", true);
+        register("junglegrass", true);
+        register("water", true);
+        register("dirt", true);
+        register("gold_block", true);
+        register("diamond_block", true);
+        register("bronze_block", true);
+        register("coal_block", true);
+        register("copper_block", true);
+        airBlocks.set(EMPTY);
+        airBlocks.set(ICE);
+        airBlocks.set(CLOUD);
+        fluidBlocks.set(WATER);
+    }
+
+    /**
+     * Enregistre un nouveau type de bloc.
+     * Si un bloc de même nom est déjà enregistré, son identifiant est retourné.
+     *
+     * @param name Le nom du bloc, qui est aussi celui de son sprite.
+     * @param resource Si le bloc est une ressource que le joueur peut extraire.
+     *
+     * @return L'identifiant du bloc.
+     *
+     * @throws IllegalStateException S'il n'y a plus d'identifiant disponible.
+     */
+    public short register(String name, boolean resource) {
+        Short existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (names.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many block types!");
+        }
+
+        short id = (short) names.size();
+        names.add(name);
+        ids.put(name, id);
+        resourceBlocks.set(id, resource);
+        if (id >= resources.length) {
+            resources = Arrays.copyOf(resources, 2 * resources.length);
+            lightEmissions = Arrays.copyOf(lightEmissions, 2 * lightEmissions.length);
+        }
+        return id;
+    }
+
+    /**
+     * Donne le nombre d'identifiants attribués par ce registre, y compris celui de la
+     * cellule vide.
+     *
+     * @return Le nombre d'identifiants attribués.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Donne l'identifiant du bloc ayant le nom donné.
+     *
+     * @param name Le nom du bloc.
+     *
+     * @return L'identifiant du bloc.
+     *
+     * @throws NoSuchElementException Si aucun bloc n'a le nom donné.
+     */
+    public short getId(String name) {
+        Short id = ids.get(name);
+        if (id == null) {
+            throw new NoSuchElementException("Unknown block " + name);
+        }
+        return id;
+    }
+
+    /**
+     * Donne le nom du bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return Le nom du bloc, ou {@code null} pour une cellule vide.
+     */
+    public String getName(short id) {
+        return names.get(id);
+    }
+
+    /**
+     * Vérifie si le bloc ayant l'identifiant donné est une ressource.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return Si le bloc est une ressource.
+     */
+    public boolean isResource(short id) {
+        return resourceBlocks.get(id);
+    }
+
+    /**
+     * Vérifie si le bloc ayant l'identifiant donné est de l'air (une cellule vide ou le
+     * ciel), dans lequel un fluide peut s'écouler.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return Si le bloc est de l'air.
+     */
+    public boolean isAir(short id) {
+        return airBlocks.get(id);
+    }
+
+    /**
+     * Vérifie si le bloc ayant l'identifiant donné est un fluide, qui s'écoule dans
+     * l'air qui l'entoure.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return Si le bloc est un fluide.
+     */
+    public boolean isFluid(short id) {
+        return fluidBlocks.get(id);
+    }
+
+    /**
+     * Donne le niveau de lumière émis par le bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return Le niveau de lumière émis par le bloc, entre {@code 0} (aucune lumière) et
+     *         {@link LightEngine#MAX_EMISSION}.
+     */
+    public int getLightEmission(short id) {
+        return lightEmissions[id];
+    }
+
+    /**
+     * Modifie le niveau de lumière émis par le bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du bloc.
+     * @param emission Le niveau de lumière émis par le bloc.
+     *
+     * @throws IllegalArgumentException Si le niveau donné n'est pas compris entre
+     *         {@code 0} et {@link LightEngine#MAX_EMISSION}.
+     */
+    public void setLightEmission(short id, int emission) {
+        if ((emission < 0) || (emission > LightEngine.MAX_EMISSION)) {
+            throw new IllegalArgumentException("Incorrect light emission!");
+        }
+        lightEmissions[id] = (byte) emission;
+    }
+
+    /**
+     * Donne la ressource correspondant au bloc ayant l'identifiant donné.
+     * Une seule instance de {@link Resource} est créée par type de bloc.
+     *
+     * @param id L'identifiant du bloc.
+     *
+     * @return La ressource correspondant au bloc, ou {@code null} si le bloc n'est pas
+     *         une ressource.
+     */
+    public Resource getResource(short id) {
+        if (!isResource(id)) {
+            return null;
+        }
+
+        Resource resource = resources[id];
+        if (resource == null) {
+            resource = new Resource(names.get(id));
+            resources[id] = resource;
+        }
+        return resource;
+    }
+
+}
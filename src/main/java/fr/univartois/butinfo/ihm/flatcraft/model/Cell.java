@@ -14,10 +14,11 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.scene.image.Image;
-
 /**
  * La classe {@link Cell} représente une cellule de la carte du jeu Flatcraft.
+ * Une cellule est une vue légère sur l'identifiant d'un bloc : elle peut être attachée à
+ * une position d'une {@link GameMap} (auquel cas elle lit et modifie directement la
+ * carte), ou détachée (auquel cas elle stocke elle-même son bloc).
  *
  * @author Romain Wallon
  *
@@ -26,57 +27,55 @@ import javafx.scene.image.Image;
 public final class Cell {
 
     /**
-     * La ligne où se trouve cette cellule dans la carte.
+     * La carte sur laquelle se trouve cette cellule.
+     * Si la cellule est détachée, la valeur de cet attribut est {@code null}.
      */
-    private int row;
+    private final GameMap map;
 
     /**
-     * La colonne où se trouve cette cellule dans la carte.
+     * Le registre donnant la signification de l'identifiant du bloc de cette cellule.
      */
-    private int column;
+    private final BlockRegistry registry;
 
     /**
-     * La ressource contenue dans cette cellule.
-     * Si la cellule est vide, la valeur de cet attribut est {@code null}.
+     * La ligne où se trouve cette cellule dans la carte.
      */
-    private Resource resource;
+    private int row;
 
     /**
-     * Le sprite représentant le contenu de cette cellule sur la carte.
+     * La colonne où se trouve cette cellule dans la carte.
      */
-    private Image sprite;
+    private int column;
 
     /**
-     * Crée une nouvelle instance de Cell.
-     * La cellule créée est initialement vide.
-     *
-     * @param row La ligne où se trouve la cellule.
-     * @param column La colonne où se trouve la cellule.
+     * L'identifiant du bloc contenu dans cette cellule, lorsqu'elle est détachée.
      */
-    public Cell(int row, int column) {
-        this.row = row;
-        this.column = column;
-    }
+    private short block;
 
     /**
-     * Crée une nouvelle instance de Cell.
-     * La cellule créée est initialement vide.
+     * Crée une nouvelle instance de Cell, détachée de toute carte.
      *
-     * @param image L'image représentant la cellule.
+     * @param registry Le registre donnant la signification de l'identifiant du bloc.
+     * @param block L'identifiant du bloc contenu dans la cellule.
      */
-    public Cell(Image image) {
-        //this.image = image;
+    public Cell(BlockRegistry registry, short block) {
+        this.map = null;
+        this.registry = registry;
+        this.block = block;
     }
 
     /**
-     * Crée une nouvelle instance de Cell.
-     * La cellule créée est initialement vide.
+     * Crée une nouvelle instance de Cell, attachée à une position d'une carte.
      *
-     * @param resource La ressource contenue dans la cellule.
+     * @param map La carte sur laquelle se trouve la cellule.
+     * @param row La ligne où se trouve la cellule.
+     * @param column La colonne où se trouve la cellule.
      */
-    public Cell(Resource resource) {
-        this.resource = resource;
-        //this.image = resource.getSprite();
+    Cell(GameMap map, int row, int column) {
+        this.map = map;
+        this.registry = map.getRegistry();
+        this.row = row;
+        this.column = column;
     }
 
     /**
@@ -116,12 +115,48 @@ public final class Cell {
     }
 
     /**
-     * Donne le sprite représentant le contenu de cette cellule sur la carte.
+     * Donne l'identifiant du bloc contenu dans cette cellule.
      *
-     * @return Le sprite représentant cette cellule.
+     * @return L'identifiant du bloc de cette cellule.
      */
-    public Image getSprite() {
-        return sprite;
+    public short getBlock() {
+        if (map == null) {
+            return block;
+        }
+        return map.getBlockAt(row, column);
+    }
+
+    /**
+     * Modifie l'identifiant du bloc contenu dans cette cellule.
+     *
+     * @param block L'identifiant du nouveau bloc.
+     */
+    private void setBlock(short block) {
+        if (map == null) {
+            this.block = block;
+
+        } else {
+            map.setBlockAt(row, column, block);
+        }
+    }
+
+    /**
+     * Donne le nom du sprite représentant le contenu de cette cellule sur la carte.
+     *
+     * @return Le nom du sprite représentant cette cellule, ou {@code null} si elle est
+     *         vide.
+     */
+    public String getSpriteName() {
+        return registry.getName(getBlock());
+    }
+
+    /**
+     * Donne la ressource contenue dans cette cellule.
+     *
+     * @return La ressource de cette cellule, ou {@code null} si elle n'en contient pas.
+     */
+    public Resource getResource() {
+        return registry.getResource(getBlock());
     }
 
     /**
@@ -131,12 +166,10 @@ public final class Cell {
      */
     public void setResource(Resource resource) {
         if (resource == null) {
-            this.resource = null;
-            this.sprite = null;
+            setBlock(BlockRegistry.EMPTY);
 
         } else {
-            this.resource = resource;
-            this.sprite = resource.getSprite();
+            setBlock(registry.getId(resource.getName()));
         }
     }
 
@@ -146,8 +179,7 @@ public final class Cell {
      * @param cell La cellule à copier pour remplacer celle-ci.
      */
     public void replaceBy(Cell cell) {
-        this.resource = cell.resource;
-        this.sprite = cell.getSprite();
+        setBlock(cell.getBlock());
     }
 
     /**
@@ -160,7 +192,7 @@ public final class Cell {
      * @return Si l'objet mobile a été déplacé.
      */
     public boolean move(AbstractMovable movable) {
-        if (resource == null) {
+        if (!registry.isResource(getBlock())) {
             movable.setRow(row + 1);
             return true;
         }
@@ -176,6 +208,7 @@ public final class Cell {
      * @return Si une ressource a été extraite.
      */
     public boolean dig(Player player) {
+        Resource resource = getResource();
         if (resource != null) {
             player.addToInventory(resource);
             setResource(null);
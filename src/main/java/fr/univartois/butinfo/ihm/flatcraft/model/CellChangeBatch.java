@@ -0,0 +1,91 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link CellChangeBatch} représente l'ensemble des cellules d'une
+ * {@link GameMap} dont l'apparence a changé pendant un pas de simulation (ou une action
+ * du joueur).
+ * Chaque cellule n'y apparaît qu'une seule fois, même si elle a été modifiée plusieurs
+ * fois.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ *
+ * @see CellChangeBus
+ */
+public final class CellChangeBatch {
+
+    /**
+     * Les positions des cellules modifiées, rangées par paires (ligne puis colonne).
+     */
+    private final int[] positions;
+
+    /**
+     * Crée une nouvelle instance de CellChangeBatch.
+     *
+     * @param positions Les positions des cellules modifiées, rangées par paires (ligne
+     *        puis colonne).
+     * @param size Le nombre de cellules modifiées.
+     */
+    CellChangeBatch(int[] positions, int size) {
+        this.positions = Arrays.copyOf(positions, 2 * size);
+    }
+
+    /**
+     * Donne le nombre de cellules modifiées.
+     *
+     * @return Le nombre de cellules modifiées.
+     */
+    public int size() {
+        return positions.length / 2;
+    }
+
+    /**
+     * Vérifie si aucune cellule n'a été modifiée.
+     *
+     * @return Si aucune cellule n'a été modifiée.
+     */
+    public boolean isEmpty() {
+        return positions.length == 0;
+    }
+
+    /**
+     * Donne la ligne d'une cellule modifiée.
+     *
+     * @param index L'indice de la cellule dans ce lot.
+     *
+     * @return La ligne de la cellule.
+     */
+    public int getRow(int index) {
+        return positions[2 * index];
+    }
+
+    /**
+     * Donne la colonne d'une cellule modifiée.
+     *
+     * @param index L'indice de la cellule dans ce lot.
+     *
+     * @return La colonne de la cellule.
+     */
+    public int getColumn(int index) {
+        return positions[(2 * index) + 1];
+    }
+
+}
@@ -0,0 +1,123 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link CellChangeBus} regroupe les modifications des cellules d'une
+ * {@link GameMap} (ou de leur éclairage) en un seul {@link CellChangeBatch}.
+ *
+ * Le bus est informé de chaque modification, mais ne fait que retenir la position des
+ * cellules concernées, sans doublon.
+ * Le lot est transmis à l'affichage en une seule fois par {@link #flush()}, par exemple
+ * à la fin de chaque pas de simulation : la génération d'un tas de scories de 500
+ * cellules ne donne ainsi lieu qu'à une seule mise à jour de la vue.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class CellChangeBus implements CellListener {
+
+    /**
+     * Le lot vide, retourné lorsqu'aucune cellule n'a été modifiée.
+     */
+    private static final CellChangeBatch EMPTY = new CellChangeBatch(new int[0], 0);
+
+    /**
+     * Les positions des cellules modifiées, rangées par paires (ligne puis colonne).
+     */
+    private int[] positions = new int[64];
+
+    /**
+     * Le nombre de cellules modifiées.
+     */
+    private int size;
+
+    /**
+     * Les positions (sous la forme d'un entier long) des cellules déjà modifiées, qui
+     * permettent de ne retenir chaque cellule qu'une seule fois.
+     * Elles sont rangées sans être encapsulées dans des objets, de sorte que signaler une
+     * modification n'alloue aucun objet.
+     */
+    private final LongSet changed = new LongSet();
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.CellListener#cellChanged(int, int)
+     */
+    @Override
+    public void cellChanged(int row, int column) {
+        if (!changed.add(key(row, column))) {
+            return;
+        }
+
+        if ((2 * size) == positions.length) {
+            positions = Arrays.copyOf(positions, 2 * positions.length);
+        }
+        positions[2 * size] = row;
+        positions[(2 * size) + 1] = column;
+        size++;
+    }
+
+    /**
+     * Donne le nombre de cellules modifiées depuis le dernier appel à {@link #flush()}.
+     *
+     * @return Le nombre de cellules modifiées.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Donne les cellules modifiées depuis le dernier appel à cette méthode, et les
+     * oublie.
+     *
+     * @return Le lot des cellules modifiées.
+     */
+    public CellChangeBatch flush() {
+        if (size == 0) {
+            return EMPTY;
+        }
+
+        CellChangeBatch batch = new CellChangeBatch(positions, size);
+        clear();
+        return batch;
+    }
+
+    /**
+     * Oublie les cellules modifiées depuis le dernier appel à {@link #flush()}.
+     */
+    public void clear() {
+        size = 0;
+        changed.clear();
+    }
+
+    /**
+     * Calcule l'entier long identifiant la position d'une cellule.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return L'entier identifiant la position.
+     */
+    private static long key(int row, int column) {
+        return (((long) row) << 32) | (column & 0xffffffffL);
+    }
+
+}
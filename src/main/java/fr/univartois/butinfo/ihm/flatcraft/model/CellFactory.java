@@ -15,8 +15,7 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  */
 
 import java.util.Random;
-
-import javafx.scene.image.Image;
+import java.util.random.RandomGenerator;
 
 /**
  * La classe {@link CellFactory} permet de créer les cellules formant la carte du jeu Flatcraft.
@@ -34,17 +33,25 @@ public final class CellFactory {
     private static final Random RANDOM = new Random();
 
     /**
-     * Le {@link SpriteStore} à utiliser pour récupérer les sprites des cellules.
+     * Le registre donnant les identifiants des blocs contenus dans les cellules créées.
      */
-    private final SpriteStore spriteStore;
+    private final BlockRegistry registry;
 
     /**
      * Crée une nouvelle instance de CellFactory.
+     */
+    public CellFactory() {
+        this.registry = new BlockRegistry();
+    }
+
+    /**
+     * Donne le registre donnant les identifiants des blocs contenus dans les cellules
+     * créées par cette fabrique.
      *
-     * @param spriteStore Le {@link SpriteStore} à utiliser pour récupérer les sprites des cellules.
+     * @return Le registre des blocs.
      */
-    public CellFactory(SpriteStore spriteStore) {
-        this.spriteStore = spriteStore;
+    public BlockRegistry getRegistry() {
+        return registry;
     }
 
     /**
@@ -54,10 +61,22 @@ public final class CellFactory {
      * @return La cellule créée.
      */
     public Cell createSky() {
-        if (RANDOM.nextInt(10) < 1) {
-            return createCell("cloud");
+        return createCell(createSkyBlock(RANDOM));
+    }
+
+    /**
+     * Choisit le bloc d'une cellule de ciel.
+     * Il peut s'agir de ciel bleu ou d'un nuage, par exemple.
+     *
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
+     * @return L'identifiant du bloc choisi.
+     */
+    public short createSkyBlock(RandomGenerator random) {
+        if (random.nextInt(10) < 1) {
+            return BlockRegistry.CLOUD;
         }
-        return createCell("ice");
+        return BlockRegistry.ICE;
     }
 
     /**
@@ -67,15 +86,27 @@ public final class CellFactory {
      * @return La cellule créée.
      */
     public Cell createSoilSurface() {
-        if (RANDOM.nextInt(10) < 1) {
-            return createResourceCell("junglegrass");
+        return createCell(createSoilSurfaceBlock(RANDOM));
+    }
+
+    /**
+     * Choisit le bloc d'une cellule représentant la surface du sol.
+     * Il peut s'agir de pelouse ou d'eau, par exemple.
+     *
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
+     * @return L'identifiant du bloc choisi.
+     */
+    public short createSoilSurfaceBlock(RandomGenerator random) {
+        if (random.nextInt(10) < 1) {
+            return BlockRegistry.JUNGLEGRASS;
         }
 
-        if (RANDOM.nextInt(10) < 2) {
-            return createResourceCell("water");
+        if (random.nextInt(10) < 2) {
+            return BlockRegistry.WATER;
         }
 
-        return createResourceCell("grass");
+        return BlockRegistry.GRASS;
     }
 
     /**
@@ -85,58 +116,57 @@ public final class CellFactory {
      * @return La cellule créée.
      */
     public Cell createSubSoil() {
-        return switch (RANDOM.nextInt(20)) {
-            case 0 -> createResourceCell("gold_block");
-            case 1 -> createResourceCell("diamond_block");
-            case 2 -> createResourceCell("bronze_block");
-            case 3 -> createResourceCell("coal_block");
-            case 4 -> createResourceCell("copper_block");
-            default -> createResourceCell("dirt");
-        };
+        return createCell(createSubSoilBlock(RANDOM));
     }
 
     /**
-     * Crée une cellule représentant le tronc d'un arbre.
+     * Choisit le bloc d'une cellule représentant le sous-sol.
+     * Il peut s'agir de terre, ou de minerai à aller chercher en profondeur, par exemple.
      *
-     * @return La cellule créée.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
+     * @return L'identifiant du bloc choisi.
      */
-    public Cell createTrunk() {
-        return createCell("tree");
+    public short createSubSoilBlock(RandomGenerator random) {
+        return switch (random.nextInt(20)) {
+            case 0 -> BlockRegistry.GOLD_BLOCK;
+            case 1 -> BlockRegistry.DIAMOND_BLOCK;
+            case 2 -> BlockRegistry.BRONZE_BLOCK;
+            case 3 -> BlockRegistry.COAL_BLOCK;
+            case 4 -> BlockRegistry.COPPER_BLOCK;
+            default -> BlockRegistry.DIRT;
+        };
     }
 
     /**
-     * Crée une cellule représentant les feuilles d'un arbre.
+     * Crée une cellule représentant le tronc d'un arbre.
      *
      * @return La cellule créée.
      */
-    public Cell createLeaves() {
-        return createCell("leaves");
+    public Cell createTrunk() {
+        return createCell(BlockRegistry.TREE);
     }
 
     /**
-     * Crée une cellule affichant le sprite ayant le nom donné.
-     * La cellule créée est vide (elle ne contient pas de ressource).
-     *
-     * @param name Le nom du sprite affiché par la cellule à créer.
+     * Crée une cellule représentant les feuilles d'un arbre.
      *
      * @return La cellule créée.
      */
-    private Cell createCell(String name) {
-        Image sprite = spriteStore.createSprite(name);
-        return new Cell(sprite);
+    public Cell createLeaves() {
+        return createCell(BlockRegistry.LEAVES);
     }
 
     /**
-     * Crée une cellule contenant la ressource ayant le nom donné.
+     * Crée une cellule contenant le bloc ayant l'identifiant donné.
+     * La cellule créée ne stocke que cet identifiant : la {@link Resource} et le sprite
+     * correspondants sont partagés par toutes les cellules contenant le même bloc.
      *
-     * @param name Le nom de la ressource contenue dans la cellule à créer.
+     * @param block L'identifiant du bloc contenu dans la cellule à créer.
      *
      * @return La cellule créée.
      */
-    private Cell createResourceCell(String name) {
-        Image sprite = spriteStore.createSprite(name);
-        Resource resource = new Resource(name, sprite);
-        return new Cell(resource);
+    private Cell createCell(short block) {
+        return new Cell(registry, block);
     }
 
 }
@@ -0,0 +1,39 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * L'interface {@link CellListener} permet d'être informé des modifications apportées aux
+ * cellules d'une {@link GameMap}.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface CellListener {
+
+    /**
+     * Indique que le bloc d'une cellule de la carte a changé.
+     * Cette méthode n'est pas appelée lorsqu'une colonne de chunks est générée ou
+     * chargée.
+     *
+     * @param row La ligne de la cellule modifiée.
+     * @param column La colonne de la cellule modifiée.
+     */
+    void cellChanged(int row, int column);
+
+}
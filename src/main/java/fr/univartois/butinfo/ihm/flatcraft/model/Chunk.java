@@ -0,0 +1,320 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link Chunk} représente un bloc carré de cellules d'une {@link GameMap}.
+ * Un chunk ne stocke que l'identifiant (donné par le {@link BlockRegistry}) du bloc
+ * présent dans chacune de ses cellules.
+ * Les chunks ne sont alloués par la carte qu'au moment où l'une de leurs cellules est
+ * modifiée, ce qui évite de stocker les zones restées vides.
+ * Chaque chunk connaît l'époque de la carte à laquelle il a été créé : un chunk créé
+ * avant la dernière {@link GameMapSnapshot} peut être partagé avec celle-ci, et doit donc
+ * être copié avant d'être modifié.
+ * Un chunk peut également être compacté (voir {@link ChunkCodec}) lorsqu'il est éloigné
+ * des joueurs : il occupe alors beaucoup moins de mémoire, et n'est décompacté que
+ * lorsqu'il est modifié.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class Chunk {
+
+    /**
+     * La taille (en nombre de cellules) du côté d'un chunk.
+     */
+    static final int SIZE = 16;
+
+    /**
+     * Le décalage permettant de passer d'une coordonnée de cellule à une coordonnée de
+     * chunk.
+     */
+    static final int SHIFT = 4;
+
+    /**
+     * Le masque permettant de calculer la position d'une cellule dans son chunk.
+     */
+    static final int MASK = SIZE - 1;
+
+    /**
+     * Les identifiants des blocs de ce chunk, rangés ligne par ligne, ou {@code null} si
+     * ce chunk est compacté.
+     */
+    private short[] blocks;
+
+    /**
+     * La représentation compacte de ce chunk, ou {@code null} s'il n'est pas compacté.
+     */
+    private byte[] packed;
+
+    /**
+     * L'époque de la carte à laquelle ce chunk a été créé.
+     */
+    private final int epoch;
+
+    /**
+     * Si ce chunk a été modifié depuis son chargement ou sa dernière sauvegarde.
+     */
+    private boolean modified;
+
+    /**
+     * Crée une nouvelle instance de Chunk, ne contenant que des cellules vides.
+     */
+    Chunk() {
+        this(0);
+    }
+
+    /**
+     * Crée une nouvelle instance de Chunk, ne contenant que des cellules vides.
+     *
+     * @param epoch L'époque de la carte à laquelle le chunk est créé.
+     */
+    Chunk(int epoch) {
+        this.epoch = epoch;
+        this.blocks = new short[SIZE * SIZE];
+    }
+
+    /**
+     * Crée une nouvelle instance de Chunk compacté.
+     *
+     * @param epoch L'époque de la carte à laquelle le chunk est créé.
+     * @param packed La représentation compacte du chunk.
+     */
+    private Chunk(int epoch, byte[] packed) {
+        this.epoch = epoch;
+        this.packed = packed;
+    }
+
+    /**
+     * Crée une copie de ce chunk, qui peut être modifiée sans modifier ce chunk.
+     *
+     * @param epoch L'époque de la carte à laquelle la copie est créée.
+     *
+     * @return La copie de ce chunk.
+     */
+    Chunk copy(int epoch) {
+        Chunk copy = new Chunk(epoch);
+        copyBlocks(copy.blocks);
+        copy.modified = modified;
+        return copy;
+    }
+
+    /**
+     * Crée une version compactée de ce chunk, ayant le même contenu.
+     * Ce chunk n'est pas modifié, de sorte qu'il peut rester partagé avec une
+     * {@link GameMapSnapshot}.
+     *
+     * @param epoch L'époque de la carte à laquelle la version compactée est créée.
+     *
+     * @return La version compactée de ce chunk.
+     */
+    Chunk pack(int epoch) {
+        byte[] data = packed;
+        if (data == null) {
+            byte[] buffer = new byte[ChunkCodec.MAX_SIZE];
+            data = Arrays.copyOf(buffer, ChunkCodec.encode(blocks, buffer));
+        }
+        Chunk copy = new Chunk(epoch, data);
+        copy.modified = modified;
+        return copy;
+    }
+
+    /**
+     * Vérifie si ce chunk est compacté.
+     *
+     * @return Si ce chunk est compacté.
+     */
+    boolean isPacked() {
+        return packed != null;
+    }
+
+    /**
+     * Donne l'époque de la carte à laquelle ce chunk a été créé.
+     *
+     * @return L'époque de création de ce chunk.
+     */
+    int getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Donne l'identifiant du bloc à la position donnée dans ce chunk.
+     *
+     * @param row La ligne de la cellule sur la carte.
+     * @param column La colonne de la cellule sur la carte.
+     *
+     * @return L'identifiant du bloc à la position donnée.
+     */
+    short get(int row, int column) {
+        short[] array = blocks;
+        if (array == null) {
+            return ChunkCodec.decodeAt(packed, index(row, column));
+        }
+        return array[index(row, column)];
+    }
+
+    /**
+     * Modifie l'identifiant du bloc à la position donnée dans ce chunk.
+     * Si ce chunk est compacté, il est d'abord décompacté.
+     *
+     * @param row La ligne de la cellule sur la carte.
+     * @param column La colonne de la cellule sur la carte.
+     * @param block L'identifiant du nouveau bloc.
+     */
+    void set(int row, int column, short block) {
+        blocks()[index(row, column)] = block;
+        modified = true;
+    }
+
+    /**
+     * Modifie les identifiants des blocs de cellules consécutives d'une même ligne de ce
+     * chunk, en les copiant d'un seul bloc.
+     * Si ce chunk est compacté, il est d'abord décompacté.
+     *
+     * @param row La ligne des cellules sur la carte.
+     * @param column La colonne de la première cellule sur la carte.
+     * @param source Le tableau contenant les identifiants des nouveaux blocs.
+     * @param offset La position du premier bloc à copier dans le tableau.
+     * @param length Le nombre de cellules à modifier, qui ne doivent pas dépasser la
+     *        fin de la ligne du chunk.
+     */
+    void setRun(int row, int column, short[] source, int offset, int length) {
+        System.arraycopy(source, offset, blocks(), index(row, column), length);
+        modified = true;
+    }
+
+    /**
+     * Compare les identifiants des blocs de cellules consécutives d'une même ligne de ce
+     * chunk avec ceux d'un tableau, sans modifier ce chunk.
+     *
+     * @param row La ligne des cellules sur la carte.
+     * @param column La colonne de la première cellule sur la carte.
+     * @param source Le tableau contenant les identifiants à comparer.
+     * @param offset La position du premier identifiant à comparer dans le tableau.
+     * @param length Le nombre de cellules à comparer, qui ne doivent pas dépasser la
+     *        fin de la ligne du chunk.
+     *
+     * @return Le masque des cellules dont le bloc diffère de celui du tableau : le bit
+     *         {@code i} correspond à la {@code i}-ème cellule.
+     */
+    int differences(int row, int column, short[] source, int offset, int length) {
+        int mask = 0;
+        for (int i = 0; i < length; i++) {
+            if (get(row, column + i) != source[offset + i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Vérifie si ce chunk a été modifié depuis la dernière fois que son état a été
+     * réinitialisé.
+     *
+     * @return Si ce chunk a été modifié.
+     */
+    boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Modifie l'état indiquant si ce chunk a été modifié.
+     *
+     * @param modified Si ce chunk doit être considéré comme modifié.
+     */
+    void setModified(boolean modified) {
+        this.modified = modified;
+    }
+
+    /**
+     * Donne le tableau des identifiants des blocs de ce chunk, rangés ligne par ligne.
+     * Ce tableau n'est pas copié : il permet d'écrire le chunk d'un seul bloc, par
+     * exemple lors de son chargement.
+     * Si ce chunk est compacté, il est d'abord décompacté : cette méthode ne doit donc
+     * être appelée que depuis le thread qui modifie la carte.
+     *
+     * @return Le tableau des blocs de ce chunk.
+     */
+    short[] blocks() {
+        if (blocks == null) {
+            short[] array = new short[SIZE * SIZE];
+            ChunkCodec.decode(packed, array);
+            blocks = array;
+            packed = null;
+        }
+        return blocks;
+    }
+
+    /**
+     * Copie les identifiants des blocs de ce chunk, rangés ligne par ligne, sans le
+     * modifier.
+     * Cette méthode peut donc être appelée pendant que le chunk est partagé avec une
+     * {@link GameMapSnapshot}, par exemple lors de sa sauvegarde.
+     *
+     * @param target Le tableau dans lequel copier les identifiants des blocs.
+     *
+     * @return Le tableau donné.
+     */
+    short[] copyBlocks(short[] target) {
+        if (blocks == null) {
+            ChunkCodec.decode(packed, target);
+
+        } else {
+            System.arraycopy(blocks, 0, target, 0, blocks.length);
+        }
+        return target;
+    }
+
+    /**
+     * Écrit la représentation compacte de ce chunk, sans le modifier.
+     *
+     * @param target Le tableau dans lequel écrire la représentation, qui doit contenir
+     *        au moins {@link ChunkCodec#MAX_SIZE} octets.
+     *
+     * @return La taille (en octets) de la représentation écrite.
+     */
+    int encode(byte[] target) {
+        if (blocks == null) {
+            System.arraycopy(packed, 0, target, 0, packed.length);
+            return packed.length;
+        }
+        return ChunkCodec.encode(blocks, target);
+    }
+
+    /**
+     * Donne une estimation de la mémoire (en octets) occupée par les blocs de ce chunk.
+     *
+     * @return La mémoire occupée par les blocs de ce chunk.
+     */
+    int getMemorySize() {
+        return (blocks == null) ? packed.length : (blocks.length * Short.BYTES);
+    }
+
+    /**
+     * Calcule la position d'une cellule dans le tableau des blocs de ce chunk.
+     *
+     * @param row La ligne de la cellule sur la carte.
+     * @param column La colonne de la cellule sur la carte.
+     *
+     * @return La position de la cellule dans le tableau des blocs.
+     */
+    private static int index(int row, int column) {
+        return ((row & MASK) << SHIFT) | (column & MASK);
+    }
+
+}
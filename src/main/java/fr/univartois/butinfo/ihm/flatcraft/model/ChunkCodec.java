@@ -0,0 +1,314 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link ChunkCodec} permet de représenter de manière compacte les
+ * identifiants des blocs d'un {@link Chunk}.
+ *
+ * La plupart des chunks d'une carte (le ciel, le sous-sol) ne contiennent qu'un seul
+ * bloc, ou sont formés de longues suites de cellules identiques sur une même ligne.
+ * Un chunk est donc représenté, selon ce qui est le plus court :
+ * <ul>
+ * <li>par l'identifiant de son unique bloc, s'il est uniforme ;</li>
+ * <li>par une palette des blocs qu'il contient, suivie de ses cellules (rangées ligne
+ * par ligne) compressées par plages, chaque plage étant formée de sa longueur et de la
+ * position de son bloc dans la palette ;</li>
+ * <li>par une palette des blocs qu'il contient, suivie de la position dans la palette
+ * du bloc de chacune de ses cellules, écrite sur aussi peu de bits que possible (ce qui
+ * convient au sous-sol, où les minerais sont dispersés au hasard) ;</li>
+ * <li>par l'ensemble de ses identifiants, s'il est trop varié pour être compressé.</li>
+ * </ul>
+ * Cette représentation est utilisée aussi bien pour les chunks éloignés conservés en
+ * mémoire que dans les fichiers de région.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class ChunkCodec {
+
+    /**
+     * Le nombre de cellules d'un chunk.
+     */
+    private static final int CELLS = Chunk.SIZE * Chunk.SIZE;
+
+    /**
+     * Le mode d'un chunk ne contenant qu'un seul bloc.
+     */
+    private static final byte UNIFORM = 0;
+
+    /**
+     * Le mode d'un chunk compressé par plages sur une palette.
+     */
+    private static final byte PALETTE = 1;
+
+    /**
+     * Le mode d'un chunk non compressé.
+     */
+    private static final byte RAW = 2;
+
+    /**
+     * Le mode d'un chunk dont les cellules sont écrites sur quelques bits chacune, selon
+     * une palette.
+     */
+    private static final byte BITS = 3;
+
+    /**
+     * La taille maximale (en octets) de la représentation d'un chunk.
+     */
+    static final int MAX_SIZE = 1 + (CELLS * Short.BYTES);
+
+    /**
+     * La longueur maximale d'une plage, qui doit tenir sur un octet.
+     */
+    private static final int MAX_RUN = 256;
+
+    /**
+     * Désactive l'instanciation en dehors de la classe.
+     */
+    private ChunkCodec() {
+        throw new AssertionError("No ChunkCodec instances for you!");
+    }
+
+    /**
+     * Encode les identifiants des blocs d'un chunk.
+     *
+     * @param blocks Les identifiants des blocs du chunk, rangés ligne par ligne.
+     * @param target Le tableau dans lequel écrire la représentation du chunk, qui doit
+     *        contenir au moins {@link #MAX_SIZE} octets.
+     *
+     * @return La taille (en octets) de la représentation écrite.
+     */
+    static int encode(short[] blocks, byte[] target) {
+        // Un premier parcours construit la palette et compte les plages.
+        short[] palette = new short[CELLS];
+        int paletteSize = 0;
+        int runs = 0;
+        short previous = 0;
+        int length = 0;
+        for (int i = 0; i < CELLS; i++) {
+            short block = blocks[i];
+            if ((i == 0) || (block != previous) || (length == MAX_RUN)) {
+                if (indexOf(palette, paletteSize, block) < 0) {
+                    palette[paletteSize++] = block;
+                }
+                previous = block;
+                length = 0;
+                runs++;
+            }
+            length++;
+        }
+
+        if (paletteSize == 1) {
+            target[0] = UNIFORM;
+            writeShort(target, 1, blocks[0]);
+            return 1 + Short.BYTES;
+        }
+
+        int bits = Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1);
+        int rleSize = 2 + (paletteSize * Short.BYTES) + (runs * 2);
+        int bitsSize = 2 + (paletteSize * Short.BYTES) + ((CELLS * bits) / Byte.SIZE);
+        if (Math.min(rleSize, bitsSize) >= MAX_SIZE) {
+            target[0] = RAW;
+            for (int i = 0; i < CELLS; i++) {
+                writeShort(target, 1 + (i * Short.BYTES), blocks[i]);
+            }
+            return MAX_SIZE;
+        }
+
+        target[0] = (rleSize <= bitsSize) ? PALETTE : BITS;
+        target[1] = (byte) (paletteSize - 1);
+        int offset = 2;
+        for (int i = 0; i < paletteSize; i++) {
+            writeShort(target, offset, palette[i]);
+            offset += Short.BYTES;
+        }
+
+        if (target[0] == BITS) {
+            Arrays.fill(target, offset, bitsSize, (byte) 0);
+            for (int i = 0; i < CELLS; i++) {
+                int bit = i * bits;
+                int value = indexOf(palette, paletteSize, blocks[i]) << (bit & 7);
+                target[offset + (bit >> 3)] |= (byte) value;
+                if (((bit & 7) + bits) > Byte.SIZE) {
+                    target[offset + (bit >> 3) + 1] |= (byte) (value >> Byte.SIZE);
+                }
+            }
+            return bitsSize;
+        }
+
+        for (int start = 0; start < CELLS;) {
+            short block = blocks[start];
+            int end = start + 1;
+            while ((end < CELLS) && (blocks[end] == block) && ((end - start) < MAX_RUN)) {
+                end++;
+            }
+            target[offset++] = (byte) (end - start - 1);
+            target[offset++] = (byte) indexOf(palette, paletteSize, block);
+            start = end;
+        }
+        return offset;
+    }
+
+    /**
+     * Décode les identifiants des blocs d'un chunk.
+     *
+     * @param data La représentation du chunk, telle qu'écrite par
+     *        {@link #encode(short[], byte[])}.
+     * @param blocks Le tableau dans lequel écrire les identifiants des blocs du chunk,
+     *        rangés ligne par ligne.
+     *
+     * @throws IllegalArgumentException Si la représentation donnée n'est pas valide.
+     */
+    static void decode(byte[] data, short[] blocks) {
+        switch (data[0]) {
+            case UNIFORM -> Arrays.fill(blocks, 0, CELLS, readShort(data, 1));
+
+            case PALETTE -> {
+                int paletteSize = (data[1] & 0xff) + 1;
+                int offset = 2 + (paletteSize * Short.BYTES);
+                for (int cell = 0; cell < CELLS; offset += 2) {
+                    int end = cell + (data[offset] & 0xff) + 1;
+                    if (end > CELLS) {
+                        throw new IllegalArgumentException("Run exceeds chunk size!");
+                    }
+                    short block = readShort(data, 2 + ((data[offset + 1] & 0xff) * Short.BYTES));
+                    Arrays.fill(blocks, cell, end, block);
+                    cell = end;
+                }
+            }
+
+            case RAW -> {
+                for (int i = 0; i < CELLS; i++) {
+                    blocks[i] = readShort(data, 1 + (i * Short.BYTES));
+                }
+            }
+
+            case BITS -> {
+                int paletteSize = (data[1] & 0xff) + 1;
+                short[] palette = new short[paletteSize];
+                for (int i = 0; i < paletteSize; i++) {
+                    palette[i] = readShort(data, 2 + (i * Short.BYTES));
+                }
+                int bits = Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1);
+                int offset = 2 + (paletteSize * Short.BYTES);
+                for (int i = 0; i < CELLS; i++) {
+                    blocks[i] = palette[readBits(data, offset, i, bits)];
+                }
+            }
+
+            default -> throw new IllegalArgumentException("Unknown chunk encoding: " + data[0]);
+        }
+    }
+
+    /**
+     * Décode l'identifiant du bloc d'une seule cellule d'un chunk, sans décoder le
+     * reste du chunk.
+     *
+     * @param data La représentation du chunk, telle qu'écrite par
+     *        {@link #encode(short[], byte[])}.
+     * @param index La position de la cellule parmi les cellules du chunk, rangées ligne
+     *        par ligne.
+     *
+     * @return L'identifiant du bloc de la cellule.
+     */
+    static short decodeAt(byte[] data, int index) {
+        if (data[0] == UNIFORM) {
+            return readShort(data, 1);
+        }
+
+        if (data[0] == RAW) {
+            return readShort(data, 1 + (index * Short.BYTES));
+        }
+
+        int paletteSize = (data[1] & 0xff) + 1;
+        int offset = 2 + (paletteSize * Short.BYTES);
+        if (data[0] == BITS) {
+            int bits = Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1);
+            return readShort(data, 2 + (readBits(data, offset, index, bits) * Short.BYTES));
+        }
+
+        for (int cell = (data[offset] & 0xff) + 1; cell <= index; cell += (data[offset] & 0xff) + 1) {
+            offset += 2;
+        }
+        return readShort(data, 2 + ((data[offset + 1] & 0xff) * Short.BYTES));
+    }
+
+    /**
+     * Cherche un bloc dans une palette.
+     *
+     * @param palette La palette dans laquelle chercher.
+     * @param size Le nombre de blocs dans la palette.
+     * @param block Le bloc à chercher.
+     *
+     * @return La position du bloc dans la palette, ou {@code -1} s'il n'y est pas.
+     */
+    private static int indexOf(short[] palette, int size, short block) {
+        for (int i = 0; i < size; i++) {
+            if (palette[i] == block) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lit la position dans la palette du bloc d'une cellule écrite sur quelques bits.
+     *
+     * @param data La représentation du chunk.
+     * @param offset La position du premier octet des cellules dans la représentation.
+     * @param index La position de la cellule parmi les cellules du chunk.
+     * @param bits Le nombre de bits sur lequel chaque cellule est écrite.
+     *
+     * @return La position dans la palette du bloc de la cellule.
+     */
+    private static int readBits(byte[] data, int offset, int index, int bits) {
+        int bit = index * bits;
+        int position = offset + (bit >> 3);
+        int value = data[position] & 0xff;
+        if (((bit & 7) + bits) > Byte.SIZE) {
+            value |= (data[position + 1] & 0xff) << Byte.SIZE;
+        }
+        return (value >> (bit & 7)) & ((1 << bits) - 1);
+    }
+
+    /**
+     * Écrit un entier sur deux octets, poids fort en premier.
+     *
+     * @param data Le tableau dans lequel écrire.
+     * @param offset La position à laquelle écrire.
+     * @param value La valeur à écrire.
+     */
+    private static void writeShort(byte[] data, int offset, short value) {
+        data[offset] = (byte) (value >> 8);
+        data[offset + 1] = (byte) value;
+    }
+
+    /**
+     * Lit un entier écrit sur deux octets, poids fort en premier.
+     *
+     * @param data Le tableau dans lequel lire.
+     * @param offset La position à laquelle lire.
+     *
+     * @return La valeur lue.
+     */
+    private static short readShort(byte[] data, int offset) {
+        return (short) (((data[offset] & 0xff) << 8) | (data[offset + 1] & 0xff));
+    }
+
+}
@@ -0,0 +1,41 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * L'interface {@link ChunkColumnGenerator} définit la manière de remplir les colonnes de
+ * chunks d'une {@link GameMap} infinie, au moment où elles sont chargées.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface ChunkColumnGenerator {
+
+    /**
+     * Remplit une colonne de chunks de la carte.
+     * Pour que la carte ne dépende pas de l'ordre dans lequel ses colonnes sont
+     * chargées, cette méthode ne doit modifier que les cellules de la colonne donnée, et
+     * le faire de la même manière à chaque appel.
+     *
+     * @param map La carte à remplir.
+     * @param chunkColumn La position de la colonne de chunks à remplir (la colonne de
+     *        cellules la plus à gauche de ce chunk est {@code chunkColumn * GameMap.CHUNK_SIZE}).
+     */
+    void generate(GameMap map, int chunkColumn);
+
+}
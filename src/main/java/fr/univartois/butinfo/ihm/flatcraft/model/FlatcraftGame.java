@@ -14,17 +14,90 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
 import fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface;
-import javafx.scene.image.Image;
 
 /**
  * La classe {@link FlatcraftGame} permet de gérer une partie du jeu Flatcraft.
+ * Le jeu ne désigne les sprites que par leur nom, et ne dépend donc pas de l'affichage :
+ * une partie peut être simulée sans interface graphique, par exemple sur un serveur.
  *
  * @author Romain Wallon
  *
  * @version 0.1.0
  */
 public final class FlatcraftGame {
+
+    /**
+     * La distance (en nombre de cellules) autour des objets mobiles jusqu'à laquelle la
+     * carte est chargée, lorsqu'elle est infinie.
+     */
+    private static final int LOAD_DISTANCE = 3 * GameMap.CHUNK_SIZE;
+
+    /**
+     * La distance (en nombre de cellules) autour des objets mobiles au-delà de laquelle
+     * la carte est déchargée, lorsqu'elle est infinie.
+     * Elle est plus grande que {@link #LOAD_DISTANCE} pour éviter de recharger une même
+     * colonne lors d'allers-retours.
+     */
+    private static final int UNLOAD_DISTANCE = 6 * GameMap.CHUNK_SIZE;
+
+    /**
+     * La distance (en nombre de cellules) autour des objets mobiles au-delà de laquelle
+     * les chunks de la carte sont compactés.
+     * Elle est plus grande que {@link #LOAD_DISTANCE} pour que les chunks affichés ou
+     * éclairés autour des objets mobiles ne soient pas compactés.
+     */
+    private static final int PACK_DISTANCE = 4 * GameMap.CHUNK_SIZE;
+
+    /**
+     * La valeur permettant de dériver, de la graine de la partie, celle des tirages
+     * aléatoires réalisés pendant la partie (et non lors de la génération de la carte).
+     */
+    private static final long GAMEPLAY_SALT = -2;
+
+    /**
+     * La mesure du temps passé à réaliser un pas de simulation.
+     */
+    private static final LatencyHistogram TICK_TIME = PerformanceMetrics.getDefault()
+            .histogram("game.tick");
+
+    /**
+     * La mesure du temps passé à mettre à jour le champ des chemins vers le joueur.
+     */
+    private static final LatencyHistogram FLOW_FIELD_TIME = PerformanceMetrics.getDefault()
+            .histogram("game.tick.flowField");
+
+    /**
+     * La mesure du temps passé à faire s'écouler les fluides.
+     */
+    private static final LatencyHistogram FLUIDS_TIME = PerformanceMetrics.getDefault()
+            .histogram("game.tick.fluids");
+
+    /**
+     * La mesure du temps passé à déplacer un objet mobile.
+     */
+    private static final LatencyHistogram MOVE_TIME = PerformanceMetrics.getDefault()
+            .histogram("game.move");
+
+    /**
+     * La mesure du temps passé à faire creuser le joueur.
+     */
+    private static final LatencyHistogram DIG_TIME = PerformanceMetrics.getDefault()
+            .histogram("game.dig");
+
+    /**
+     * Le compteur des cellules modifiées transmises à l'affichage.
+     */
+    private static final LongAdder CHANGED_CELLS = PerformanceMetrics.getDefault()
+            .counter("game.changedCells");
+
     private TerrariaInterface terInter;
     /**
      * La largeur de la carte du jeu affichée (en pixels).
@@ -36,11 +109,6 @@ public final class FlatcraftGame {
      */
     private final int height;
 
-    /**
-     * L'instance e {@link SpriteStore} utilisée pour créer les sprites du jeu.
-     */
-    private SpriteStore spriteStore;
-
     /**
      * L'instance de {@link CellFactory} utilisée pour créer les cellules du jeu.
      */
@@ -52,10 +120,91 @@ public final class FlatcraftGame {
     private GameMap map;
 
     /**
-     * La représentation du joueur.
+     * Le simulateur faisant s'écouler les fluides de la carte.
+     */
+    private FluidSimulator fluids;
+
+    /**
+     * Le moteur calculant l'éclairage des cellules de la carte.
+     */
+    private LightEngine light;
+
+    /**
+     * Le bus regroupant les modifications des cellules de la carte, transmises à
+     * l'affichage une fois par pas de simulation ou par action du joueur.
+     */
+    private final CellChangeBus changes = new CellChangeBus();
+
+    /**
+     * Le champ donnant aux mobs le chemin le plus court vers le joueur.
+     */
+    private FlowField flowField;
+
+    /**
+     * La représentation du joueur, que les mobs cherchent à rejoindre.
+     * Lorsque plusieurs joueurs sont présents, il s'agit du premier d'entre eux.
      */
     private Player player;
 
+    /**
+     * Si un joueur local doit être créé lors de la préparation de la partie.
+     */
+    private boolean localPlayer = true;
+
+    /**
+     * Les joueurs ajoutés à la partie, dans leur ordre d'arrivée.
+     * Un joueur garde sa place dans cette liste après avoir quitté la partie, afin que
+     * le rang de chaque joueur ne change pas.
+     */
+    private final List<Player> players = new ArrayList<>();
+
+    /**
+     * La graine à partir de laquelle la carte et les tirages aléatoires de la partie
+     * sont générés.
+     */
+    private long seed = System.nanoTime();
+
+    /**
+     * Le générateur de nombres pseudo-aléatoires utilisé pendant la partie.
+     */
+    private RandomGenerator random;
+
+    /**
+     * L'enregistreur des actions des joueurs, ou {@code null} si la partie n'est pas
+     * enregistrée.
+     */
+    private InputRecorder recorder;
+
+    /**
+     * Les objets mobiles présents dans le jeu (y compris le joueur).
+     */
+    private final List<AbstractMovable> movables = new ArrayList<>();
+
+    /**
+     * L'index permettant de retrouver les objets mobiles selon leur position.
+     */
+    private final SpatialIndex movableIndex = new SpatialIndex();
+
+    /**
+     * Si la carte du jeu est infinie horizontalement.
+     */
+    private boolean unbounded;
+
+    /**
+     * La boucle faisant avancer la simulation du jeu par pas de temps fixes.
+     */
+    private final GameLoop gameLoop = new GameLoop(this::tick);
+
+    /**
+     * Si un pas de simulation est en cours.
+     */
+    private boolean ticking;
+
+    /**
+     * Si des objets mobiles se sont déplacés pendant le pas de simulation en cours.
+     */
+    private boolean movedDuringTick;
+
     public void setTerInter(TerrariaInterface terInter) {
         this.terInter = terInter;
     }
@@ -68,8 +217,7 @@ public final class FlatcraftGame {
     public FlatcraftGame(int width, int height) {
         this.width = width;
         this.height = height;
-        this.spriteStore = new SpriteStore();
-        this.cellFactory = new CellFactory(spriteStore);
+        this.cellFactory = new CellFactory();
     }
 
     /**
@@ -90,30 +238,294 @@ public final class FlatcraftGame {
         return height;
     }
 
+    /**
+     * Choisit si la carte du jeu doit être infinie horizontalement.
+     * Dans ce cas, la carte est générée au fur et à mesure que les objets mobiles s'y
+     * déplacent, et les parties éloignées sont déchargées.
+     * Ce choix doit être fait avant la préparation de la partie.
+     *
+     * @param unbounded Si la carte du jeu doit être infinie.
+     */
+    public void setUnbounded(boolean unbounded) {
+        this.unbounded = unbounded;
+    }
+
+    /**
+     * Choisit si un joueur local doit être créé lors de la préparation de la partie.
+     * Une partie hébergée par un serveur n'en a pas besoin : chaque client qui s'y
+     * connecte reçoit son propre joueur, ajouté avec {@link #addPlayer(String)}.
+     * Ce choix doit être fait avant la préparation de la partie.
+     *
+     * @param localPlayer Si un joueur local doit être créé.
+     */
+    public void setLocalPlayer(boolean localPlayer) {
+        this.localPlayer = localPlayer;
+    }
+
+    /**
+     * Donne la graine à partir de laquelle la carte et les tirages aléatoires de la
+     * partie sont générés.
+     *
+     * @return La graine de la partie.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Modifie la graine à partir de laquelle la carte et les tirages aléatoires de la
+     * partie sont générés.
+     * Deux parties préparées avec la même graine, et dans lesquelles les joueurs
+     * réalisent les mêmes actions lors des mêmes pas de simulation, se déroulent à
+     * l'identique.
+     * Ce choix doit être fait avant la préparation de la partie.
+     *
+     * @param seed La nouvelle graine de la partie.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Donne le générateur de nombres pseudo-aléatoires à utiliser pendant la partie,
+     * par exemple pour les déplacements des mobs.
+     * Il est initialisé à partir de la graine de la partie lors de sa préparation.
+     *
+     * @return Le générateur de nombres pseudo-aléatoires de la partie.
+     */
+    public RandomGenerator getRandom() {
+        return random;
+    }
+
+    /**
+     * Donne l'instance de {@link CellFactory} utilisée pour créer les cellules du jeu.
+     *
+     * @return L'instance de {@link CellFactory} du jeu.
+     */
+    public CellFactory getCellFactory() {
+        return cellFactory;
+    }
+
+    /**
+     * Donne la boucle faisant avancer la simulation du jeu.
+     * L'affichage doit appeler {@link GameLoop#advance(long)} à chaque image.
+     *
+     * @return La boucle de simulation du jeu.
+     */
+    public GameLoop getGameLoop() {
+        return gameLoop;
+    }
+
+    /**
+     * Donne l'index permettant de retrouver les objets mobiles du jeu selon leur
+     * position, par exemple pour savoir lesquels sont au contact du joueur.
+     *
+     * @return L'index des objets mobiles du jeu.
+     */
+    public SpatialIndex getMovableIndex() {
+        return movableIndex;
+    }
+
+    /**
+     * Donne le moteur calculant l'éclairage des cellules de la carte.
+     *
+     * @return Le moteur d'éclairage, ou {@code null} si la partie n'a pas été préparée.
+     */
+    public LightEngine getLightEngine() {
+        return light;
+    }
+
+    /**
+     * Donne le champ donnant aux mobs le chemin le plus court vers le joueur.
+     * Il est mis à jour au début de chaque pas de simulation.
+     *
+     * @return Le champ des chemins vers le joueur, ou {@code null} si la partie n'a pas
+     *         été préparée.
+     */
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    /**
+     * Donne les objets mobiles se trouvant dans une cellule de la carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Les objets mobiles dans la cellule.
+     */
+    public List<AbstractMovable> getMovablesAt(int row, int column) {
+        return movableIndex.getAt(row, column);
+    }
+
+    /**
+     * Donne la représentation du joueur.
+     * Lorsque plusieurs joueurs sont présents, il s'agit du premier d'entre eux.
+     *
+     * @return Le joueur, ou {@code null} si la partie n'a pas encore été préparée ou
+     *         si aucun joueur n'y est présent.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
     /**
      * Prépare la partie de Flatcraft avant qu'elle ne démarre.
      */
     public void prepare() {
         // TODO Préparer la partie
-        map=GameMapGenerator.generateMapWithTreesAndSlagHeaps(height,width,cellFactory,10,2);
-        terInter.initializeView(map);
+        if (unbounded) {
+            prepare(GameMapGenerator.generateUnboundedMap(height, cellFactory, 0.5, 0.1, seed));
+        } else {
+            prepare(GameMapGenerator.generateMapWithTreesAndSlagHeaps(height,width,cellFactory,10,2,seed));
+        }
+    }
+
+    /**
+     * Prépare la partie de Flatcraft sur une carte déjà générée avant qu'elle ne démarre.
+     * La carte doit avoir été créée avec l'instance de {@link CellFactory} de ce jeu.
+     *
+     * @param map La carte du jeu, sur laquelle le joueur évolue.
+     */
+    public void prepare(GameMap map) {
+        this.map = map;
+        this.random = new SplittableRandom(GameMapGenerator.deriveSeed(seed, GAMEPLAY_SALT));
+        this.fluids = new FluidSimulator(map);
+        this.light = new LightEngine(map);
+        this.flowField = new FlowField(map, LOAD_DISTANCE);
+        map.addCellListener(changes);
+        light.addLightListener(changes);
+
         // Créer le joueur
-        Image playerImage = spriteStore.createSprite("player");
-        player = new Player(this, playerImage);
         int soilHeight = map.getSoilHeight();
-        player.setRow(soilHeight);
-        player.setColumn(width / 2);
+        if (localPlayer) {
+            player = new Player(this, "player");
+            player.setRow(soilHeight);
+            player.setColumn(width / 2);
+            player.savePosition();
+            players.add(player);
+            movables.add(player);
+            movableIndex.add(player);
+        }
+        loadAround(width / 2);
+        updateLoadedArea();
         map.setAt(soilHeight, width / 2, map.getAt(5,5));
 
-        // Informer l'interface TerrariaInterface de la préparation de la partie
+        // Informer l'interface TerrariaInterface de la préparation de la partie.
+        // La vue est entièrement dessinée : les modifications passées sont inutiles.
+        changes.clear();
         terInter.initializeView(map);
+        if (player != null) {
+            terInter.addMovableObject(player);
+        }
+    }
+
+    /**
+     * Ajoute un nouveau joueur à la partie, au même point d'apparition que le joueur
+     * local.
+     * La partie doit avoir été préparée.
+     *
+     * @param spriteName Le nom du sprite représentant le joueur.
+     *
+     * @return Le joueur ajouté.
+     */
+    public Player addPlayer(String spriteName) {
+        Player newPlayer = new Player(this, spriteName);
+        newPlayer.setRow(map.getSoilHeight());
+        newPlayer.setColumn(width / 2);
+        if (player == null) {
+            player = newPlayer;
+        }
+        if (recorder != null) {
+            recorder.playerAdded(spriteName);
+        }
+        players.add(newPlayer);
+        addMovable(newPlayer);
+        return newPlayer;
+    }
+
+    /**
+     * Retire un joueur de la partie, par exemple parce qu'il l'a quittée.
+     *
+     * @param leaving Le joueur à retirer.
+     */
+    public void removePlayer(Player leaving) {
+        if (recorder != null) {
+            recorder.playerRemoved(players.indexOf(leaving));
+        }
+        removeMovable(leaving);
+    }
+
+    /**
+     * Fait réaliser une action à un joueur.
+     * Si la partie est enregistrée, l'action est ajoutée à l'enregistrement.
+     *
+     * @param actor Le joueur qui réalise l'action.
+     * @param action L'action à réaliser.
+     */
+    public void perform(Player actor, PlayerAction action) {
+        if (recorder != null) {
+            recorder.actionPerformed(players.indexOf(actor), action);
+        }
+        action.apply(this, actor);
+    }
+
+    /**
+     * Donne le joueur arrivé à un rang donné dans la partie.
+     *
+     * @param rank Le rang du joueur, le joueur local (s'il existe) étant le premier.
+     *
+     * @return Le joueur arrivé à ce rang.
+     *
+     * @throws IndexOutOfBoundsException Si aucun joueur n'est arrivé à ce rang.
+     */
+    Player getPlayer(int rank) {
+        return players.get(rank);
+    }
+
+    /**
+     * Donne la carte du jeu.
+     *
+     * @return La carte du jeu, ou {@code null} si la partie n'a pas été préparée.
+     */
+    GameMap getMap() {
+        return map;
+    }
+
+    /**
+     * Donne les objets mobiles présents dans le jeu, dans l'ordre dans lequel ils sont
+     * mis à jour.
+     *
+     * @return Les objets mobiles du jeu.
+     */
+    List<AbstractMovable> getMovables() {
+        return movables;
+    }
+
+    /**
+     * Vérifie si un joueur local a été créé lors de la préparation de la partie.
+     *
+     * @return Si la partie a un joueur local.
+     */
+    boolean hasLocalPlayer() {
+        return localPlayer;
+    }
+
+    /**
+     * Modifie l'enregistreur des actions des joueurs de la partie.
+     *
+     * @param recorder Le nouvel enregistreur, ou {@code null} pour ne plus enregistrer
+     *        la partie.
+     */
+    void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
     }
 
     /**
      * Fait se déplacer le joueur vers la gauche.
      */
     public void moveLeft() {
-        moveLeft(player);
+        perform(player, PlayerAction.MOVE_LEFT);
     }
 
     /**
@@ -122,19 +534,20 @@ public final class FlatcraftGame {
      * @param movable L'objet mobile à déplacer.
      */
     public void moveLeft(AbstractMovable movable) {
+        long start = System.nanoTime();
         int column = movable.getColumn();
-        if (((column - 1) >= 0)) {
-            // TODO Retirer l'objet mobile du jeu.
+        if (map.contains(movable.getRow(), column - 1)) {
             movable.setColumn(column - 1);
-            // TODO Rajouter l'objet mobile dans le jeu.
+            movableMoved(movable);
         }
+        MOVE_TIME.recordSince(start);
     }
 
     /**
      * Fait se déplacer le joueur vers la droite.
      */
     public void moveRight() {
-        moveRight(player);
+        perform(player, PlayerAction.MOVE_RIGHT);
     }
 
     /**
@@ -143,12 +556,49 @@ public final class FlatcraftGame {
      * @param movable L'objet mobile à déplacer.
      */
     public void moveRight(AbstractMovable movable) {
+        long start = System.nanoTime();
         int column = movable.getColumn();
-        if (((column + 1) < map.getWidth())) {
-            // TODO Retirer l'objet mobile du jeu.
+        if (map.contains(movable.getRow(), column + 1)) {
             movable.setColumn(column + 1);
-            // TODO Rajouter l'objet mobile dans le jeu.
+            movableMoved(movable);
         }
+        MOVE_TIME.recordSince(start);
+    }
+
+    /**
+     * Fait monter un objet mobile d'une cellule, si la cellule au-dessus de lui est
+     * praticable et si celle qu'il quitte le soutient (voir {@link FlowField}).
+     * La gravité est ensuite appliquée à l'objet.
+     *
+     * @param movable L'objet mobile à déplacer.
+     */
+    public void moveUp(AbstractMovable movable) {
+        long start = System.nanoTime();
+        int row = movable.getRow();
+        int column = movable.getColumn();
+        if (flowField.isPassable(row - 1, column) && flowField.isSupporting(row, column)) {
+            movable.setRow(row - 1);
+            move(movable);
+        }
+        MOVE_TIME.recordSince(start);
+    }
+
+    /**
+     * Fait descendre un objet mobile d'une cellule, si la cellule en dessous de lui est
+     * praticable.
+     * La gravité est ensuite appliquée à l'objet.
+     *
+     * @param movable L'objet mobile à déplacer.
+     */
+    public void moveDown(AbstractMovable movable) {
+        long start = System.nanoTime();
+        int row = movable.getRow();
+        int column = movable.getColumn();
+        if (flowField.isPassable(row + 1, column)) {
+            movable.setRow(row + 1);
+            move(movable);
+        }
+        MOVE_TIME.recordSince(start);
     }
 
     /**
@@ -171,33 +621,83 @@ public final class FlatcraftGame {
      * Fait creuser le joueur vers le bas.
      */
     public void digDown() {
-        Cell currentCell = getCellOf(player);
+        perform(player, PlayerAction.DIG_DOWN);
+    }
+
+    /**
+     * Fait creuser un joueur vers le bas.
+     *
+     * @param digger Le joueur qui creuse.
+     */
+    public void digDown(Player digger) {
+        long start = System.nanoTime();
+        Cell currentCell = getCellOf(digger);
         if ((currentCell.getRow() + 1) < map.getHeight()) {
-            map.getAt(currentCell.getRow() + 1, currentCell.getColumn()).dig(player);
-            move(player);
+            map.getAt(currentCell.getRow() + 1, currentCell.getColumn()).dig(digger);
+            move(digger);
         }
+        DIG_TIME.recordSince(start);
+        flushChanges();
     }
 
     /**
      * Fait creuser le joueur vers la gauche.
      */
     public void digLeft() {
-        Cell currentCell = getCellOf(player);
-        if ((currentCell.getColumn() - 1) > 0) {
-            map.getAt(currentCell.getRow(), currentCell.getColumn() - 1).dig(player);
-            move(player);
+        perform(player, PlayerAction.DIG_LEFT);
+    }
+
+    /**
+     * Fait creuser un joueur vers la gauche.
+     *
+     * @param digger Le joueur qui creuse.
+     */
+    public void digLeft(Player digger) {
+        long start = System.nanoTime();
+        Cell currentCell = getCellOf(digger);
+        if (map.contains(currentCell.getRow(), currentCell.getColumn() - 1)) {
+            map.getAt(currentCell.getRow(), currentCell.getColumn() - 1).dig(digger);
+            move(digger);
         }
+        DIG_TIME.recordSince(start);
+        flushChanges();
     }
 
     /**
      * Fait creuser le joueur vers la droite.
      */
     public void digRight() {
-        Cell currentCell = getCellOf(player);
-        if ((currentCell.getColumn() + 1) < map.getWidth()) {
-            map.getAt(currentCell.getRow(), currentCell.getColumn() + 1).dig(player);
-            move(player);
+        perform(player, PlayerAction.DIG_RIGHT);
+    }
+
+    /**
+     * Fait creuser un joueur vers la droite.
+     *
+     * @param digger Le joueur qui creuse.
+     */
+    public void digRight(Player digger) {
+        long start = System.nanoTime();
+        Cell currentCell = getCellOf(digger);
+        if (map.contains(currentCell.getRow(), currentCell.getColumn() + 1)) {
+            map.getAt(currentCell.getRow(), currentCell.getColumn() + 1).dig(digger);
+            move(digger);
         }
+        DIG_TIME.recordSince(start);
+        flushChanges();
+    }
+
+    /**
+     * Ajoute un objet mobile au jeu.
+     * L'objet est mis à jour à chaque pas de simulation du jeu.
+     *
+     * @param movable L'objet mobile à ajouter, déjà placé sur la carte.
+     */
+    public void addMovable(AbstractMovable movable) {
+        movable.savePosition();
+        movables.add(movable);
+        movableIndex.add(movable);
+        terInter.addMovableObject(movable);
+        movableMoved(movable);
     }
 
     /**
@@ -206,7 +706,134 @@ public final class FlatcraftGame {
      * @param movable L'objet mobile à retirer.
      */
     public void removeMovable(AbstractMovable movable) {
-        // TODO Retirer l'objet mobile du jeu.
+        movables.remove(movable);
+        movableIndex.remove(movable);
+        terInter.removeMovableObject(movable);
+        if (movable == player) {
+            // Les mobs se dirigent désormais vers un autre joueur, s'il en reste un.
+            player = null;
+            for (AbstractMovable other : movables) {
+                if (other instanceof Player) {
+                    player = (Player) other;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Réalise un pas de simulation du jeu, en mettant à jour tous les objets mobiles.
+     * Cette méthode est appelée par la boucle de simulation du jeu.
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        long tick = gameLoop.getTickCount();
+        if (player != null) {
+            flowField.update(player.getRow(), player.getColumn());
+        }
+        FLOW_FIELD_TIME.recordSince(start);
+        List<AbstractMovable> current = List.copyOf(movables);
+        for (AbstractMovable movable : current) {
+            movable.savePosition();
+        }
+
+        ticking = true;
+        try {
+            for (AbstractMovable movable : current) {
+                movable.tick(tick);
+            }
+
+        } finally {
+            ticking = false;
+        }
+
+        // La carte n'est mise à jour qu'une fois tous les objets déplacés.
+        if (movedDuringTick) {
+            movedDuringTick = false;
+            updateLoadedArea();
+        }
+        long fluidsStart = System.nanoTime();
+        fluids.tick();
+        FLUIDS_TIME.recordSince(fluidsStart);
+        flushChanges();
+        TICK_TIME.recordSince(start);
+    }
+
+    /**
+     * Transmet à l'affichage, en un seul lot, les cellules modifiées depuis la dernière
+     * transmission.
+     */
+    private void flushChanges() {
+        if (changes.size() > 0) {
+            CHANGED_CELLS.add(changes.size());
+            terInter.cellsChanged(changes.flush());
+        }
+    }
+
+    /**
+     * Indique qu'un objet mobile s'est déplacé horizontalement.
+     * Seuls les déplacements des joueurs modifient la partie chargée de la carte.
+     * Pendant un pas de simulation, la mise à jour de cette partie est repoussée à la fin
+     * du pas.
+     *
+     * @param movable L'objet mobile qui s'est déplacé.
+     */
+    private void movableMoved(AbstractMovable movable) {
+        if (!(movable instanceof Player)) {
+            return;
+        }
+
+        if (ticking) {
+            movedDuringTick = true;
+
+        } else {
+            updateLoadedArea();
+        }
+    }
+
+    /**
+     * Charge la partie de la carte proche des joueurs, et compacte (ou décharge, si la
+     * carte est infinie) celle qui en est éloignée.
+     * Les mobs ne sont pas pris en compte : ceux qui s'éloignent des joueurs ne
+     * maintiennent pas la carte chargée autour d'eux.
+     */
+    private void updateLoadedArea() {
+        int[] columns = new int[players.size()];
+        int count = 0;
+        for (AbstractMovable movable : movables) {
+            if (movable instanceof Player) {
+                if (count == columns.length) {
+                    columns = Arrays.copyOf(columns, count + 1);
+                }
+                columns[count] = movable.getColumn();
+                loadAround(columns[count]);
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return;
+        }
+        columns = Arrays.copyOf(columns, count);
+
+        if (map.isUnbounded()) {
+            map.unloadFarFrom(columns, UNLOAD_DISTANCE);
+            light.forgetUnloaded();
+        }
+        map.packFarFrom(columns, PACK_DISTANCE);
+    }
+
+    /**
+     * Charge (et éclaire) la partie de la carte proche d'une colonne.
+     * Sur une carte finie, cette partie est limitée aux colonnes de la carte, et seules
+     * les colonnes qui ne sont pas chargées dès la création de la carte (générées ou lues
+     * à la demande) sont chargées : la carte n'est donc jamais chargée en entier.
+     *
+     * @param column La colonne autour de laquelle charger la carte.
+     */
+    private void loadAround(int column) {
+        map.ensureLoaded(column - LOAD_DISTANCE, column + LOAD_DISTANCE);
+        light.ensureLit(column - LOAD_DISTANCE, column + LOAD_DISTANCE);
     }
 
     /**
@@ -0,0 +1,476 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link FlowField} donne, pour chaque cellule d'une {@link GameMap} proche
+ * d'une cible (en pratique, le joueur), la direction à suivre pour rejoindre cette cible
+ * par le plus court chemin.
+ *
+ * Le champ est une carte des distances à la cible, calculée par un parcours en largeur
+ * des cellules praticables situées à au plus un certain nombre de colonnes de la cible.
+ * Il est partagé par tous les mobs : chacun d'eux trouve son prochain pas en temps
+ * constant, quel que soit le nombre de mobs.
+ * Un mob ne vole pas : il peut descendre ou aller sur le côté, mais ne peut monter que
+ * si la cellule qu'il quitte le soutient (c'est-à-dire s'il nage dans un fluide).
+ *
+ * Le champ est informé des modifications de la carte.
+ * Une cellule qui devient praticable (parce qu'elle a été creusée, par exemple) ne fait
+ * que raccourcir les chemins : les distances sont alors corrigées autour d'elle.
+ * Une cellule qui devient impraticable demande en revanche un nouveau parcours complet,
+ * qui n'est réalisé qu'une seule fois, lors de la mise à jour suivante.
+ *
+ * Lorsque la cible fait un pas qu'un mob pourrait faire (ou tombe), le champ est
+ * ré-enraciné sans nouveau parcours complet : toutes les distances augmentent de la
+ * longueur de ce pas (ce qui ne demande que de modifier un décalage commun), puis les
+ * distances sont corrigées à partir de la nouvelle position de la cible.
+ * Les colonnes sur lesquelles les distances sont calculées ne sont recentrées sur la
+ * cible, par un parcours complet, que lorsque celle-ci s'est trop éloignée de leur
+ * centre.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class FlowField implements CellListener {
+
+    /**
+     * La direction indiquant qu'il n'y a pas de pas à faire : la cellule est la cible, ou
+     * la cible n'est pas accessible depuis la cellule.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * La direction indiquant de monter d'une cellule.
+     */
+    public static final int UP = 1;
+
+    /**
+     * La direction indiquant de descendre d'une cellule.
+     */
+    public static final int DOWN = 2;
+
+    /**
+     * La direction indiquant d'aller à gauche d'une cellule.
+     */
+    public static final int LEFT = 3;
+
+    /**
+     * La direction indiquant d'aller à droite d'une cellule.
+     */
+    public static final int RIGHT = 4;
+
+    /**
+     * La distance des cellules depuis lesquelles la cible n'est pas accessible.
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Le rapport entre le nombre de colonnes de part et d'autre de la cible sur lesquelles
+     * les distances sont calculées, et la distance au centre de ces colonnes au-delà de
+     * laquelle elles sont recentrées sur la cible.
+     */
+    private static final int RECENTER_DIVISOR = 4;
+
+    /**
+     * La carte sur laquelle les chemins sont calculés.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre donnant la nature des blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * Le nombre de colonnes de part et d'autre de la cible sur lesquelles les distances
+     * sont calculées.
+     */
+    private final int radius;
+
+    /**
+     * Le nombre de colonnes sur lesquelles les distances sont calculées.
+     */
+    private final int width;
+
+    /**
+     * Les distances à la cible des cellules proches de la cible, rangées ligne par
+     * ligne, et diminuées de {@link #offset}.
+     */
+    private final int[] distances;
+
+    /**
+     * Le décalage à ajouter aux valeurs du tableau des distances pour obtenir les
+     * distances à la cible.
+     */
+    private int offset;
+
+    /**
+     * Les cellules dont les distances doivent être propagées, identifiées par leur
+     * position dans le tableau des distances.
+     */
+    private final IntQueue queue = new IntQueue();
+
+    /**
+     * La première colonne de la carte sur laquelle les distances sont calculées.
+     */
+    private int originColumn;
+
+    /**
+     * La ligne de la cible.
+     */
+    private int targetRow;
+
+    /**
+     * La colonne de la cible.
+     */
+    private int targetColumn;
+
+    /**
+     * Si les distances doivent être entièrement recalculées lors de la prochaine mise à
+     * jour.
+     */
+    private boolean dirty = true;
+
+    /**
+     * Le nombre de parcours complets réalisés jusqu'à présent.
+     */
+    private int computations;
+
+    /**
+     * Crée une nouvelle instance de FlowField, et l'inscrit auprès de la carte pour être
+     * informé de ses modifications.
+     * Aucun chemin n'est connu tant que {@link #update(int, int)} n'a pas été appelée.
+     *
+     * @param map La carte sur laquelle les chemins sont calculés.
+     * @param radius Le nombre de colonnes de part et d'autre de la cible sur lesquelles
+     *        les chemins sont calculés.
+     */
+    public FlowField(GameMap map, int radius) {
+        this.map = map;
+        this.registry = map.getRegistry();
+        this.radius = radius;
+        this.width = (2 * radius) + 1;
+        this.distances = new int[map.getHeight() * width];
+        Arrays.fill(distances, UNREACHABLE);
+        map.addCellListener(this);
+    }
+
+    /**
+     * Donne le nombre de parcours complets réalisés depuis la création de ce champ.
+     *
+     * @return Le nombre de parcours complets.
+     */
+    public int getComputationCount() {
+        return computations;
+    }
+
+    /**
+     * Met à jour ce champ pour une cible donnée.
+     * Les distances ne sont entièrement recalculées que si un chemin a pu être coupé
+     * depuis la dernière mise à jour, ou si la cible s'est déplacée autrement qu'en
+     * faisant un pas (ou en tombant) près du centre des colonnes calculées.
+     *
+     * @param row La ligne de la cible.
+     * @param column La colonne de la cible.
+     */
+    public void update(int row, int column) {
+        if (!dirty && (row == targetRow) && (column == targetColumn)) {
+            return;
+        }
+
+        int length = dirty ? -1 : pathLengthFromTarget(row, column);
+        int center = originColumn + radius;
+        if ((length > 0) && (Math.abs(column - center) <= (radius / RECENTER_DIVISOR))) {
+            reroot(row, column, length);
+
+        } else {
+            targetRow = row;
+            targetColumn = column;
+            compute();
+        }
+    }
+
+    /**
+     * Donne la distance (en nombre de pas) d'une cellule à la cible.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La distance à la cible, ou {@code -1} si la cible n'est pas accessible
+     *         depuis la cellule.
+     */
+    public int getDistance(int row, int column) {
+        int distance = distanceAt(row, column);
+        return (distance == UNREACHABLE) ? -1 : (distance + offset);
+    }
+
+    /**
+     * Donne la direction à suivre depuis une cellule pour se rapprocher de la cible.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La direction à suivre ({@link #UP}, {@link #DOWN}, {@link #LEFT} ou
+     *         {@link #RIGHT}), ou {@link #NONE} si la cellule est la cible ou si la cible
+     *         n'en est pas accessible.
+     */
+    public int nextStep(int row, int column) {
+        int distance = distanceAt(row, column);
+        if ((distance == UNREACHABLE) || ((distance + offset) == 0)) {
+            return NONE;
+        }
+
+        if (distanceAt(row, column - 1) < distance) {
+            return LEFT;
+        }
+
+        if (distanceAt(row, column + 1) < distance) {
+            return RIGHT;
+        }
+
+        if (distanceAt(row + 1, column) < distance) {
+            return DOWN;
+        }
+
+        if ((distanceAt(row - 1, column) < distance) && isSupporting(row, column)) {
+            return UP;
+        }
+        return NONE;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.CellListener#cellChanged(int, int)
+     */
+    @Override
+    public void cellChanged(int row, int column) {
+        if (dirty || !inWindow(row, column)) {
+            return;
+        }
+
+        int index = indexOf(row, column);
+        if (!isPassable(row, column) || (!isSupporting(row, column) && (distances[index] != UNREACHABLE))) {
+            // Un chemin a pu être coupé, y compris par un fluide qui permettait de monter
+            // et qui s'est écoulé : les distances peuvent augmenter n'importe où.
+            dirty = distances[index] != UNREACHABLE;
+            return;
+        }
+
+        // La cellule ne peut que raccourcir les chemins passant par elle.
+        int best = isSupporting(row, column) ? distanceAt(row - 1, column) : UNREACHABLE;
+        best = Math.min(best, distanceAt(row + 1, column));
+        best = Math.min(best, Math.min(distanceAt(row, column - 1), distanceAt(row, column + 1)));
+        if ((best != UNREACHABLE) && ((best + 1) < distances[index])) {
+            distances[index] = best + 1;
+            queue.add(index);
+            propagate();
+        }
+    }
+
+    /**
+     * Recalcule toutes les distances à la cible, par un parcours en largeur depuis
+     * celle-ci.
+     */
+    private void compute() {
+        dirty = false;
+        computations++;
+        originColumn = targetColumn - radius;
+        offset = 0;
+        Arrays.fill(distances, UNREACHABLE);
+        queue.clear();
+        if (inWindow(targetRow, targetColumn)) {
+            distances[indexOf(targetRow, targetColumn)] = 0;
+            queue.add(indexOf(targetRow, targetColumn));
+            propagate();
+        }
+    }
+
+    /**
+     * Calcule la longueur du chemin qu'un mob suivrait depuis la cible pour rejoindre une
+     * nouvelle position, lorsque celle-ci est voisine de la cible ou se trouve sous elle
+     * (la cible est alors tombée).
+     *
+     * @param row La ligne de la nouvelle position.
+     * @param column La colonne de la nouvelle position.
+     *
+     * @return La longueur du chemin, ou {@code -1} si la nouvelle position n'est pas
+     *         ainsi accessible depuis la cible.
+     */
+    private int pathLengthFromTarget(int row, int column) {
+        if (!inWindow(targetRow, targetColumn) || !isPassable(targetRow, targetColumn)
+                || !inWindow(row, column) || !isPassable(row, column)) {
+            return -1;
+        }
+
+        if (row == targetRow) {
+            return (Math.abs(column - targetColumn) == 1) ? 1 : -1;
+        }
+
+        if (column != targetColumn) {
+            return -1;
+        }
+
+        if (row == (targetRow - 1)) {
+            return isSupporting(targetRow, targetColumn) ? 1 : -1;
+        }
+
+        for (int i = targetRow + 1; i < row; i++) {
+            if (!isPassable(i, column)) {
+                return -1;
+            }
+        }
+        return row - targetRow;
+    }
+
+    /**
+     * Déplace la cible sans parcours complet.
+     * Les anciennes distances, augmentées de la longueur du chemin de l'ancienne cible à
+     * la nouvelle, correspondent toujours à des chemins menant à la nouvelle cible : les
+     * corriger à partir de celle-ci suffit à obtenir les plus courts chemins.
+     *
+     * @param row La ligne de la nouvelle cible.
+     * @param column La colonne de la nouvelle cible.
+     * @param length La longueur du chemin de l'ancienne cible à la nouvelle.
+     */
+    private void reroot(int row, int column, int length) {
+        targetRow = row;
+        targetColumn = column;
+        offset += length;
+        relax(row, column, -offset);
+        propagate();
+    }
+
+    /**
+     * Propage les distances des cellules de la file à leurs voisines praticables, tant
+     * qu'elles les raccourcissent.
+     */
+    private void propagate() {
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            int row = index / width;
+            int column = originColumn + (index % width);
+            int next = distances[index] + 1;
+            relax(row - 1, column, next);
+            if (isSupporting(row + 1, column)) {
+                // Un mob ne peut monter dans cette cellule que depuis une cellule qui le
+                // soutient.
+                relax(row + 1, column, next);
+            }
+            relax(row, column - 1, next);
+            relax(row, column + 1, next);
+        }
+    }
+
+    /**
+     * Donne une distance à une cellule si elle est praticable et si cette distance est
+     * plus courte que celle qu'elle avait, et l'ajoute alors à la file.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param distance La nouvelle distance de la cellule.
+     */
+    private void relax(int row, int column, int distance) {
+        if (!inWindow(row, column)) {
+            return;
+        }
+
+        int index = indexOf(row, column);
+        if ((distance < distances[index]) && isPassable(row, column)) {
+            distances[index] = distance;
+            queue.add(index);
+        }
+    }
+
+    /**
+     * Vérifie si un objet mobile peut se trouver dans une cellule.
+     * C'est le cas des cellules qui ne contiennent pas de ressource solide.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Si la cellule existe et est praticable.
+     */
+    boolean isPassable(int row, int column) {
+        if (!map.contains(row, column)) {
+            return false;
+        }
+        short block = map.getBlockAt(row, column);
+        return !registry.isResource(block) || registry.isFluid(block);
+    }
+
+    /**
+     * Vérifie si une cellule soutient un objet mobile qui se trouve juste au-dessus
+     * d'elle, c'est-à-dire si elle contient une ressource solide ou un fluide.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Si la cellule existe et soutient un objet mobile.
+     */
+    boolean isSupporting(int row, int column) {
+        if (!map.contains(row, column)) {
+            return false;
+        }
+        short block = map.getBlockAt(row, column);
+        return registry.isResource(block) || registry.isFluid(block);
+    }
+
+    /**
+     * Donne la distance à la cible d'une cellule.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La distance à la cible, ou {@link #UNREACHABLE} si elle n'est pas connue.
+     */
+    private int distanceAt(int row, int column) {
+        if (!inWindow(row, column)) {
+            return UNREACHABLE;
+        }
+        return distances[indexOf(row, column)];
+    }
+
+    /**
+     * Vérifie si une cellule existe et fait partie des colonnes sur lesquelles les
+     * distances sont calculées.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Si la cellule fait partie des colonnes calculées.
+     */
+    private boolean inWindow(int row, int column) {
+        return (column >= originColumn) && (column < (originColumn + width))
+                && map.contains(row, column);
+    }
+
+    /**
+     * Calcule la position d'une cellule dans le tableau des distances.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La position de la cellule dans le tableau.
+     */
+    private int indexOf(int row, int column) {
+        return (row * width) + (column - originColumn);
+    }
+
+}
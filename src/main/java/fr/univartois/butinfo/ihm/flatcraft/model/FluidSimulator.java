@@ -0,0 +1,240 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * La classe {@link FluidSimulator} fait s'écouler les fluides (comme l'eau) d'une
+ * {@link GameMap}, à la manière d'un automate cellulaire.
+ *
+ * À chaque pas de simulation, un fluide tombe dans l'air situé sous lui ou, s'il repose
+ * sur un bloc, glisse d'une cellule vers le vide le plus proche (à au plus
+ * {@value #FLOW_DISTANCE} cellules sur le côté).
+ * Un fluide sans vide à proximité reste immobile.
+ * Seules les cellules « actives », c'est-à-dire voisines d'une cellule modifiée, sont
+ * examinées : le simulateur est informé des modifications de la carte, et les régions où
+ * rien ne change ne coûtent rien.
+ * Les positions des cellules actives sont rangées dans une file d'entiers, sans objet
+ * intermédiaire, et un ensemble permet de ne pas y ranger deux fois la même cellule.
+ * Un fluide qui s'écoule prend la place de l'air dans lequel il tombe, et cet air prend
+ * la place du fluide : le ciel reste ainsi du ciel, et une grotte reste vide.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class FluidSimulator implements CellListener {
+
+    /**
+     * Le nombre maximal de cellules examinées lors d'un pas de simulation.
+     * Les cellules restantes sont examinées lors des pas suivants.
+     */
+    private static final int MAX_UPDATES_PER_TICK = 4096;
+
+    /**
+     * La distance (en nombre de cellules) jusqu'à laquelle un fluide cherche sur le côté
+     * un vide dans lequel tomber.
+     */
+    private static final int FLOW_DISTANCE = 4;
+
+    /**
+     * La carte sur laquelle les fluides s'écoulent.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre donnant la nature des blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * Les positions des cellules actives, rangées par paires (ligne puis colonne).
+     */
+    private final IntQueue active = new IntQueue();
+
+    /**
+     * Les positions (voir {@link #key(int, int)}) des cellules rangées dans la file des
+     * cellules actives.
+     */
+    private final LongSet activeCells = new LongSet();
+
+    /**
+     * Crée une nouvelle instance de FluidSimulator, et l'inscrit auprès de la carte
+     * pour être informé de ses modifications.
+     *
+     * @param map La carte sur laquelle les fluides s'écoulent.
+     */
+    public FluidSimulator(GameMap map) {
+        this.map = map;
+        this.registry = map.getRegistry();
+        map.addCellListener(this);
+    }
+
+    /**
+     * Donne le nombre de cellules actives, qui seront examinées lors des prochains pas
+     * de simulation.
+     *
+     * @return Le nombre de cellules actives.
+     */
+    public int getActiveCellCount() {
+        return active.size() / 2;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.CellListener#cellChanged(int, int)
+     */
+    @Override
+    public void cellChanged(int row, int column) {
+        // Les fluides proches peuvent tomber dans cette cellule, ou la traverser pour
+        // atteindre un vide.
+        for (int i = -FLOW_DISTANCE; i <= FLOW_DISTANCE; i++) {
+            activate(row - 1, column + i);
+            activate(row, column + i);
+        }
+    }
+
+    /**
+     * Réalise un pas de simulation, en examinant les cellules actives.
+     * Les cellules activées pendant ce pas ne sont examinées qu'au pas suivant.
+     *
+     * @return Le nombre de cellules examinées.
+     */
+    public int tick() {
+        int updates = Math.min(getActiveCellCount(), MAX_UPDATES_PER_TICK);
+        for (int i = 0; i < updates; i++) {
+            int row = active.poll();
+            int column = active.poll();
+            activeCells.remove(key(row, column));
+            update(row, column);
+        }
+        return updates;
+    }
+
+    /**
+     * Fait s'écouler le fluide se trouvant dans une cellule, s'il y en a un.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void update(int row, int column) {
+        if (!map.contains(row, column)) {
+            return;
+        }
+
+        short fluid = map.getBlockAt(row, column);
+        if (!registry.isFluid(fluid)) {
+            return;
+        }
+
+        if (isAir(row + 1, column)) {
+            flow(fluid, row, column, row + 1, column);
+            return;
+        }
+
+        int direction = findDrop(row, column);
+        if (direction != 0) {
+            flow(fluid, row, column, row, column + direction);
+        }
+    }
+
+    /**
+     * Cherche sur le côté d'une cellule le vide le plus proche dans lequel un fluide peut
+     * tomber, en ne traversant que de l'air.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return {@code -1} si le vide le plus proche est à gauche, {@code 1} s'il est à
+     *         droite, et {@code 0} s'il n'y a pas de vide à proximité.
+     */
+    private int findDrop(int row, int column) {
+        boolean left = true;
+        boolean right = true;
+        for (int i = 1; (i <= FLOW_DISTANCE) && (left || right); i++) {
+            left = left && isAir(row, column - i);
+            if (left && isAir(row + 1, column - i)) {
+                return -1;
+            }
+
+            right = right && isAir(row, column + i);
+            if (right && isAir(row + 1, column + i)) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Déplace un fluide d'une cellule à une autre, en échangeant le fluide avec l'air
+     * qu'il remplace.
+     * Les modifications de la carte activent les cellules voisines des deux cellules.
+     *
+     * @param fluid L'identifiant du fluide.
+     * @param fromRow La ligne de la cellule où se trouve le fluide.
+     * @param fromColumn La colonne de la cellule où se trouve le fluide.
+     * @param toRow La ligne de la cellule où le fluide s'écoule, qui contient de l'air.
+     * @param toColumn La colonne de la cellule où le fluide s'écoule.
+     */
+    private void flow(short fluid, int fromRow, int fromColumn, int toRow, int toColumn) {
+        short air = map.getBlockAt(toRow, toColumn);
+        map.setBlockAt(toRow, toColumn, fluid);
+        map.setBlockAt(fromRow, fromColumn, air);
+    }
+
+    /**
+     * Vérifie si une cellule de la carte contient de l'air.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Si la cellule existe et contient de l'air.
+     */
+    private boolean isAir(int row, int column) {
+        return map.contains(row, column) && registry.isAir(map.getBlockAt(row, column));
+    }
+
+    /**
+     * Rend une cellule active, afin qu'elle soit examinée lors d'un prochain pas de
+     * simulation.
+     * Seules les cellules contenant un fluide ont besoin d'être examinées : un fluide
+     * qui arrive dans une cellule la modifie, ce qui l'active.
+     * Une cellule déjà active n'est pas ajoutée une seconde fois à la file.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void activate(int row, int column) {
+        if (map.contains(row, column) && registry.isFluid(map.getBlockAt(row, column))
+                && activeCells.add(key(row, column))) {
+            active.add(row);
+            active.add(column);
+        }
+    }
+
+    /**
+     * Calcule la clé identifiant une cellule dans l'ensemble des cellules actives.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La clé de la cellule.
+     */
+    private static long key(int row, int column) {
+        return ((long) row << Integer.SIZE) | (column & 0xffffffffL);
+    }
+
+}
@@ -0,0 +1,194 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * La classe {@link GameLoop} fait avancer la simulation du jeu par pas de temps fixes,
+ * indépendamment de la fréquence à laquelle le jeu est affiché.
+ *
+ * À chaque image, le temps écoulé depuis l'image précédente est ajouté à un
+ * accumulateur, qui est consommé par autant de pas de simulation que nécessaire.
+ * Le temps restant dans l'accumulateur permet d'interpoler la position des objets
+ * entre les deux derniers pas de simulation.
+ * Cette classe ne dépend pas de JavaFX : c'est à l'affichage d'appeler
+ * {@link #advance(long)} à chaque image.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class GameLoop {
+
+    /**
+     * Le nombre de pas de simulation par seconde utilisé par défaut.
+     */
+    public static final int DEFAULT_TICK_RATE = 20;
+
+    /**
+     * Le nombre maximal de pas de simulation réalisés pour une même image.
+     * Si la simulation prend plus de retard, ce retard est abandonné : le jeu ralentit
+     * plutôt que de ne plus pouvoir s'afficher.
+     */
+    private static final int MAX_TICKS_PER_FRAME = 10;
+
+    /**
+     * Le nombre de nanosecondes dans une seconde.
+     */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * L'action réalisant un pas de simulation.
+     */
+    private final Runnable step;
+
+    /**
+     * Le nombre de pas de simulation par seconde.
+     */
+    private int tickRate;
+
+    /**
+     * La durée (en nanosecondes) d'un pas de simulation.
+     */
+    private long tickDuration;
+
+    /**
+     * Si cette boucle a déjà reçu l'instant d'une image.
+     */
+    private boolean started;
+
+    /**
+     * L'instant (en nanosecondes) de la dernière image.
+     */
+    private long lastTime;
+
+    /**
+     * Le temps (en nanosecondes) écoulé et pas encore simulé.
+     */
+    private long accumulator;
+
+    /**
+     * Le nombre de pas de simulation réalisés depuis la création de cette boucle.
+     */
+    private long tickCount;
+
+    /**
+     * Crée une nouvelle instance de GameLoop, réalisant {@value #DEFAULT_TICK_RATE} pas
+     * de simulation par seconde.
+     *
+     * @param step L'action réalisant un pas de simulation.
+     */
+    public GameLoop(Runnable step) {
+        this(step, DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Crée une nouvelle instance de GameLoop.
+     *
+     * @param step L'action réalisant un pas de simulation.
+     * @param tickRate Le nombre de pas de simulation par seconde.
+     */
+    public GameLoop(Runnable step, int tickRate) {
+        this.step = step;
+        setTickRate(tickRate);
+    }
+
+    /**
+     * Donne le nombre de pas de simulation par seconde.
+     *
+     * @return Le nombre de pas de simulation par seconde.
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Modifie le nombre de pas de simulation par seconde.
+     *
+     * @param tickRate Le nouveau nombre de pas de simulation par seconde.
+     *
+     * @throws IllegalArgumentException Si le nombre donné n'est pas strictement positif.
+     */
+    public void setTickRate(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Incorrect tick rate!");
+        }
+        this.tickRate = tickRate;
+        this.tickDuration = NANOS_PER_SECOND / tickRate;
+        this.accumulator = Math.min(accumulator, tickDuration - 1);
+    }
+
+    /**
+     * Donne le nombre de pas de simulation réalisés depuis la création de cette boucle.
+     *
+     * @return Le nombre de pas de simulation réalisés.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Oublie le temps écoulé, par exemple après une pause.
+     * Le prochain appel à {@link #advance(long)} ne réalise alors aucun pas de simulation.
+     */
+    public void reset() {
+        started = false;
+        accumulator = 0;
+    }
+
+    /**
+     * Réalise immédiatement un pas de simulation, sans tenir compte du temps écoulé.
+     * Cela permet de faire avancer une partie aussi vite que possible, par exemple pour
+     * en rejouer un enregistrement.
+     */
+    public void step() {
+        step.run();
+        tickCount++;
+    }
+
+    /**
+     * Réalise les pas de simulation correspondant au temps écoulé depuis l'image
+     * précédente.
+     *
+     * @param now L'instant (en nanosecondes) de l'image courante.
+     *
+     * @return La fraction du pas de simulation suivant déjà écoulée, comprise entre
+     *         {@code 0} (inclus) et {@code 1} (exclus), qui permet d'interpoler la
+     *         position des objets.
+     */
+    public double advance(long now) {
+        if (!started) {
+            started = true;
+            lastTime = now;
+            return 0;
+        }
+
+        accumulator += Math.max(0, now - lastTime);
+        lastTime = now;
+
+        for (int ticks = 0; accumulator >= tickDuration; ticks++) {
+            if (ticks == MAX_TICKS_PER_FRAME) {
+                accumulator %= tickDuration;
+                break;
+            }
+
+            step.run();
+            tickCount++;
+            accumulator -= tickDuration;
+        }
+        return (double) accumulator / tickDuration;
+    }
+
+}
@@ -14,9 +14,28 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
 /**
  * La classe {@link GameMap} représente une carte de jeu pour Flatcraft.
- * Elle est composée de cellules regroupées dans un tableau à deux dimensions.
+ * Elle est composée de cellules regroupées en {@link Chunk} de taille fixe, qui ne sont
+ * alloués qu'au moment où l'une de leurs cellules est modifiée.
+ * Chaque cellule est stockée sous la forme de l'identifiant de son bloc dans le
+ * {@link BlockRegistry} de la carte : les {@link Cell} ne sont que des vues créées à la
+ * demande sur ces identifiants.
+ *
+ * Une carte peut aussi être infinie horizontalement.
+ * Ses colonnes de chunks sont alors générées à la demande par un
+ * {@link ChunkColumnGenerator}, et peuvent être déchargées lorsqu'elles ne sont plus
+ * utilisées.
+ * Une carte bornée peut de la même manière charger ses colonnes à la demande, par
+ * exemple depuis un {@link WorldStorage}.
  *
  * @author Daniel Le Berre
  * @author Romain Wallon
@@ -26,9 +45,59 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
 public final class GameMap {
 
     /**
-     * Les cellules composant cette carte.
+     * La taille (en nombre de cellules) du côté des chunks composant cette carte.
+     */
+    public static final int CHUNK_SIZE = Chunk.SIZE;
+
+    /**
+     * La valeur indiquant qu'aucune colonne de chunks n'est mémorisée dans le cache
+     * d'accès.
+     */
+    private static final int NO_COLUMN = Integer.MIN_VALUE;
+
+    /**
+     * Les colonnes de chunks d'une carte bornée, rangées de gauche à droite.
+     * Une colonne vaut {@code null} tant qu'elle n'a pas été chargée, et un chunk vaut
+     * {@code null} tant qu'aucune de ses cellules n'a été modifiée.
+     * Si la carte est infinie, la valeur de cet attribut est {@code null}.
+     */
+    private final Chunk[][] chunkColumns;
+
+    /**
+     * Les colonnes de chunks actuellement chargées d'une carte infinie, indexées par leur
+     * position.
+     * Si la carte est bornée, la valeur de cet attribut est {@code null}.
+     */
+    private final Map<Integer, Chunk[]> loadedColumns;
+
+    /**
+     * Le générateur utilisé pour remplir les colonnes de chunks au moment où elles sont
+     * chargées.
+     * Si la valeur de cet attribut est {@code null}, la carte est bornée et toutes ses
+     * colonnes sont chargées dès sa création.
+     */
+    private final ChunkColumnGenerator generator;
+
+    /**
+     * La position de la dernière colonne de chunks utilisée sur une carte infinie.
+     */
+    private int lastColumnIndex = NO_COLUMN;
+
+    /**
+     * La dernière colonne de chunks utilisée sur une carte infinie.
      */
-    private Cell[][] cells;
+    private Chunk[] lastColumn;
+
+    /**
+     * Le nombre de chunks dans une colonne de chunks de cette carte.
+     */
+    private final int chunkRows;
+
+    /**
+     * Le registre donnant la signification des identifiants de blocs stockés sur cette
+     * carte.
+     */
+    private final BlockRegistry registry;
 
     /**
      * La hauteur de cette carte, en nombre de cellules.
@@ -45,6 +114,25 @@ public final class GameMap {
      */
     private final int soilHeight;
 
+    /**
+     * Les objets informés des modifications apportées aux cellules de cette carte.
+     */
+    private final List<CellListener> listeners = new ArrayList<>();
+
+    /**
+     * L'époque actuelle de cette carte, qui augmente à chaque fois qu'une
+     * {@link GameMapSnapshot} est prise.
+     * Les chunks créés lors d'une époque antérieure peuvent être partagés avec une
+     * snapshot : ils sont copiés avant d'être modifiés.
+     */
+    private int epoch;
+
+    /**
+     * Si une colonne de chunks est en cours de génération, auquel cas les modifications
+     * de ses cellules ne sont pas signalées.
+     */
+    private boolean generating;
+
     /**
      * Crée une nouvelle instance de GameMap.
      *
@@ -53,26 +141,77 @@ public final class GameMap {
      * @param soilHeight La hauteur à laquelle se situe la surface du sol.
      */
     public GameMap(int height, int width, int soilHeight) {
+        this(height, width, soilHeight, new BlockRegistry());
+    }
+
+    /**
+     * Crée une nouvelle instance de GameMap.
+     *
+     * @param height La hauteur de la carte, en nombre de cellules.
+     * @param width La largeur de la carte, en nombre de cellules.
+     * @param soilHeight La hauteur à laquelle se situe la surface du sol.
+     * @param registry Le registre donnant la signification des identifiants de blocs.
+     */
+    public GameMap(int height, int width, int soilHeight, BlockRegistry registry) {
+        this(height, width, soilHeight, registry, null);
+    }
+
+    /**
+     * Crée une nouvelle instance de GameMap, dont les colonnes de chunks sont chargées
+     * au moment où elles sont utilisées pour la première fois.
+     *
+     * @param height La hauteur de la carte, en nombre de cellules.
+     * @param width La largeur de la carte, en nombre de cellules.
+     * @param soilHeight La hauteur à laquelle se situe la surface du sol.
+     * @param registry Le registre donnant la signification des identifiants de blocs.
+     * @param generator Le générateur utilisé pour remplir les colonnes de chunks, ou
+     *        {@code null} pour que toutes les colonnes soient chargées (vides) dès la
+     *        création de la carte.
+     */
+    public GameMap(int height, int width, int soilHeight, BlockRegistry registry,
+            ChunkColumnGenerator generator) {
         if ((width <= 0) || (height <= 0)) {
             throw new IllegalArgumentException("Incorrect map dimension!");
         }
 
-        this.cells = new Cell[height][width];
         this.height = height;
         this.width = width;
         this.soilHeight = soilHeight;
-        init();
+        this.registry = registry;
+        this.chunkRows = ((height - 1) >> Chunk.SHIFT) + 1;
+        this.loadedColumns = null;
+        this.generator = generator;
+        if (generator == null) {
+            this.chunkColumns = new Chunk[((width - 1) >> Chunk.SHIFT) + 1][chunkRows];
+        } else {
+            this.chunkColumns = new Chunk[((width - 1) >> Chunk.SHIFT) + 1][];
+        }
     }
 
     /**
-     * Initialise cette carte en la remplissant de cellules initialement vides.
+     * Crée une nouvelle instance de GameMap, infinie horizontalement.
+     * Les colonnes de chunks de la carte sont générées au moment où elles sont utilisées
+     * pour la première fois.
+     *
+     * @param height La hauteur de la carte, en nombre de cellules.
+     * @param soilHeight La hauteur à laquelle se situe la surface du sol.
+     * @param registry Le registre donnant la signification des identifiants de blocs.
+     * @param generator Le générateur utilisé pour remplir les colonnes de chunks.
      */
-    private void init() {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                cells[i][j] = new Cell(i, j);
-            }
+    public GameMap(int height, int soilHeight, BlockRegistry registry,
+            ChunkColumnGenerator generator) {
+        if (height <= 0) {
+            throw new IllegalArgumentException("Incorrect map dimension!");
         }
+
+        this.height = height;
+        this.width = Integer.MAX_VALUE;
+        this.soilHeight = soilHeight;
+        this.registry = registry;
+        this.chunkRows = ((height - 1) >> Chunk.SHIFT) + 1;
+        this.chunkColumns = null;
+        this.loadedColumns = new HashMap<>();
+        this.generator = generator;
     }
 
     /**
@@ -86,6 +225,7 @@ public final class GameMap {
 
     /**
      * Donne la largeur de cette carte, mesurée en nombre de cellules.
+     * Pour une carte infinie, cette largeur vaut {@link Integer#MAX_VALUE}.
      *
      * @return La largeur de cette carte.
      */
@@ -103,8 +243,45 @@ public final class GameMap {
         return soilHeight;
     }
 
+    /**
+     * Donne le registre donnant la signification des identifiants de blocs stockés sur
+     * cette carte.
+     *
+     * @return Le registre des blocs de cette carte.
+     */
+    public BlockRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Vérifie si cette carte est infinie horizontalement.
+     *
+     * @return Si cette carte est infinie.
+     */
+    public boolean isUnbounded() {
+        return chunkColumns == null;
+    }
+
+    /**
+     * Vérifie si une position se trouve sur cette carte.
+     * Sur une carte infinie, toutes les colonnes (y compris négatives) sont valides.
+     *
+     * @param row La ligne de la position.
+     * @param column La colonne de la position.
+     *
+     * @return Si la position se trouve sur cette carte.
+     */
+    public boolean contains(int row, int column) {
+        if ((row < 0) || (height <= row)) {
+            return false;
+        }
+        return isUnbounded() || ((0 <= column) && (column < width));
+    }
+
     /**
      * Donne la cellule à la position donnée sur cette carte.
+     * La cellule retournée est une vue sur la carte : les modifications qui lui sont
+     * apportées sont directement répercutées sur la carte.
      *
      * @param row La ligne de la cellule à récupérer.
      * @param column La colonne de la cellule à récupérer.
@@ -115,10 +292,8 @@ public final class GameMap {
      *         carte.
      */
     public Cell getAt(int row, int column) {
-        if ((row < 0) || (height <= row) || (column < 0) || (width <= column)) {
-            throw new IllegalArgumentException("Incorrect cell location!");
-        }
-        return cells[row][column];
+        checkLocation(row, column);
+        return new Cell(this, row, column);
     }
 
     /**
@@ -126,16 +301,645 @@ public final class GameMap {
      *
      * @param row La ligne de la cellule à modifier.
      * @param column La colonne de la cellule à modifier.
-     * @param cell La nouvelle cellule à placer.
+     * @param cell La nouvelle cellule à placer, dont le bloc doit provenir du registre
+     *        de cette carte.
      *
      * @throws IllegalArgumentException Si la position donnée est en dehors de cette
      *         carte.
      */
     public void setAt(int row, int column, Cell cell) {
-        if ((row < 0) || (height <= row) || (column < 0) || (width <= column)) {
+        setBlockAt(row, column, cell.getBlock());
+    }
+
+    /**
+     * Donne l'identifiant du bloc à la position donnée sur cette carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return L'identifiant du bloc à la position donnée.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    public short getBlockAt(int row, int column) {
+        checkLocation(row, column);
+        Chunk chunk = columnOf(column)[row >> Chunk.SHIFT];
+        if (chunk == null) {
+            return BlockRegistry.EMPTY;
+        }
+        return chunk.get(row, column);
+    }
+
+    /**
+     * Modifie l'identifiant du bloc à la position donnée sur cette carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param block L'identifiant du nouveau bloc.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    public void setBlockAt(int row, int column, short block) {
+        checkLocation(row, column);
+        Chunk[] chunks = columnOf(column);
+        int index = row >> Chunk.SHIFT;
+        Chunk chunk = chunks[index];
+        short previous = (chunk == null) ? BlockRegistry.EMPTY : chunk.get(row, column);
+        if (previous == block) {
+            // La cellule ne change pas : inutile de l'écrire (ou d'allouer son chunk).
+            return;
+        }
+
+        if (chunk == null) {
+            chunk = new Chunk(epoch);
+            chunks[index] = chunk;
+
+        } else if (chunk.getEpoch() != epoch) {
+            // Le chunk peut être partagé avec une snapshot : on en modifie une copie.
+            chunk = chunk.copy(epoch);
+            chunks[index] = chunk;
+        }
+        chunk.set(row, column, block);
+
+        if (!generating) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).cellChanged(row, column);
+            }
+        }
+    }
+
+    /**
+     * Modifie les identifiants des blocs de cellules consécutives d'une même ligne de
+     * cette carte.
+     * Les blocs sont copiés d'un seul bloc dans chacun des chunks traversés, ce qui est
+     * bien plus rapide que de modifier les cellules une à une.
+     * Comme pour {@link #setBlockAt(int, int, short)}, seules les cellules dont le bloc
+     * change sont signalées, et un chunk dont aucune cellule ne change n'est ni copié
+     * ni considéré comme modifié.
+     *
+     * @param row La ligne des cellules.
+     * @param column La colonne de la première cellule.
+     * @param blocks Le tableau contenant les identifiants des nouveaux blocs.
+     * @param offset La position du premier bloc à copier dans le tableau.
+     * @param length Le nombre de cellules à modifier.
+     *
+     * @throws IllegalArgumentException Si l'une des cellules est en dehors de cette
+     *         carte.
+     */
+    public void setBlocksAt(int row, int column, short[] blocks, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        checkLocation(row, column);
+        checkLocation(row, column + length - 1);
+
+        int index = row >> Chunk.SHIFT;
+        for (int done = 0; done < length;) {
+            int current = column + done;
+            int count = Math.min(length - done, Chunk.SIZE - (current & Chunk.MASK));
+            Chunk[] chunks = columnOf(current);
+            Chunk chunk = chunks[index];
+            int changed = (chunk == null) ? emptyDifferences(blocks, offset + done, count)
+                    : chunk.differences(row, current, blocks, offset + done, count);
+            if (changed != 0) {
+                if (chunk == null) {
+                    chunk = new Chunk(epoch);
+                    chunks[index] = chunk;
+
+                } else if (chunk.getEpoch() != epoch) {
+                    // Le chunk peut être partagé avec une snapshot : on en modifie une copie.
+                    chunk = chunk.copy(epoch);
+                    chunks[index] = chunk;
+                }
+                chunk.setRun(row, current, blocks, offset + done, count);
+                notifyChanged(row, current, changed);
+            }
+            done += count;
+        }
+    }
+
+    /**
+     * Compare des identifiants de blocs avec ceux d'un chunk qui n'a pas encore été
+     * alloué, et dont les cellules sont donc vides.
+     *
+     * @param blocks Le tableau contenant les identifiants à comparer.
+     * @param offset La position du premier identifiant à comparer dans le tableau.
+     * @param length Le nombre d'identifiants à comparer.
+     *
+     * @return Le masque des identifiants différents de {@link BlockRegistry#EMPTY}.
+     */
+    private static int emptyDifferences(short[] blocks, int offset, int length) {
+        int mask = 0;
+        for (int i = 0; i < length; i++) {
+            if (blocks[offset + i] != BlockRegistry.EMPTY) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Signale aux écouteurs les cellules d'une ligne dont le bloc a changé, sauf
+     * pendant la génération d'une colonne de chunks.
+     *
+     * @param row La ligne des cellules.
+     * @param column La colonne de la première cellule.
+     * @param changed Le masque des cellules ayant changé : le bit {@code i} correspond à
+     *        la cellule de la colonne {@code column + i}.
+     */
+    private void notifyChanged(int row, int column, int changed) {
+        if (generating) {
+            return;
+        }
+
+        for (int i = 0; i < listeners.size(); i++) {
+            for (int bits = changed; bits != 0; bits &= bits - 1) {
+                listeners.get(i).cellChanged(row, column + Integer.numberOfTrailingZeros(bits));
+            }
+        }
+    }
+
+    /**
+     * Prend une snapshot de cette carte, c'est-à-dire une vue figée de son état actuel.
+     * La snapshot peut ensuite être lue depuis n'importe quel thread (pour dessiner ou
+     * sauvegarder la carte, par exemple), pendant que cette carte continue d'être
+     * modifiée.
+     *
+     * Prendre une snapshot ne copie que les tableaux référençant les chunks chargés : les
+     * chunks eux-mêmes sont partagés, et ne sont copiés qu'au moment où cette carte les
+     * modifie pour la première fois après la snapshot.
+     * Cette méthode doit être appelée depuis le thread qui modifie la carte.
+     *
+     * @return La snapshot de l'état actuel de cette carte.
+     */
+    public GameMapSnapshot snapshot() {
+        GameMapSnapshot snapshot;
+        if (isUnbounded()) {
+            Map<Integer, Chunk[]> columns = new HashMap<>();
+            for (Map.Entry<Integer, Chunk[]> entry : loadedColumns.entrySet()) {
+                columns.put(entry.getKey(), entry.getValue().clone());
+            }
+            snapshot = new GameMapSnapshot(this, epoch, null, columns);
+
+        } else {
+            Chunk[][] columns = new Chunk[chunkColumns.length][];
+            for (int i = 0; i < columns.length; i++) {
+                if (chunkColumns[i] != null) {
+                    columns[i] = chunkColumns[i].clone();
+                }
+            }
+            snapshot = new GameMapSnapshot(this, epoch, columns, null);
+        }
+
+        // Les chunks existants sont désormais partagés avec la snapshot.
+        epoch++;
+        return snapshot;
+    }
+
+    /**
+     * Indique que l'état d'une snapshot de cette carte a été sauvegardé.
+     * Les chunks qui n'ont pas été modifiés depuis que la snapshot a été prise sont alors
+     * considérés comme non modifiés, ce qui permet notamment de les décharger.
+     * Cette méthode doit être appelée depuis le thread qui modifie la carte.
+     *
+     * @param snapshot La snapshot sauvegardée, qui doit avoir été prise sur cette carte.
+     *
+     * @see WorldStorage#save(GameMapSnapshot)
+     */
+    public void markSaved(GameMapSnapshot snapshot) {
+        snapshot.forEachColumn((chunks, chunkColumn) -> {
+            Chunk[] current = isChunkColumnLoaded(chunkColumn) ? loadedColumn(chunkColumn) : null;
+            if (current == null) {
+                return;
+            }
+
+            for (int row = 0; row < chunks.length; row++) {
+                // Un chunk modifié depuis la snapshot a été remplacé par une copie.
+                if ((chunks[row] != null) && (chunks[row] == current[row])) {
+                    chunks[row].setModified(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Ajoute un objet à informer des modifications apportées aux cellules de cette
+     * carte.
+     *
+     * @param listener L'objet à informer.
+     */
+    public void addCellListener(CellListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un objet informé des modifications apportées aux cellules de cette carte.
+     *
+     * @param listener L'objet à ne plus informer.
+     */
+    public void removeCellListener(CellListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Donne le nombre de chunks actuellement alloués pour cette carte.
+     *
+     * @return Le nombre de chunks alloués.
+     */
+    public int getAllocatedChunkCount() {
+        int[] count = new int[1];
+        forEachLoadedColumn((chunks, index) -> {
+            for (Chunk chunk : chunks) {
+                if (chunk != null) {
+                    count[0]++;
+                }
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Donne le nombre de colonnes de chunks actuellement chargées sur cette carte.
+     *
+     * @return Le nombre de colonnes de chunks chargées.
+     */
+    public int getLoadedChunkColumnCount() {
+        int[] count = new int[1];
+        forEachLoadedColumn((chunks, index) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * S'assure que toutes les colonnes de chunks couvrant les colonnes de cellules
+     * données sont chargées, en les générant si nécessaire.
+     * Sur une carte dont toutes les colonnes sont chargées dès sa création, cette
+     * méthode n'a aucun effet.
+     *
+     * @param fromColumn La première colonne de cellules à charger (incluse).
+     * @param toColumn La dernière colonne de cellules à charger (incluse).
+     */
+    public void ensureLoaded(int fromColumn, int toColumn) {
+        if (generator != null) {
+            int from = isUnbounded() ? fromColumn : Math.max(0, fromColumn);
+            int to = isUnbounded() ? toColumn : Math.min(width - 1, toColumn);
+            for (int i = from >> Chunk.SHIFT; i <= (to >> Chunk.SHIFT); i++) {
+                columnOf(i << Chunk.SHIFT);
+            }
+        }
+    }
+
+    /**
+     * Décharge les colonnes de chunks éloignées de toutes les colonnes de cellules
+     * données.
+     * Les colonnes modifiées depuis leur chargement (ou leur dernière sauvegarde)
+     * restent chargées, afin de ne pas perdre les modifications.
+     * Sur une carte dont toutes les colonnes sont chargées dès sa création, cette
+     * méthode n'a aucun effet.
+     *
+     * @param columns Les colonnes de cellules autour desquelles la carte est conservée.
+     * @param distance La distance (en nombre de cellules) au-delà de laquelle une
+     *        colonne de chunks est déchargée.
+     *
+     * @return Le nombre de colonnes de chunks déchargées.
+     */
+    public int unloadFarFrom(int[] columns, int distance) {
+        if (generator == null) {
+            return 0;
+        }
+
+        int origin = firstNearChunkColumn(columns, distance);
+        BitSet near = nearChunkColumns(columns, distance, origin);
+        int unloaded = 0;
+        if (!isUnbounded()) {
+            for (int i = 0; i < chunkColumns.length; i++) {
+                Chunk[] chunks = chunkColumns[i];
+                if ((chunks != null) && isFar(i, near, origin) && !isModified(chunks)) {
+                    chunkColumns[i] = null;
+                    unloaded++;
+                }
+            }
+            return unloaded;
+        }
+
+        for (Iterator<Map.Entry<Integer, Chunk[]>> it = loadedColumns.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Integer, Chunk[]> entry = it.next();
+            if (isFar(entry.getKey(), near, origin) && !isModified(entry.getValue())) {
+                it.remove();
+                unloaded++;
+            }
+        }
+
+        // Le cache d'accès peut référencer une colonne déchargée.
+        lastColumnIndex = NO_COLUMN;
+        lastColumn = null;
+        return unloaded;
+    }
+
+    /**
+     * Compacte les chunks des colonnes éloignées de toutes les colonnes de cellules
+     * données.
+     * Contrairement à {@link #unloadFarFrom(int[], int)}, les chunks compactés restent
+     * en mémoire (y compris ceux qui ont été modifiés), mais y occupent beaucoup moins
+     * de place : un chunk compacté n'est décompacté que lorsqu'il est modifié, et ses
+     * cellules peuvent être lues sans le décompacter.
+     *
+     * @param columns Les colonnes de cellules autour desquelles les chunks ne sont pas
+     *        compactés.
+     * @param distance La distance (en nombre de cellules) au-delà de laquelle les chunks
+     *        d'une colonne sont compactés.
+     *
+     * @return Le nombre de chunks compactés.
+     */
+    public int packFarFrom(int[] columns, int distance) {
+        int origin = firstNearChunkColumn(columns, distance);
+        BitSet near = nearChunkColumns(columns, distance, origin);
+        int[] packed = new int[1];
+        forEachLoadedColumn((chunks, chunkColumn) -> {
+            if (isFar(chunkColumn, near, origin)) {
+                for (int i = 0; i < chunks.length; i++) {
+                    Chunk chunk = chunks[i];
+                    if ((chunk != null) && !chunk.isPacked()) {
+                        // La snapshot qui partage éventuellement ce chunk le conserve.
+                        chunks[i] = chunk.pack(epoch);
+                        packed[0]++;
+                    }
+                }
+            }
+        });
+        return packed[0];
+    }
+
+    /**
+     * Donne le nombre de chunks actuellement compactés sur cette carte.
+     *
+     * @return Le nombre de chunks compactés.
+     */
+    public int getPackedChunkCount() {
+        int[] count = new int[1];
+        forEachLoadedColumn((chunks, index) -> {
+            for (Chunk chunk : chunks) {
+                if ((chunk != null) && chunk.isPacked()) {
+                    count[0]++;
+                }
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Donne une estimation de la mémoire (en octets) occupée par les blocs des chunks
+     * actuellement alloués pour cette carte.
+     *
+     * @return La mémoire occupée par les blocs des chunks alloués.
+     */
+    public long getChunkMemoryUsage() {
+        long[] size = new long[1];
+        forEachLoadedColumn((chunks, index) -> {
+            for (Chunk chunk : chunks) {
+                if (chunk != null) {
+                    size[0] += chunk.getMemorySize();
+                }
+            }
+        });
+        return size[0];
+    }
+
+    /**
+     * Donne la position de la première colonne de chunks proche de l'une des colonnes de
+     * cellules données.
+     *
+     * @param columns Les colonnes de cellules.
+     * @param distance La distance (en nombre de cellules) en deçà de laquelle une colonne
+     *        de chunks est considérée comme proche.
+     *
+     * @return La position de la première colonne de chunks proche, ou {@code 0} s'il n'y
+     *         a aucune colonne de cellules.
+     */
+    private static int firstNearChunkColumn(int[] columns, int distance) {
+        if (columns.length == 0) {
+            return 0;
+        }
+
+        int first = Integer.MAX_VALUE;
+        for (int column : columns) {
+            first = Math.min(first, (column - distance) >> Chunk.SHIFT);
+        }
+        return first;
+    }
+
+    /**
+     * Calcule l'ensemble des colonnes de chunks proches de l'une des colonnes de cellules
+     * données.
+     * Cet ensemble est calculé une seule fois par parcours des colonnes chargées, de sorte
+     * que tester si une colonne de chunks est éloignée ne dépend pas du nombre de colonnes
+     * de cellules données.
+     *
+     * @param columns Les colonnes de cellules.
+     * @param distance La distance (en nombre de cellules) en deçà de laquelle une colonne
+     *        de chunks est considérée comme proche.
+     * @param origin La position de la première colonne de chunks proche, qui correspond
+     *        au premier élément de l'ensemble.
+     *
+     * @return L'ensemble des colonnes de chunks proches, décalées de {@code origin}.
+     */
+    private static BitSet nearChunkColumns(int[] columns, int distance, int origin) {
+        BitSet near = new BitSet();
+        for (int column : columns) {
+            int from = ((column - distance) >> Chunk.SHIFT) - origin;
+            int to = ((column + distance) >> Chunk.SHIFT) - origin;
+            near.set(from, to + 1);
+        }
+        return near;
+    }
+
+    /**
+     * Vérifie si une colonne de chunks est éloignée de toutes les colonnes de cellules
+     * ayant permis de calculer un ensemble de colonnes de chunks proches.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     * @param near L'ensemble des colonnes de chunks proches (voir
+     *        {@link #nearChunkColumns(int[], int, int)}).
+     * @param origin La position de la première colonne de chunks proche.
+     *
+     * @return Si la colonne de chunks est éloignée de toutes les colonnes de cellules.
+     */
+    private static boolean isFar(int chunkColumn, BitSet near, int origin) {
+        return (chunkColumn < origin) || !near.get(chunkColumn - origin);
+    }
+
+    /**
+     * Vérifie qu'une position se trouve bien sur cette carte.
+     *
+     * @param row La ligne de la position.
+     * @param column La colonne de la position.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    private void checkLocation(int row, int column) {
+        if (!contains(row, column)) {
             throw new IllegalArgumentException("Incorrect cell location!");
         }
-        cells[row][column].replaceBy(cell);
+    }
+
+    /**
+     * Donne la colonne de chunks contenant une colonne de cellules.
+     * La colonne de chunks est générée si elle n'est pas encore chargée.
+     *
+     * @param column La colonne de cellules.
+     *
+     * @return La colonne de chunks la contenant.
+     */
+    private Chunk[] columnOf(int column) {
+        int index = column >> Chunk.SHIFT;
+        if (chunkColumns != null) {
+            Chunk[] chunks = chunkColumns[index];
+            if (chunks == null) {
+                chunks = new Chunk[chunkRows];
+                chunkColumns[index] = chunks;
+                generate(chunks, index);
+            }
+            return chunks;
+        }
+
+        if (index == lastColumnIndex) {
+            return lastColumn;
+        }
+
+        Chunk[] chunks = loadedColumns.get(index);
+        if (chunks == null) {
+            chunks = new Chunk[chunkRows];
+            loadedColumns.put(index, chunks);
+            lastColumnIndex = index;
+            lastColumn = chunks;
+            generate(chunks, index);
+        }
+
+        lastColumnIndex = index;
+        lastColumn = chunks;
+        return chunks;
+    }
+
+    /**
+     * Remplit une colonne de chunks qui vient d'être chargée, sans signaler les
+     * modifications de ses cellules.
+     *
+     * @param chunks La colonne de chunks à remplir.
+     * @param chunkColumn La position de la colonne de chunks.
+     */
+    private void generate(Chunk[] chunks, int chunkColumn) {
+        boolean wasGenerating = generating;
+        generating = true;
+        try {
+            generator.generate(this, chunkColumn);
+
+        } finally {
+            generating = wasGenerating;
+        }
+        markUnmodified(chunks);
+    }
+
+    /**
+     * Vérifie si une colonne de chunks de cette carte est chargée.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     *
+     * @return Si la colonne de chunks est chargée.
+     */
+    boolean isChunkColumnLoaded(int chunkColumn) {
+        if (isUnbounded()) {
+            return loadedColumns.containsKey(chunkColumn);
+        }
+        return (0 <= chunkColumn) && (chunkColumn < chunkColumns.length)
+                && (chunkColumns[chunkColumn] != null);
+    }
+
+    /**
+     * Donne une colonne de chunks déjà chargée, sans la générer.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     *
+     * @return La colonne de chunks.
+     */
+    private Chunk[] loadedColumn(int chunkColumn) {
+        if (isUnbounded()) {
+            return loadedColumns.get(chunkColumn);
+        }
+        return chunkColumns[chunkColumn];
+    }
+
+    /**
+     * Donne le nombre de chunks dans une colonne de chunks de cette carte.
+     *
+     * @return Le nombre de chunks par colonne.
+     */
+    int getChunkRows() {
+        return chunkRows;
+    }
+
+    /**
+     * Applique une action sur chacune des colonnes de chunks actuellement chargées.
+     *
+     * @param action L'action à appliquer, qui reçoit la colonne de chunks et sa
+     *        position.
+     */
+    void forEachLoadedColumn(ObjIntConsumer<Chunk[]> action) {
+        if (isUnbounded()) {
+            for (Map.Entry<Integer, Chunk[]> entry : loadedColumns.entrySet()) {
+                action.accept(entry.getValue(), entry.getKey());
+            }
+
+        } else {
+            for (int i = 0; i < chunkColumns.length; i++) {
+                if (chunkColumns[i] != null) {
+                    action.accept(chunkColumns[i], i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Place un chunk sur cette carte, en remplaçant celui qui s'y trouvait.
+     * Cette méthode est destinée aux {@link ChunkColumnGenerator} qui remplissent une
+     * colonne de chunks d'un seul coup, par exemple depuis un fichier.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     * @param chunkRow La position du chunk dans sa colonne.
+     * @param chunk Le chunk à placer.
+     */
+    void putChunk(int chunkColumn, int chunkRow, Chunk chunk) {
+        columnOf(chunkColumn << Chunk.SHIFT)[chunkRow] = chunk;
+    }
+
+    /**
+     * Vérifie si l'un des chunks donnés a été modifié.
+     *
+     * @param chunks Les chunks à vérifier.
+     *
+     * @return Si l'un des chunks a été modifié.
+     */
+    private static boolean isModified(Chunk[] chunks) {
+        for (Chunk chunk : chunks) {
+            if ((chunk != null) && chunk.isModified()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indique que les chunks donnés n'ont pas été modifiés.
+     *
+     * @param chunks Les chunks à marquer.
+     */
+    private static void markUnmodified(Chunk[] chunks) {
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                chunk.setModified(false);
+            }
+        }
     }
 
 }
@@ -14,13 +14,25 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 /**
  * La classe {@link GameMapGenerator} permet de générer différentes cartes du jeu Flatcraft.
  * La carte de base comporte une plaine ne comportant que de l'herbe et des plans d'eau en surface.
  * Cette carte peut aussi être enrichie avec des arbres, des terrils, etc.
  *
+ * Les cartes peuvent aussi être générées à partir d'une graine : la carte est alors
+ * découpée en bandes verticales de la largeur d'un chunk, générées en parallèle sur un
+ * {@link ForkJoinPool}, chacune avec son propre générateur de nombres pseudo-aléatoires
+ * dérivé de la graine.
+ * La carte obtenue ne dépend ainsi que de la graine, et pas du nombre de threads.
+ *
  * @author Daniel Le Berre
  * @author Romain Wallon
  *
@@ -43,6 +55,58 @@ public final class GameMapGenerator {
      */
     private static final int MAX_SLAG_HEAP_HEIGHT = 8;
 
+    /**
+     * Le nombre (impair) utilisé pour dériver des graines différentes à partir de la
+     * graine d'une carte.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Le sel utilisé pour dériver la graine servant à placer les arbres et les terrils.
+     */
+    private static final long DECORATION_SALT = -1;
+
+    /**
+     * La mesure du temps passé à générer le ciel.
+     */
+    private static final LatencyHistogram SKY_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.sky");
+
+    /**
+     * La mesure du temps passé à générer la surface du sol.
+     */
+    private static final LatencyHistogram SURFACE_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.surface");
+
+    /**
+     * La mesure du temps passé à générer le sous-sol.
+     */
+    private static final LatencyHistogram SUBSOIL_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.subsoil");
+
+    /**
+     * La mesure du temps passé à placer un arbre.
+     */
+    private static final LatencyHistogram TREE_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.tree");
+
+    /**
+     * La mesure du temps passé à placer un terril.
+     */
+    private static final LatencyHistogram SLAG_HEAP_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.slagHeap");
+
+    /**
+     * Les modèles des arbres, selon la hauteur de leur tronc (à partir de {@code 1}).
+     */
+    private static final StructureTemplate[] TREES = createTrees();
+
+    /**
+     * Les modèles donnant la forme des terrils, selon leur hauteur (à partir de
+     * {@code 1}).
+     */
+    private static final StructureTemplate[] SLAG_HEAPS = createSlagHeaps();
+
     /**
      * Désactive l'instanciation en dehors de la classe.
      */
@@ -61,28 +125,102 @@ public final class GameMapGenerator {
      * @return La carte générée.
      */
     public static GameMap generatePlainMap(int height, int width, CellFactory factory) {
-        GameMap map = new GameMap(height, width, 2 * height / 3);
+        GameMap map = new GameMap(height, width, 2 * height / 3, factory.getRegistry());
+        fillPlain(map, factory, RANDOM, 0, width);
+        return map;
+    }
 
+    /**
+     * Génère une carte de base pour le jeu Flatcraft à partir d'une graine.
+     * La carte est une plaine ne comportant que de l'herbe et des plans d'eau en surface.
+     * Elle est générée en parallèle sur le pool commun de {@link ForkJoinPool}.
+     *
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return La carte générée.
+     */
+    public static GameMap generatePlainMap(int height, int width, CellFactory factory, long seed) {
+        return generatePlainMap(height, width, factory, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Génère une carte de base pour le jeu Flatcraft à partir d'une graine.
+     * La carte est une plaine ne comportant que de l'herbe et des plans d'eau en surface.
+     * Pour une même graine, la carte générée est la même quel que soit le pool utilisé.
+     *
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     * @param pool Le pool de threads sur lequel la carte est générée.
+     *
+     * @return La carte générée.
+     */
+    public static GameMap generatePlainMap(int height, int width, CellFactory factory,
+            long seed, ForkJoinPool pool) {
+        GameMap map = new GameMap(height, width, 2 * height / 3, factory.getRegistry());
+        int nbStrips = ((width - 1) / GameMap.CHUNK_SIZE) + 1;
+        pool.invoke(new StripGenerationTask(map, factory, seed, 0, nbStrips));
+        return map;
+    }
+
+    /**
+     * Remplit une bande verticale de la carte avec le ciel, la surface du sol et le
+     * sous-sol.
+     *
+     * @param map La carte à remplir.
+     * @param factory La fabrique de cellules utilisée pour choisir les blocs.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     * @param fromColumn La première colonne de la bande (incluse).
+     * @param toColumn La dernière colonne de la bande (exclue).
+     */
+    private static void fillPlain(GameMap map, CellFactory factory, RandomGenerator random,
+            int fromColumn, int toColumn) {
         // La première partie de la carte représente le ciel.
+        long start = System.nanoTime();
         for (int i = 0; i < map.getSoilHeight(); i++) {
-            for (int j = 0; j < width; j++) {
-                map.setAt(i, j, factory.createSky());
+            for (int j = fromColumn; j < toColumn; j++) {
+                map.setBlockAt(i, j, factory.createSkyBlock(random));
             }
         }
+        SKY_TIME.recordSince(start);
 
         // Une ligne permet de représenter la surface du sol.
-        for (int j = 0; j < width; j++) {
-            map.setAt(map.getSoilHeight(), j, factory.createSoilSurface());
+        start = System.nanoTime();
+        for (int j = fromColumn; j < toColumn; j++) {
+            map.setBlockAt(map.getSoilHeight(), j, factory.createSoilSurfaceBlock(random));
         }
+        SURFACE_TIME.recordSince(start);
 
         // La dernière partie de la carte représente le sous-sol.
-        for (int i = map.getSoilHeight() + 1; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                map.setAt(i, j, factory.createSubSoil());
+        start = System.nanoTime();
+        for (int i = map.getSoilHeight() + 1; i < map.getHeight(); i++) {
+            for (int j = fromColumn; j < toColumn; j++) {
+                map.setBlockAt(i, j, factory.createSubSoilBlock(random));
             }
         }
+        SUBSOIL_TIME.recordSince(start);
+    }
 
-        return map;
+    /**
+     * Dérive une graine à partir de la graine d'une carte.
+     * Deux sels différents donnent des graines indépendantes, ce qui permet de générer
+     * les différentes parties de la carte dans n'importe quel ordre.
+     *
+     * @param seed La graine de la carte.
+     * @param salt Le sel identifiant la partie de la carte à générer.
+     *
+     * @return La graine dérivée.
+     */
+    static long deriveSeed(long seed, long salt) {
+        // On applique la fonction de mélange de MurmurHash3.
+        long z = seed + (salt * GOLDEN_GAMMA);
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
     }
 
     /**
@@ -130,43 +268,206 @@ public final class GameMapGenerator {
     public static GameMap generateMapWithTreesAndSlagHeaps(int height, int width,
             CellFactory factory, int nbTrees, int nbSlagHeaps) {
         GameMap map = generatePlainMap(height, width, factory);
+        addTreesAndSlagHeaps(map, factory, RANDOM, nbTrees, nbSlagHeaps);
+        return map;
+    }
+
+    /**
+     * Génère une carte pour le jeu Flatcraft à partir d'une graine.
+     * La carte comporte une plaine avec en plus des arbres et des terrils.
+     * La plaine est générée en parallèle, puis les arbres et les terrils y sont ajoutés.
+     *
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param nbTrees Le nombre d'arbres à ajouter à la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à la carte.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return La carte générée.
+     */
+    public static GameMap generateMapWithTreesAndSlagHeaps(int height, int width,
+            CellFactory factory, int nbTrees, int nbSlagHeaps, long seed) {
+        GameMap map = generatePlainMap(height, width, factory, seed);
+        RandomGenerator random = new SplittableRandom(deriveSeed(seed, DECORATION_SALT));
+        addTreesAndSlagHeaps(map, factory, random, nbTrees, nbSlagHeaps);
+        return map;
+    }
+
+    /**
+     * Crée une carte infinie horizontalement pour le jeu Flatcraft.
+     * La carte comporte une plaine avec des arbres et des terrils, dont les colonnes de
+     * chunks ne sont générées qu'au moment où elles sont utilisées.
+     * La plaine est identique à celle générée par
+     * {@link #generatePlainMap(int, int, CellFactory, long)} pour la même graine.
+     *
+     * @param height La hauteur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param treesPerChunk Le nombre moyen d'arbres par colonne de chunks.
+     * @param slagHeapsPerChunk Le nombre moyen de terrils par colonne de chunks.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return La carte créée.
+     */
+    public static GameMap generateUnboundedMap(int height, CellFactory factory,
+            double treesPerChunk, double slagHeapsPerChunk, long seed) {
+        return new GameMap(height, 2 * height / 3, factory.getRegistry(),
+                unboundedGenerator(factory, treesPerChunk, slagHeapsPerChunk, seed));
+    }
+
+    /**
+     * Donne le générateur utilisé pour remplir les colonnes de chunks des cartes créées
+     * par {@link #generateUnboundedMap(int, CellFactory, double, double, long)}.
+     *
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param treesPerChunk Le nombre moyen d'arbres par colonne de chunks.
+     * @param slagHeapsPerChunk Le nombre moyen de terrils par colonne de chunks.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return Le générateur de colonnes de chunks.
+     */
+    public static ChunkColumnGenerator unboundedGenerator(CellFactory factory,
+            double treesPerChunk, double slagHeapsPerChunk, long seed) {
+        return new UnboundedColumnGenerator(factory, treesPerChunk, slagHeapsPerChunk, seed);
+    }
+
+    /**
+     * Crée une carte pour le jeu Flatcraft, dont le relief, les grottes et les filons
+     * de minerais sont donnés par un {@link TerrainGenerator}.
+     * Les colonnes de chunks de la carte ne sont générées qu'au moment où elles sont
+     * utilisées.
+     *
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return La carte créée.
+     */
+    public static GameMap generateTerrainMap(int height, int width, CellFactory factory, long seed) {
+        return new GameMap(height, width, 2 * height / 3, factory.getRegistry(),
+                new TerrainGenerator(seed));
+    }
+
+    /**
+     * Crée une carte infinie horizontalement pour le jeu Flatcraft, dont le relief, les
+     * grottes et les filons de minerais sont donnés par un {@link TerrainGenerator}.
+     * Sur leurs colonnes communes, la carte est identique à celle générée par
+     * {@link #generateTerrainMap(int, int, CellFactory, long)} pour la même graine.
+     *
+     * @param height La hauteur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param seed La graine à partir de laquelle la carte est générée.
+     *
+     * @return La carte créée.
+     */
+    public static GameMap generateUnboundedTerrainMap(int height, CellFactory factory, long seed) {
+        return new GameMap(height, 2 * height / 3, factory.getRegistry(), new TerrainGenerator(seed));
+    }
+
+    /**
+     * Compile les modèles des arbres, pour chacune des hauteurs de tronc possibles.
+     *
+     * @return Les modèles des arbres, selon la hauteur de leur tronc.
+     */
+    private static StructureTemplate[] createTrees() {
+        Map<Character, Short> legend = Map.of('T', BlockRegistry.TREE, 'L', BlockRegistry.LEAVES);
+        StructureTemplate[] trees = new StructureTemplate[MAX_TREE_HEIGHT + 1];
+        for (int treeHeight = 1; treeHeight <= MAX_TREE_HEIGHT; treeHeight++) {
+            // Les feuilles entourent le haut du tronc.
+            String[] rows = new String[treeHeight + 1];
+            rows[0] = "LLL";
+            rows[1] = "LTL";
+            for (int i = 2; i < rows.length; i++) {
+                rows[i] = ".T.";
+            }
+            trees[treeHeight] = StructureTemplate.parse(legend, rows);
+        }
+        return trees;
+    }
+
+    /**
+     * Compile les modèles donnant la forme des terrils, pour chacune des hauteurs
+     * possibles.
+     * Les blocs de ces modèles sont remplacés par des blocs tirés au sort lorsqu'un
+     * terril est placé.
+     *
+     * @return Les modèles des terrils, selon leur hauteur.
+     */
+    private static StructureTemplate[] createSlagHeaps() {
+        StructureTemplate[] heaps = new StructureTemplate[MAX_SLAG_HEAP_HEIGHT + 1];
+        for (int heapHeight = 1; heapHeight <= MAX_SLAG_HEAP_HEIGHT; heapHeight++) {
+            // Le terril s'élargit d'une cellule de chaque côté à chaque ligne.
+            int width = 2 * heapHeight - 1;
+            short[] cells = new short[heapHeight * width];
+            Arrays.fill(cells, StructureTemplate.VOID);
+            for (int h = 0; h < heapHeight; h++) {
+                int first = (h * width) + heapHeight - 1 - h;
+                Arrays.fill(cells, first, first + 2 * h + 1, BlockRegistry.DIRT);
+            }
+            heaps[heapHeight] = StructureTemplate.compile(width, cells);
+        }
+        return heaps;
+    }
 
+    /**
+     * Ajoute des arbres et des terrils à des positions aléatoires sur la carte.
+     * Les structures qui en chevaucheraient une autre déjà placée sont écartées.
+     *
+     * @param map La carte à laquelle ajouter les arbres et les terrils.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     * @param nbTrees Le nombre d'arbres à ajouter à la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à la carte.
+     */
+    private static void addTreesAndSlagHeaps(GameMap map, CellFactory factory,
+            RandomGenerator random, int nbTrees, int nbSlagHeaps) {
+        OccupancyGrid grid = new OccupancyGrid(0, map.getWidth(), map.getHeight());
         for (int i = 0; i < nbTrees; i++) {
-            addTree(map, factory);
+            addTree(map, grid, random);
         }
 
         for (int i = 0; i < nbSlagHeaps; i++) {
-            addSlagHeap(map, factory);
+            addSlagHeap(map, factory, grid, random);
         }
-
-        return map;
     }
 
-
     /**
      * Ajoute un arbre à une position aléatoire sur la carte.
      *
      * @param map La carte à laquelle ajouter l'arbre.
-     * @param factory La fabrique de cellules utilisée pour créer les cellules d'arbre.
+     * @param grid La grille d'occupation des structures déjà placées.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
      */
-    private static void addTree(GameMap map, CellFactory factory) {
+    private static void addTree(GameMap map, OccupancyGrid grid, RandomGenerator random) {
         // On choisit l'endroit où placer l'arbre.
-        int treeHeight = RANDOM.nextInt(MAX_TREE_HEIGHT) + 1;
-        int col = RANDOM.nextInt(map.getWidth() - 2) + 1;
-        int row = map.getSoilHeight();
+        int treeHeight = random.nextInt(MAX_TREE_HEIGHT) + 1;
+        int col = random.nextInt(map.getWidth() - 2) + 1;
+        placeTree(map, grid, null, col, treeHeight, 0, map.getWidth());
+    }
 
-        // On commence par placer le tronc.
-        for (int i = 0; i < treeHeight; i++) {
-            map.setAt(row, col, factory.createTrunk());
-            row--;
-        }
+    /**
+     * Place un arbre sur la carte, en ne modifiant que les colonnes d'un intervalle donné.
+     *
+     * @param map La carte sur laquelle placer l'arbre.
+     * @param grid La grille d'occupation des structures déjà placées, à laquelle l'arbre
+     *        est ajouté.
+     * @param neighbours La grille d'occupation de structures que l'arbre ne doit pas non
+     *        plus chevaucher, ou {@code null}.
+     * @param col La colonne du tronc de l'arbre.
+     * @param treeHeight La hauteur du tronc de l'arbre.
+     * @param fromColumn La première colonne pouvant être modifiée (incluse).
+     * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+     */
+    private static void placeTree(GameMap map, OccupancyGrid grid, OccupancyGrid neighbours,
+            int col, int treeHeight, int fromColumn, int toColumn) {
+        long start = System.nanoTime();
+        StructureTemplate tree = TREES[treeHeight];
 
-        // On ajoute ensuite les feuilles.
-        map.setAt(row, col + 1, factory.createLeaves());
-        map.setAt(row, col, factory.createLeaves());
-        map.setAt(row, col - 1, factory.createLeaves());
-        map.setAt(row + 1, col + 1, factory.createLeaves());
-        map.setAt(row + 1, col - 1, factory.createLeaves());
+        // Le pied du tronc remplace la surface du sol.
+        int row = map.getSoilHeight() - treeHeight;
+        place(map, tree, null, row, col - 1, grid, neighbours, fromColumn, toColumn);
+        TREE_TIME.recordSince(start);
     }
 
     /**
@@ -174,24 +475,303 @@ public final class GameMapGenerator {
      *
      * @param map La carte à laquelle ajouter le terril.
      * @param factory La fabrique de cellules utilisée pour créer les cellules de terril.
+     * @param grid La grille d'occupation des structures déjà placées.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
      */
-    private static void addSlagHeap(GameMap map, CellFactory factory) {
+    private static void addSlagHeap(GameMap map, CellFactory factory, OccupancyGrid grid,
+            RandomGenerator random) {
         // On choisit l'endroit où placer le terril.
-        int heapHeight = RANDOM.nextInt(MAX_SLAG_HEAP_HEIGHT) + 1;
-        int x = RANDOM.nextInt(map.getWidth() - heapHeight) + heapHeight;
-        int y = map.getSoilHeight();
-
-        // On place les blocs constituant le terril, en partant de son sommet.
-        for (int h = 0; h < heapHeight; h++) {
-            for (int w = 0; w < (2 * h + 1); w++) {
-                int row = y - heapHeight + h;
-                int column = x + w;
-                if ((column < map.getWidth()) && (0 <= row) && (row < map.getHeight())) {
-                    map.setAt(row, column, factory.createSubSoil());
-                }
+        int heapHeight = random.nextInt(MAX_SLAG_HEAP_HEIGHT) + 1;
+        int x = random.nextInt(map.getWidth() - heapHeight) + heapHeight;
+        placeSlagHeap(map, factory, random, grid, null, x, heapHeight, 0, map.getWidth());
+    }
+
+    /**
+     * Place un terril sur la carte, en ne modifiant que les colonnes d'un intervalle donné.
+     * Les blocs du terril sont tirés au sort même lorsqu'ils ne sont pas placés, de sorte
+     * que chaque partie du terril soit la même quel que soit l'intervalle choisi.
+     *
+     * @param map La carte sur laquelle placer le terril.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de terril.
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     * @param grid La grille d'occupation des structures déjà placées, à laquelle le
+     *        terril est ajouté.
+     * @param neighbours La grille d'occupation de structures que le terril ne doit pas
+     *        non plus chevaucher, ou {@code null}.
+     * @param x La colonne du sommet du terril.
+     * @param heapHeight La hauteur du terril.
+     * @param fromColumn La première colonne pouvant être modifiée (incluse).
+     * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+     */
+    private static void placeSlagHeap(GameMap map, CellFactory factory, RandomGenerator random,
+            OccupancyGrid grid, OccupancyGrid neighbours, int x, int heapHeight,
+            int fromColumn, int toColumn) {
+        long start = System.nanoTime();
+        StructureTemplate heap = SLAG_HEAPS[heapHeight];
+
+        // Les blocs sont tirés en partant du sommet, de gauche à droite.
+        short[] content = new short[heap.getBlockCount()];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = factory.createSubSoilBlock(random);
+        }
+
+        int row = map.getSoilHeight() - heapHeight;
+        place(map, heap, content, row, x - heapHeight + 1, grid, neighbours, fromColumn,
+                toColumn);
+        SLAG_HEAP_TIME.recordSince(start);
+    }
+
+    /**
+     * Place une structure sur la carte si elle ne chevauche aucune structure déjà placée,
+     * en ne modifiant que les colonnes d'un intervalle donné.
+     * La structure est ajoutée à la grille d'occupation dès qu'elle ne chevauche aucune
+     * des structures qui s'y trouvent, même si elle est ensuite écartée à cause de la
+     * seconde grille.
+     *
+     * @param map La carte sur laquelle placer la structure.
+     * @param template Le modèle de la structure.
+     * @param content Les blocs de la structure, ou {@code null} pour utiliser ceux du
+     *        modèle.
+     * @param row La ligne du coin supérieur gauche de la structure.
+     * @param column La colonne du coin supérieur gauche de la structure.
+     * @param grid La grille d'occupation des structures déjà placées, à laquelle la
+     *        structure est ajoutée.
+     * @param neighbours La grille d'occupation de structures que la structure ne doit
+     *        pas non plus chevaucher, ou {@code null}.
+     * @param fromColumn La première colonne pouvant être modifiée (incluse).
+     * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+     */
+    private static void place(GameMap map, StructureTemplate template, short[] content,
+            int row, int column, OccupancyGrid grid, OccupancyGrid neighbours,
+            int fromColumn, int toColumn) {
+        if (!template.fits(grid, row, column)) {
+            return;
+        }
+        template.occupy(grid, row, column);
+
+        if ((neighbours != null) && !template.fits(neighbours, row, column)) {
+            return;
+        }
+
+        if (content == null) {
+            template.stamp(map, row, column, fromColumn, toColumn);
+
+        } else {
+            template.stamp(map, row, column, content, fromColumn, toColumn);
+        }
+    }
+
+    /**
+     * La classe {@link StripGenerationTask} génère en parallèle un ensemble de bandes
+     * verticales consécutives d'une carte.
+     * Chaque bande a la largeur d'un chunk, de sorte que deux bandes différentes ne
+     * modifient jamais le même chunk.
+     */
+    private static final class StripGenerationTask extends RecursiveAction {
+
+        /**
+         * Le numéro de version de cette classe, utilisé pour la sérialisation.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * La carte à générer.
+         */
+        private final GameMap map;
+
+        /**
+         * La fabrique de cellules utilisée pour choisir les blocs.
+         */
+        private final CellFactory factory;
+
+        /**
+         * La graine de la carte.
+         */
+        private final long seed;
+
+        /**
+         * L'indice de la première bande à générer (incluse).
+         */
+        private final int fromStrip;
+
+        /**
+         * L'indice de la dernière bande à générer (exclue).
+         */
+        private final int toStrip;
+
+        /**
+         * Crée une nouvelle instance de StripGenerationTask.
+         *
+         * @param map La carte à générer.
+         * @param factory La fabrique de cellules utilisée pour choisir les blocs.
+         * @param seed La graine de la carte.
+         * @param fromStrip L'indice de la première bande à générer (incluse).
+         * @param toStrip L'indice de la dernière bande à générer (exclue).
+         */
+        StripGenerationTask(GameMap map, CellFactory factory, long seed, int fromStrip,
+                int toStrip) {
+            this.map = map;
+            this.factory = factory;
+            this.seed = seed;
+            this.fromStrip = fromStrip;
+            this.toStrip = toStrip;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if ((toStrip - fromStrip) > 1) {
+                // On découpe le travail en deux moitiés.
+                int middle = (fromStrip + toStrip) >>> 1;
+                invokeAll(new StripGenerationTask(map, factory, seed, fromStrip, middle),
+                        new StripGenerationTask(map, factory, seed, middle, toStrip));
+                return;
             }
-            x--;
+
+            // Chaque bande a son propre générateur, qui ne dépend que de sa position.
+            RandomGenerator random = new SplittableRandom(deriveSeed(seed, fromStrip));
+            int fromColumn = fromStrip * GameMap.CHUNK_SIZE;
+            int toColumn = Math.min(fromColumn + GameMap.CHUNK_SIZE, map.getWidth());
+            fillPlain(map, factory, random, fromColumn, toColumn);
         }
+
+    }
+
+    /**
+     * La classe {@link UnboundedColumnGenerator} génère les colonnes de chunks d'une
+     * carte infinie.
+     * Les arbres et les terrils d'une colonne de chunks ne dépendent que de la graine et
+     * de la position de cette colonne.
+     * Comme ils peuvent déborder sur les colonnes voisines, chaque colonne rejoue aussi
+     * ceux de ses deux voisines, en ne gardant que la partie qui la concerne : les
+     * structures à cheval sur deux colonnes sont ainsi complètes, quel que soit l'ordre
+     * de chargement des colonnes.
+     */
+    private static final class UnboundedColumnGenerator implements ChunkColumnGenerator {
+
+        /**
+         * La fabrique de cellules utilisée pour choisir les blocs.
+         */
+        private final CellFactory factory;
+
+        /**
+         * Le nombre moyen d'arbres par colonne de chunks.
+         */
+        private final double treesPerChunk;
+
+        /**
+         * Le nombre moyen de terrils par colonne de chunks.
+         */
+        private final double slagHeapsPerChunk;
+
+        /**
+         * La graine de la carte.
+         */
+        private final long seed;
+
+        /**
+         * Crée une nouvelle instance de UnboundedColumnGenerator.
+         *
+         * @param factory La fabrique de cellules utilisée pour choisir les blocs.
+         * @param treesPerChunk Le nombre moyen d'arbres par colonne de chunks.
+         * @param slagHeapsPerChunk Le nombre moyen de terrils par colonne de chunks.
+         * @param seed La graine de la carte.
+         */
+        UnboundedColumnGenerator(CellFactory factory, double treesPerChunk,
+                double slagHeapsPerChunk, long seed) {
+            this.factory = factory;
+            this.treesPerChunk = treesPerChunk;
+            this.slagHeapsPerChunk = slagHeapsPerChunk;
+            this.seed = seed;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see fr.univartois.butinfo.ihm.flatcraft.model.ChunkColumnGenerator#generate(fr.univartois.butinfo.ihm.flatcraft.model.GameMap, int)
+         */
+        @Override
+        public void generate(GameMap map, int chunkColumn) {
+            int fromColumn = chunkColumn * GameMap.CHUNK_SIZE;
+            int toColumn = fromColumn + GameMap.CHUNK_SIZE;
+            fillPlain(map, factory, new SplittableRandom(deriveSeed(seed, chunkColumn)),
+                    fromColumn, toColumn);
+
+            // Les structures sont rejouées de gauche à droite, afin que leurs
+            // chevauchements soient toujours résolus de la même manière.
+            // Celles de la colonne située deux chunks plus à gauche ne sont pas placées,
+            // mais peuvent écarter celles de sa voisine.
+            OccupancyGrid previous = decorate(map, chunkColumn - 2, null, fromColumn, fromColumn);
+            for (int origin = chunkColumn - 1; origin <= chunkColumn + 1; origin++) {
+                previous = decorate(map, origin, previous, fromColumn, toColumn);
+            }
+        }
+
+        /**
+         * Place les arbres et les terrils issus d'une colonne de chunks, en ne modifiant
+         * que les colonnes d'un intervalle donné.
+         * Une structure est écartée si elle chevauche une structure issue de la même
+         * colonne placée avant elle, ou une structure issue de la colonne précédente.
+         * Ce choix ne dépend ainsi que de ces deux colonnes, et pas de l'ordre dans
+         * lequel les colonnes de la carte sont chargées.
+         *
+         * @param map La carte sur laquelle placer les structures.
+         * @param origin La position de la colonne de chunks d'où sont issues les
+         *        structures.
+         * @param previous La grille d'occupation des structures issues de la colonne
+         *        précédente, ou {@code null} pour les ignorer.
+         * @param fromColumn La première colonne pouvant être modifiée (incluse).
+         * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+         *
+         * @return La grille d'occupation des structures issues de la colonne.
+         */
+        private OccupancyGrid decorate(GameMap map, int origin, OccupancyGrid previous,
+                int fromColumn, int toColumn) {
+            RandomGenerator random = new SplittableRandom(
+                    deriveSeed(deriveSeed(seed, DECORATION_SALT), origin));
+            int firstColumn = origin * GameMap.CHUNK_SIZE;
+
+            // Les structures issues de la colonne ne débordent que sur ses voisines.
+            OccupancyGrid grid = new OccupancyGrid(firstColumn - GameMap.CHUNK_SIZE,
+                    3 * GameMap.CHUNK_SIZE, map.getHeight());
+
+            int nbTrees = count(random, treesPerChunk);
+            for (int i = 0; i < nbTrees; i++) {
+                int treeHeight = random.nextInt(MAX_TREE_HEIGHT) + 1;
+                int col = firstColumn + random.nextInt(GameMap.CHUNK_SIZE);
+                placeTree(map, grid, previous, col, treeHeight, fromColumn, toColumn);
+            }
+
+            int nbSlagHeaps = count(random, slagHeapsPerChunk);
+            for (int i = 0; i < nbSlagHeaps; i++) {
+                int heapHeight = random.nextInt(MAX_SLAG_HEAP_HEIGHT) + 1;
+                int x = firstColumn + random.nextInt(GameMap.CHUNK_SIZE);
+                placeSlagHeap(map, factory, random, grid, previous, x, heapHeight,
+                        fromColumn, toColumn);
+            }
+            return grid;
+        }
+
+        /**
+         * Tire au sort un nombre de structures à partir d'un nombre moyen.
+         *
+         * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+         * @param average Le nombre moyen de structures.
+         *
+         * @return Le nombre de structures tiré.
+         */
+        private static int count(RandomGenerator random, double average) {
+            int count = (int) average;
+            if (random.nextDouble() < (average - count)) {
+                count++;
+            }
+            return count;
+        }
+
     }
 
 }
@@ -0,0 +1,274 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * La classe {@link GameMapSnapshot} représente l'état d'une {@link GameMap} à un instant
+ * donné.
+ *
+ * Une snapshot ne change jamais après sa création, même si la carte continue d'être
+ * modifiée : elle peut donc être lue depuis un autre thread que celui de la simulation
+ * (pour dessiner ou sauvegarder la carte, par exemple) sans que la simulation n'ait à
+ * attendre.
+ * Elle partage les chunks de la carte, que celle-ci ne copie qu'au moment de les
+ * modifier (voir {@link GameMap#snapshot()}).
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class GameMapSnapshot {
+
+    /**
+     * Le registre donnant la signification des identifiants de blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * La hauteur de la carte, en nombre de cellules.
+     */
+    private final int height;
+
+    /**
+     * La largeur de la carte, en nombre de cellules.
+     */
+    private final int width;
+
+    /**
+     * La hauteur à laquelle se situe la surface du sol.
+     */
+    private final int soilHeight;
+
+    /**
+     * L'époque de la carte à laquelle cette snapshot a été prise.
+     */
+    private final int version;
+
+    /**
+     * Les colonnes de chunks d'une carte bornée, ou {@code null} si la carte est infinie.
+     */
+    private final Chunk[][] chunkColumns;
+
+    /**
+     * Les colonnes de chunks chargées d'une carte infinie, ou {@code null} si la carte
+     * est bornée.
+     */
+    private final Map<Integer, Chunk[]> loadedColumns;
+
+    /**
+     * Les chunks qui avaient été modifiés depuis leur chargement (ou leur dernière
+     * sauvegarde) au moment où cette snapshot a été prise.
+     */
+    private final Set<Chunk> modifiedChunks = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Crée une nouvelle instance de GameMapSnapshot.
+     * Les tableaux donnés ne doivent plus être modifiés par la carte.
+     *
+     * @param map La carte dont la snapshot est prise.
+     * @param version L'époque de la carte à laquelle la snapshot est prise.
+     * @param chunkColumns Les colonnes de chunks d'une carte bornée, ou {@code null}.
+     * @param loadedColumns Les colonnes de chunks d'une carte infinie, ou {@code null}.
+     */
+    GameMapSnapshot(GameMap map, int version, Chunk[][] chunkColumns,
+            Map<Integer, Chunk[]> loadedColumns) {
+        this.registry = map.getRegistry();
+        this.height = map.getHeight();
+        this.width = map.getWidth();
+        this.soilHeight = map.getSoilHeight();
+        this.version = version;
+        this.chunkColumns = chunkColumns;
+        this.loadedColumns = loadedColumns;
+        forEachColumn((chunks, index) -> {
+            for (Chunk chunk : chunks) {
+                if ((chunk != null) && chunk.isModified()) {
+                    modifiedChunks.add(chunk);
+                }
+            }
+        });
+    }
+
+    /**
+     * Donne le registre donnant la signification des identifiants de blocs de la carte.
+     *
+     * @return Le registre des blocs.
+     */
+    public BlockRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Donne la hauteur de la carte.
+     *
+     * @return La hauteur de la carte, en nombre de cellules.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Donne la largeur de la carte.
+     *
+     * @return La largeur de la carte, en nombre de cellules.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Vérifie si la carte est infinie horizontalement.
+     *
+     * @return Si la carte est infinie.
+     */
+    public boolean isUnbounded() {
+        return chunkColumns == null;
+    }
+
+    /**
+     * Donne la hauteur à laquelle se situe la surface du sol.
+     *
+     * @return La hauteur du sol.
+     */
+    public int getSoilHeight() {
+        return soilHeight;
+    }
+
+    /**
+     * Donne la version de cette snapshot.
+     * Les snapshots successives d'une même carte ont des versions croissantes.
+     *
+     * @return La version de cette snapshot.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Vérifie si la position donnée fait partie de la carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Si la position fait partie de la carte.
+     */
+    public boolean contains(int row, int column) {
+        if ((row < 0) || (row >= height)) {
+            return false;
+        }
+        return (chunkColumns == null) || ((column >= 0) && (column < width));
+    }
+
+    /**
+     * Vérifie si la colonne de chunks contenant une colonne de cellules était chargée au
+     * moment où cette snapshot a été prise.
+     *
+     * @param column La colonne de cellules.
+     *
+     * @return Si la colonne était chargée.
+     */
+    public boolean isLoaded(int column) {
+        return columnOf(column) != null;
+    }
+
+    /**
+     * Donne l'identifiant du bloc à la position donnée au moment où cette snapshot a été
+     * prise.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return L'identifiant du bloc à la position donnée, ou
+     *         {@link BlockRegistry#EMPTY} si sa colonne n'était pas chargée.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de la carte.
+     */
+    public short getBlockAt(int row, int column) {
+        if (!contains(row, column)) {
+            throw new IllegalArgumentException("Incorrect cell location!");
+        }
+
+        Chunk[] chunks = columnOf(column);
+        if (chunks == null) {
+            return BlockRegistry.EMPTY;
+        }
+
+        Chunk chunk = chunks[row >> Chunk.SHIFT];
+        if (chunk == null) {
+            return BlockRegistry.EMPTY;
+        }
+        return chunk.get(row, column);
+    }
+
+    /**
+     * Applique une action sur chacune des colonnes de chunks de cette snapshot.
+     * Les chunks ne doivent pas être modifiés par l'action.
+     *
+     * @param action L'action à appliquer, qui reçoit la colonne de chunks et sa
+     *        position.
+     */
+    void forEachColumn(ObjIntConsumer<Chunk[]> action) {
+        if (chunkColumns == null) {
+            for (Map.Entry<Integer, Chunk[]> entry : loadedColumns.entrySet()) {
+                action.accept(entry.getValue(), entry.getKey());
+            }
+
+        } else {
+            for (int i = 0; i < chunkColumns.length; i++) {
+                if (chunkColumns[i] != null) {
+                    action.accept(chunkColumns[i], i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Vérifie si un chunk de cette snapshot avait été modifié depuis son chargement (ou
+     * sa dernière sauvegarde) au moment où la snapshot a été prise.
+     *
+     * @param chunk Le chunk à vérifier.
+     *
+     * @return Si le chunk avait été modifié.
+     */
+    boolean isModified(Chunk chunk) {
+        return modifiedChunks.contains(chunk);
+    }
+
+    /**
+     * Donne la colonne de chunks contenant une colonne de cellules.
+     *
+     * @param column La colonne de cellules.
+     *
+     * @return La colonne de chunks, ou {@code null} si elle n'était pas chargée.
+     */
+    private Chunk[] columnOf(int column) {
+        int index = column >> Chunk.SHIFT;
+        if (chunkColumns == null) {
+            return loadedColumns.get(index);
+        }
+
+        if ((index < 0) || (index >= chunkColumns.length)) {
+            return null;
+        }
+        return chunkColumns[index];
+    }
+
+}
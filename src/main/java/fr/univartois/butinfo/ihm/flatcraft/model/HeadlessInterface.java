@@ -0,0 +1,81 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface;
+
+/**
+ * La classe {@link HeadlessInterface} est une interface du jeu qui n'affiche rien.
+ * Elle permet de faire tourner une partie sans interface graphique, par exemple pour la
+ * rejouer ou pour en mesurer les performances.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class HeadlessInterface implements TerrariaInterface {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#setGame(fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame)
+     */
+    @Override
+    public void setGame(FlatcraftGame game) {
+        // Rien à afficher.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#initializeView(fr.univartois.butinfo.ihm.flatcraft.model.GameMap)
+     */
+    @Override
+    public void initializeView(GameMap gameMap) {
+        // Rien à afficher.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#addMovableObject(fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable)
+     */
+    @Override
+    public void addMovableObject(AbstractMovable movableObject) {
+        // Rien à afficher.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#removeMovableObject(fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable)
+     */
+    @Override
+    public void removeMovableObject(AbstractMovable movableObject) {
+        // Rien à afficher.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#cellsChanged(fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch)
+     */
+    @Override
+    public void cellsChanged(CellChangeBatch changes) {
+        // Rien à afficher.
+    }
+
+}
@@ -0,0 +1,264 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * La classe {@link InputRecorder} enregistre dans un fichier tout ce qui est nécessaire
+ * pour rejouer une partie de Flatcraft à l'identique : ses paramètres (dont sa graine),
+ * puis les actions des joueurs, chacune datée par le numéro du pas de simulation au cours
+ * duquel elle a été réalisée.
+ *
+ * Comme la partie est entièrement déterminée par sa graine et par ces actions, un
+ * {@link InputReplayer} peut ensuite la rejouer sans interface graphique, aussi vite que
+ * possible.
+ * À la fermeture de l'enregistreur, une empreinte de l'état final de la partie est
+ * ajoutée au fichier, afin de vérifier que la partie rejouée se termine dans le même
+ * état.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class InputRecorder implements Closeable {
+
+    /**
+     * Le nombre magique identifiant un fichier d'enregistrement ("FLRC").
+     */
+    static final int MAGIC = 0x464c5243;
+
+    /**
+     * La version du format des fichiers d'enregistrement.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Le type de l'événement marquant la fin de l'enregistrement.
+     */
+    static final byte END = 0;
+
+    /**
+     * Le type de l'événement correspondant à l'action d'un joueur.
+     */
+    static final byte ACTION = 1;
+
+    /**
+     * Le type de l'événement correspondant à l'arrivée d'un joueur.
+     */
+    static final byte JOIN = 2;
+
+    /**
+     * Le type de l'événement correspondant au départ d'un joueur.
+     */
+    static final byte LEAVE = 3;
+
+    /**
+     * La partie enregistrée.
+     */
+    private final FlatcraftGame game;
+
+    /**
+     * Le flux dans lequel les événements sont écrits.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * Le nombre d'événements enregistrés.
+     */
+    private int eventCount;
+
+    /**
+     * Crée une nouvelle instance d'InputRecorder.
+     *
+     * @param game La partie enregistrée.
+     * @param output Le flux dans lequel les événements sont écrits.
+     */
+    private InputRecorder(FlatcraftGame game, DataOutputStream output) {
+        this.game = game;
+        this.output = output;
+    }
+
+    /**
+     * Commence l'enregistrement d'une partie.
+     * La partie doit avoir été préparée (avec {@link FlatcraftGame#prepare()}), mais
+     * aucun pas de simulation ne doit encore avoir été réalisé.
+     *
+     * @param file Le fichier dans lequel enregistrer la partie.
+     * @param game La partie à enregistrer.
+     *
+     * @return L'enregistreur de la partie.
+     *
+     * @throws IOException Si le fichier ne peut pas être écrit.
+     * @throws IllegalStateException Si la partie n'est pas prête à être enregistrée.
+     */
+    public static InputRecorder start(Path file, FlatcraftGame game) throws IOException {
+        if ((game.getMap() == null) || (game.getGameLoop().getTickCount() != 0)) {
+            throw new IllegalStateException("Game must be recorded from its first tick!");
+        }
+
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(game.getSeed());
+        output.writeInt(game.getWidth());
+        output.writeInt(game.getHeight());
+        output.writeBoolean(game.getMap().isUnbounded());
+        output.writeBoolean(game.hasLocalPlayer());
+        output.writeInt(game.getGameLoop().getTickRate());
+
+        InputRecorder recorder = new InputRecorder(game, output);
+        game.setRecorder(recorder);
+        return recorder;
+    }
+
+    /**
+     * Donne le nombre d'événements enregistrés jusqu'à présent.
+     *
+     * @return Le nombre d'événements enregistrés.
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Enregistre l'action d'un joueur.
+     *
+     * @param rank Le rang du joueur dans la partie.
+     * @param action L'action réalisée.
+     *
+     * @throws UncheckedIOException Si l'événement ne peut pas être écrit.
+     */
+    void actionPerformed(int rank, PlayerAction action) {
+        try {
+            beginEvent(ACTION);
+            output.writeShort(rank);
+            output.writeByte(action.getCode());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Enregistre l'arrivée d'un joueur.
+     *
+     * @param spriteName Le nom du sprite représentant le joueur.
+     *
+     * @throws UncheckedIOException Si l'événement ne peut pas être écrit.
+     */
+    void playerAdded(String spriteName) {
+        try {
+            beginEvent(JOIN);
+            output.writeUTF(spriteName);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Enregistre le départ d'un joueur.
+     *
+     * @param rank Le rang du joueur dans la partie.
+     *
+     * @throws UncheckedIOException Si l'événement ne peut pas être écrit.
+     */
+    void playerRemoved(int rank) {
+        try {
+            beginEvent(LEAVE);
+            output.writeShort(rank);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Commence l'écriture d'un événement, daté par le numéro du pas de simulation en
+     * cours.
+     *
+     * @param type Le type de l'événement.
+     *
+     * @throws IOException Si l'événement ne peut pas être écrit.
+     */
+    private void beginEvent(byte type) throws IOException {
+        output.writeByte(type);
+        output.writeLong(game.getGameLoop().getTickCount());
+        eventCount++;
+    }
+
+    /**
+     * Termine l'enregistrement, en y ajoutant le nombre de pas de simulation réalisés et
+     * l'empreinte de l'état final de la partie.
+     *
+     * @throws IOException Si la fin de l'enregistrement ne peut pas être écrite.
+     */
+    @Override
+    public void close() throws IOException {
+        game.setRecorder(null);
+        try (output) {
+            output.writeByte(END);
+            output.writeLong(game.getGameLoop().getTickCount());
+            output.writeLong(checksum(game));
+        }
+    }
+
+    /**
+     * Calcule une empreinte de l'état d'une partie : les blocs des parties chargées de sa
+     * carte, ainsi que la position et les points de vie de ses objets mobiles.
+     * Deux parties dans le même état ont la même empreinte.
+     *
+     * @param game La partie dont l'empreinte doit être calculée.
+     *
+     * @return L'empreinte de la partie.
+     */
+    static long checksum(FlatcraftGame game) {
+        GameMapSnapshot snapshot = game.getMap().snapshot();
+        long[] blocks = new long[1];
+        snapshot.forEachColumn((chunks, chunkColumn) -> {
+            long hash = chunkColumn;
+            int first = chunkColumn * GameMap.CHUNK_SIZE;
+            for (int column = first; column < (first + GameMap.CHUNK_SIZE); column++) {
+                for (int row = 0; row < snapshot.getHeight(); row++) {
+                    if (snapshot.contains(row, column)) {
+                        hash = (31 * hash) + snapshot.getBlockAt(row, column);
+                    }
+                }
+            }
+            // Les colonnes ne sont pas parcourues dans un ordre déterminé : leurs
+            // empreintes sont donc additionnées.
+            blocks[0] += GameMapGenerator.deriveSeed(hash, chunkColumn);
+        });
+
+        long hash = blocks[0];
+        for (AbstractMovable movable : game.getMovables()) {
+            hash = (31 * hash) + movable.getSpriteName().hashCode();
+            hash = (31 * hash) + movable.getRow();
+            hash = (31 * hash) + movable.getColumn();
+            hash = (31 * hash) + movable.getHealth();
+        }
+        return hash;
+    }
+
+}
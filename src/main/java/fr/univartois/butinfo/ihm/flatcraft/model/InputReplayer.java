@@ -0,0 +1,350 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface;
+
+/**
+ * La classe {@link InputReplayer} rejoue une partie de Flatcraft enregistrée par un
+ * {@link InputRecorder}.
+ *
+ * La partie est recréée à partir de sa graine, puis les actions des joueurs y sont
+ * appliquées lors des mêmes pas de simulation que pendant l'enregistrement.
+ * Les pas de simulation sont réalisés sans attendre, et sans interface graphique : une
+ * partie enregistrée peut ainsi servir à reproduire un bogue, ou de charge réaliste pour
+ * mesurer les performances du jeu.
+ * Un enregistrement interrompu (par exemple par un plantage) est rejoué jusqu'à sa
+ * dernière action.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class InputReplayer {
+
+    /**
+     * La graine de la partie enregistrée.
+     */
+    private final long seed;
+
+    /**
+     * La largeur de la partie enregistrée.
+     */
+    private final int width;
+
+    /**
+     * La hauteur de la partie enregistrée.
+     */
+    private final int height;
+
+    /**
+     * Si la carte de la partie enregistrée est infinie.
+     */
+    private final boolean unbounded;
+
+    /**
+     * Si la partie enregistrée a un joueur local.
+     */
+    private final boolean localPlayer;
+
+    /**
+     * Le nombre de pas de simulation par seconde de la partie enregistrée.
+     */
+    private final int tickRate;
+
+    /**
+     * Les types des événements enregistrés.
+     */
+    private byte[] types = new byte[64];
+
+    /**
+     * Les numéros des pas de simulation au cours desquels les événements ont eu lieu.
+     */
+    private long[] ticks = new long[64];
+
+    /**
+     * Les rangs des joueurs concernés par les événements.
+     */
+    private int[] ranks = new int[64];
+
+    /**
+     * Les codes des actions enregistrées.
+     */
+    private byte[] actions = new byte[64];
+
+    /**
+     * Les noms des sprites des joueurs arrivés dans la partie.
+     */
+    private String[] sprites = new String[64];
+
+    /**
+     * Le nombre d'événements enregistrés.
+     */
+    private int size;
+
+    /**
+     * Si l'enregistrement a été terminé normalement.
+     */
+    private boolean complete;
+
+    /**
+     * Le nombre de pas de simulation réalisés pendant l'enregistrement.
+     */
+    private long tickCount;
+
+    /**
+     * L'empreinte de l'état final de la partie enregistrée.
+     */
+    private long checksum;
+
+    /**
+     * Crée une nouvelle instance d'InputReplayer.
+     *
+     * @param seed La graine de la partie enregistrée.
+     * @param width La largeur de la partie enregistrée.
+     * @param height La hauteur de la partie enregistrée.
+     * @param unbounded Si la carte de la partie enregistrée est infinie.
+     * @param localPlayer Si la partie enregistrée a un joueur local.
+     * @param tickRate Le nombre de pas de simulation par seconde de la partie.
+     */
+    private InputReplayer(long seed, int width, int height, boolean unbounded,
+            boolean localPlayer, int tickRate) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.unbounded = unbounded;
+        this.localPlayer = localPlayer;
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * Lit l'enregistrement d'une partie.
+     * Tous les événements sont lus dès maintenant, afin que la partie puisse ensuite
+     * être rejouée (éventuellement plusieurs fois) sans lire le fichier.
+     *
+     * @param file Le fichier contenant l'enregistrement.
+     *
+     * @return L'enregistrement lu, prêt à être rejoué.
+     *
+     * @throws IOException Si le fichier ne peut pas être lu, ou n'est pas un
+     *         enregistrement valide.
+     */
+    public static InputReplayer load(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if ((input.readInt() != InputRecorder.MAGIC)
+                    || (input.readInt() != InputRecorder.VERSION)) {
+                throw new IOException("Not a valid recording in " + file);
+            }
+
+            InputReplayer replayer = new InputReplayer(input.readLong(), input.readInt(),
+                    input.readInt(), input.readBoolean(), input.readBoolean(),
+                    input.readInt());
+            replayer.readEvents(input);
+            return replayer;
+        }
+    }
+
+    /**
+     * Lit les événements de l'enregistrement, jusqu'à sa fin ou jusqu'à la fin du
+     * fichier si l'enregistrement a été interrompu.
+     *
+     * @param input Le flux dans lequel lire les événements.
+     *
+     * @throws IOException Si un événement est incorrect.
+     */
+    private void readEvents(DataInputStream input) throws IOException {
+        try {
+            while (true) {
+                byte type = input.readByte();
+                long tick = input.readLong();
+                if (type == InputRecorder.END) {
+                    tickCount = tick;
+                    checksum = input.readLong();
+                    complete = true;
+                    return;
+                }
+
+                ensureCapacity();
+                types[size] = type;
+                ticks[size] = tick;
+                switch (type) {
+                    case InputRecorder.ACTION -> {
+                        ranks[size] = input.readShort();
+                        actions[size] = input.readByte();
+                        PlayerAction.fromCode(actions[size]);
+                    }
+                    case InputRecorder.JOIN -> sprites[size] = input.readUTF();
+                    case InputRecorder.LEAVE -> ranks[size] = input.readShort();
+                    default -> throw new IOException("Unknown event type " + type);
+                }
+                size++;
+                tickCount = tick;
+            }
+
+        } catch (EOFException e) {
+            // L'enregistrement a été interrompu : les événements complets sont conservés.
+
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Incorrect recorded action", e);
+        }
+    }
+
+    /**
+     * S'assure qu'un nouvel événement peut être ajouté.
+     */
+    private void ensureCapacity() {
+        if (size == types.length) {
+            int capacity = 2 * size;
+            types = Arrays.copyOf(types, capacity);
+            ticks = Arrays.copyOf(ticks, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            actions = Arrays.copyOf(actions, capacity);
+            sprites = Arrays.copyOf(sprites, capacity);
+        }
+    }
+
+    /**
+     * Donne la graine de la partie enregistrée.
+     *
+     * @return La graine de la partie.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Donne le nombre d'événements enregistrés.
+     *
+     * @return Le nombre d'événements.
+     */
+    public int getEventCount() {
+        return size;
+    }
+
+    /**
+     * Donne le nombre de pas de simulation rejoués.
+     * Pour un enregistrement interrompu, il s'agit du pas de sa dernière action.
+     *
+     * @return Le nombre de pas de simulation rejoués.
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Vérifie si l'enregistrement a été terminé normalement, et contient donc
+     * l'empreinte de l'état final de la partie.
+     *
+     * @return Si l'enregistrement est complet.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Rejoue la partie enregistrée, sans interface graphique.
+     *
+     * @return La partie rejouée, dans son état final.
+     */
+    public FlatcraftGame replay() {
+        return replay(new HeadlessInterface());
+    }
+
+    /**
+     * Rejoue la partie enregistrée, en informant une interface de son déroulement.
+     *
+     * @param terInter L'interface à informer du déroulement de la partie.
+     *
+     * @return La partie rejouée, dans son état final.
+     */
+    public FlatcraftGame replay(TerrariaInterface terInter) {
+        FlatcraftGame game = new FlatcraftGame(width, height);
+        game.setSeed(seed);
+        game.setUnbounded(unbounded);
+        game.setLocalPlayer(localPlayer);
+        game.getGameLoop().setTickRate(tickRate);
+        game.setTerInter(terInter);
+        terInter.setGame(game);
+        game.prepare();
+
+        GameLoop loop = game.getGameLoop();
+        for (int i = 0; i < size; i++) {
+            while (loop.getTickCount() < ticks[i]) {
+                loop.step();
+            }
+
+            switch (types[i]) {
+                case InputRecorder.ACTION -> game.perform(game.getPlayer(ranks[i]),
+                        PlayerAction.fromCode(actions[i]));
+                case InputRecorder.JOIN -> game.addPlayer(sprites[i]);
+                default -> game.removePlayer(game.getPlayer(ranks[i]));
+            }
+        }
+
+        while (loop.getTickCount() < tickCount) {
+            loop.step();
+        }
+        return game;
+    }
+
+    /**
+     * Vérifie si une partie rejouée s'est terminée dans le même état que la partie
+     * enregistrée.
+     *
+     * @param game La partie rejouée.
+     *
+     * @return Si l'enregistrement est complet, et si la partie rejouée est dans le même
+     *         état que la partie enregistrée.
+     */
+    public boolean matches(FlatcraftGame game) {
+        return complete && (InputRecorder.checksum(game) == checksum);
+    }
+
+    /**
+     * Rejoue une partie enregistrée aussi vite que possible, et affiche la durée et le
+     * résultat de la partie rejouée.
+     *
+     * @param args Le chemin du fichier contenant l'enregistrement.
+     *
+     * @throws IOException Si l'enregistrement ne peut pas être lu.
+     */
+    public static void main(String[] args) throws IOException {
+        InputReplayer replayer = load(Path.of(args[0]));
+        long start = System.nanoTime();
+        FlatcraftGame game = replayer.replay();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d ticks and %d events replayed in %.3f s (%.0f ticks/s)%n",
+                replayer.getTickCount(), replayer.getEventCount(), seconds,
+                replayer.getTickCount() / seconds);
+        if (replayer.isComplete()) {
+            System.out.println(replayer.matches(game) ? "Final state matches the recording"
+                    : "Final state DIFFERS from the recording");
+
+        } else {
+            System.out.println("Recording was interrupted: final state cannot be checked");
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * La classe {@link IntQueue} est une file d'entiers de type {@code int}, stockés sans
+ * être encapsulés dans des objets.
+ * Elle est implantée par un tableau circulaire, agrandi lorsqu'il est plein.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class IntQueue {
+
+    /**
+     * Les éléments de cette file.
+     */
+    private int[] elements = new int[64];
+
+    /**
+     * La position du premier élément de cette file.
+     */
+    private int head;
+
+    /**
+     * Le nombre d'éléments dans cette file.
+     */
+    private int size;
+
+    /**
+     * Ajoute un élément à la fin de cette file.
+     *
+     * @param element L'élément à ajouter.
+     */
+    void add(int element) {
+        if (size == elements.length) {
+            int[] grown = Arrays.copyOfRange(elements, head, head + (2 * size));
+            System.arraycopy(elements, 0, grown, size - head, head);
+            elements = grown;
+            head = 0;
+        }
+        elements[(head + size) % elements.length] = element;
+        size++;
+    }
+
+    /**
+     * Retire le premier élément de cette file.
+     *
+     * @return L'élément retiré.
+     *
+     * @throws NoSuchElementException Si cette file est vide.
+     */
+    int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("Empty queue!");
+        }
+
+        int element = elements[head];
+        head = (head + 1) % elements.length;
+        size--;
+        return element;
+    }
+
+    /**
+     * Donne le nombre d'éléments dans cette file.
+     *
+     * @return Le nombre d'éléments dans cette file.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vérifie si cette file est vide.
+     *
+     * @return Si cette file est vide.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retire tous les éléments de cette file.
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+}
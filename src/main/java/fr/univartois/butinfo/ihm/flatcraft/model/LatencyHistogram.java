@@ -0,0 +1,176 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * La classe {@link LatencyHistogram} compte des durées (en nanosecondes) selon leur ordre
+ * de grandeur.
+ * Chaque case de l'histogramme regroupe les durées comprises entre deux puissances de 2
+ * successives : enregistrer une durée ne coûte que quelques opérations, sans allocation,
+ * et peut être fait depuis plusieurs threads à la fois.
+ * Les percentiles ainsi calculés sont approchés, au double près.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ *
+ * @see PerformanceMetrics
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Le nombre de cases de l'histogramme, une par puissance de 2 d'un {@code long}.
+     */
+    private static final int BUCKETS = Long.SIZE;
+
+    /**
+     * Le nom de la mesure représentée par cet histogramme.
+     */
+    private final String name;
+
+    /**
+     * Le nombre de durées enregistrées dans chaque case.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * La somme des durées enregistrées.
+     */
+    private final AtomicLong total = new AtomicLong();
+
+    /**
+     * La plus grande durée enregistrée.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Crée une nouvelle instance de LatencyHistogram.
+     *
+     * @param name Le nom de la mesure représentée par l'histogramme.
+     */
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Donne le nom de la mesure représentée par cet histogramme.
+     *
+     * @return Le nom de la mesure.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Enregistre une durée.
+     *
+     * @param nanos La durée à enregistrer, en nanosecondes.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(value | 1));
+        total.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Enregistre la durée écoulée depuis un instant donné.
+     *
+     * @param start L'instant de départ, donné par {@link System#nanoTime()}.
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    /**
+     * Donne le nombre de durées enregistrées.
+     *
+     * @return Le nombre de durées enregistrées.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Donne la somme des durées enregistrées.
+     *
+     * @return La somme des durées, en nanosecondes.
+     */
+    public long getTotalNanos() {
+        return total.get();
+    }
+
+    /**
+     * Donne la plus grande durée enregistrée.
+     *
+     * @return La plus grande durée, en nanosecondes.
+     */
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Donne la durée moyenne enregistrée.
+     *
+     * @return La durée moyenne, en nanosecondes, ou {@code 0} si aucune durée n'a été
+     *         enregistrée.
+     */
+    public double getMeanNanos() {
+        long count = getCount();
+        return (count == 0) ? 0 : ((double) getTotalNanos() / count);
+    }
+
+    /**
+     * Donne une valeur approchée (par excès) d'un percentile des durées enregistrées.
+     *
+     * @param percentile Le percentile voulu, entre {@code 0} et {@code 100}.
+     *
+     * @return La borne supérieure de la case contenant le percentile, en nanosecondes
+     *         (sans dépasser la plus grande durée enregistrée).
+     */
+    public long getPercentileNanos(double percentile) {
+        long count = getCount();
+        long rank = (long) Math.ceil((percentile / 100) * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if ((seen > 0) && (seen >= rank)) {
+                long upper = (i == (BUCKETS - 1)) ? Long.MAX_VALUE : ((2L << i) - 1);
+                return Math.min(upper, getMaxNanos());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Oublie toutes les durées enregistrées.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        total.set(0);
+        max.set(0);
+    }
+
+}
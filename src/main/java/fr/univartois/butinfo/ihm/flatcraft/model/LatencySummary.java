@@ -0,0 +1,143 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * La classe {@link LatencySummary} résume le contenu d'un {@link LatencyHistogram} à un
+ * instant donné, avec des durées exprimées en microsecondes.
+ * Elle est exposée telle quelle par le {@link PerformanceMetricsMXBean}.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class LatencySummary {
+
+    /**
+     * Le nombre de nanosecondes dans une microseconde.
+     */
+    private static final double NANOS_PER_MICRO = 1e3;
+
+    /**
+     * Le nom de la mesure résumée.
+     */
+    private final String name;
+
+    /**
+     * Le nombre de durées enregistrées.
+     */
+    private final long count;
+
+    /**
+     * La durée moyenne, en microsecondes.
+     */
+    private final double meanMicros;
+
+    /**
+     * La valeur approchée de la médiane des durées, en microsecondes.
+     */
+    private final double medianMicros;
+
+    /**
+     * La valeur approchée du 99e percentile des durées, en microsecondes.
+     */
+    private final double p99Micros;
+
+    /**
+     * La plus grande durée, en microsecondes.
+     */
+    private final double maxMicros;
+
+    /**
+     * Crée une nouvelle instance de LatencySummary.
+     *
+     * @param histogram L'histogramme à résumer.
+     */
+    LatencySummary(LatencyHistogram histogram) {
+        this.name = histogram.getName();
+        this.count = histogram.getCount();
+        this.meanMicros = histogram.getMeanNanos() / NANOS_PER_MICRO;
+        this.medianMicros = histogram.getPercentileNanos(50) / NANOS_PER_MICRO;
+        this.p99Micros = histogram.getPercentileNanos(99) / NANOS_PER_MICRO;
+        this.maxMicros = histogram.getMaxNanos() / NANOS_PER_MICRO;
+    }
+
+    /**
+     * Donne le nom de la mesure résumée.
+     *
+     * @return Le nom de la mesure.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Donne le nombre de durées enregistrées.
+     *
+     * @return Le nombre de durées enregistrées.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Donne la durée moyenne.
+     *
+     * @return La durée moyenne, en microsecondes.
+     */
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    /**
+     * Donne la valeur approchée de la médiane des durées.
+     *
+     * @return La médiane des durées, en microsecondes.
+     */
+    public double getMedianMicros() {
+        return medianMicros;
+    }
+
+    /**
+     * Donne la valeur approchée du 99e percentile des durées.
+     *
+     * @return Le 99e percentile des durées, en microsecondes.
+     */
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * Donne la plus grande durée.
+     *
+     * @return La plus grande durée, en microsecondes.
+     */
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: n=%d, mean=%.1fµs, p50<=%.1fµs, p99<=%.1fµs, max=%.1fµs",
+                name, count, meanMicros, medianMicros, p99Micros, maxMicros);
+    }
+
+}
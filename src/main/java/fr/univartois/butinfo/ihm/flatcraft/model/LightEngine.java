@@ -0,0 +1,497 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * La classe {@link LightEngine} calcule le niveau de lumière de chacune des cellules
+ * d'une {@link GameMap}, entre {@code 0} (l'obscurité totale) et {@value #MAX_LIGHT} (la
+ * pleine lumière du jour).
+ *
+ * La lumière provient du ciel, qui éclaire sans perte toutes les cellules d'air situées
+ * sous lui, et des blocs émettant de la lumière (voir
+ * {@link BlockRegistry#getLightEmission(short)}).
+ * Elle se propage ensuite de proche en proche (par un parcours en largeur), en perdant
+ * d'autant plus d'intensité que les blocs qu'elle traverse sont opaques.
+ *
+ * Les niveaux de lumière sont rangés par colonne de chunks, deux cellules par octet.
+ * Lorsqu'une cellule est modifiée, seule la région éclairée par cette cellule est
+ * éteinte, puis éclairée de nouveau à partir de ses bords : la carte n'est jamais
+ * recalculée entièrement.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class LightEngine implements CellListener {
+
+    /**
+     * Le niveau de lumière maximal, qui est celui de la lumière du jour.
+     */
+    public static final int MAX_LIGHT = 15;
+
+    /**
+     * Le niveau de lumière maximal émis par un bloc.
+     * Il est inférieur à {@link #MAX_LIGHT}, afin que seule la lumière du ciel se propage
+     * vers le bas sans perte.
+     */
+    public static final int MAX_EMISSION = MAX_LIGHT - 1;
+
+    /**
+     * La perte de lumière dans l'air.
+     */
+    private static final int AIR_ATTENUATION = 1;
+
+    /**
+     * La perte de lumière dans un bloc qui n'est pas une ressource (un arbre, des
+     * feuilles...) ou dans un fluide.
+     */
+    private static final int TRANSLUCENT_ATTENUATION = 2;
+
+    /**
+     * La perte de lumière dans une ressource (la terre, les minerais...).
+     */
+    private static final int OPAQUE_ATTENUATION = 4;
+
+    /**
+     * La carte dont les cellules sont éclairées.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre donnant la nature des blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * Les niveaux de lumière des colonnes de chunks éclairées, indexés par la position de
+     * ces colonnes.
+     */
+    private final Map<Integer, byte[]> lightColumns = new HashMap<>();
+
+    /**
+     * Les cellules dont la lumière doit être propagée, rangées par paires (ligne puis
+     * colonne).
+     */
+    private final IntQueue additions = new IntQueue();
+
+    /**
+     * Les cellules dont la lumière doit être éteinte, rangées par triplets (ligne,
+     * colonne puis ancien niveau de lumière).
+     */
+    private final IntQueue removals = new IntQueue();
+
+    /**
+     * Les objets informés des changements de niveau de lumière des cellules.
+     */
+    private final List<CellListener> listeners = new ArrayList<>();
+
+    /**
+     * Crée une nouvelle instance de LightEngine, et l'inscrit auprès de la carte pour
+     * être informé de ses modifications.
+     * Aucune cellule n'est éclairée tant que {@link #ensureLit(int, int)} n'a pas été
+     * appelée.
+     *
+     * @param map La carte dont les cellules sont éclairées.
+     */
+    public LightEngine(GameMap map) {
+        this.map = map;
+        this.registry = map.getRegistry();
+        map.addCellListener(this);
+    }
+
+    /**
+     * Ajoute un objet à informer des changements de niveau de lumière des cellules.
+     *
+     * @param listener L'objet à informer.
+     */
+    public void addLightListener(CellListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un objet informé des changements de niveau de lumière des cellules.
+     *
+     * @param listener L'objet à ne plus informer.
+     */
+    public void removeLightListener(CellListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Donne le niveau de lumière d'une cellule de la carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Le niveau de lumière de la cellule, ou {@code 0} si elle n'est pas encore
+     *         éclairée.
+     */
+    public int getLightAt(int row, int column) {
+        byte[] light = lightColumns.get(column >> Chunk.SHIFT);
+        if ((light == null) || (row < 0) || (row >= map.getHeight())) {
+            return 0;
+        }
+        return get(light, row, column);
+    }
+
+    /**
+     * Donne le nombre de colonnes de chunks actuellement éclairées.
+     *
+     * @return Le nombre de colonnes de chunks éclairées.
+     */
+    public int getLitChunkColumnCount() {
+        return lightColumns.size();
+    }
+
+    /**
+     * Éclaire les colonnes de chunks contenant les colonnes de cellules données, si elles
+     * ne le sont pas déjà.
+     * La lumière des colonnes voisines déjà éclairées se propage dans les nouvelles
+     * colonnes, et inversement.
+     *
+     * @param fromColumn La première colonne de cellules à éclairer.
+     * @param toColumn La dernière colonne de cellules à éclairer.
+     */
+    public void ensureLit(int fromColumn, int toColumn) {
+        if (!map.isUnbounded()) {
+            fromColumn = Math.max(fromColumn, 0);
+            toColumn = Math.min(toColumn, map.getWidth() - 1);
+        }
+
+        for (int i = fromColumn >> Chunk.SHIFT; i <= (toColumn >> Chunk.SHIFT); i++) {
+            if (!lightColumns.containsKey(i)) {
+                light(i);
+            }
+        }
+        propagate();
+    }
+
+    /**
+     * Oublie les niveaux de lumière des colonnes de chunks qui ne sont plus chargées par
+     * la carte.
+     *
+     * @return Le nombre de colonnes de chunks oubliées.
+     */
+    public int forgetUnloaded() {
+        int forgotten = 0;
+        for (Iterator<Integer> it = lightColumns.keySet().iterator(); it.hasNext();) {
+            if (!map.isChunkColumnLoaded(it.next())) {
+                it.remove();
+                forgotten++;
+            }
+        }
+        return forgotten;
+    }
+
+    /**
+     * Initialise la lumière d'une colonne de chunks, sans la propager.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     */
+    private void light(int chunkColumn) {
+        lightColumns.put(chunkColumn, new byte[map.getHeight() * Chunk.SIZE / 2]);
+        int first = chunkColumn << Chunk.SHIFT;
+        int last = first + Chunk.SIZE - 1;
+        if (!map.isUnbounded()) {
+            last = Math.min(last, map.getWidth() - 1);
+        }
+
+        for (int column = first; column <= last; column++) {
+            // La lumière du ciel descend sans perte jusqu'au premier bloc.
+            int row = 0;
+            while ((row < map.getHeight()) && registry.isAir(map.getBlockAt(row, column))) {
+                raise(row, column, MAX_LIGHT);
+                row++;
+            }
+
+            for (; row < map.getHeight(); row++) {
+                raise(row, column, sourceLevel(row, column));
+            }
+        }
+
+        // Les colonnes voisines déjà éclairées éclairent celle-ci.
+        enqueueColumn(first - 1);
+        enqueueColumn(first + Chunk.SIZE);
+    }
+
+    /**
+     * Ajoute toutes les cellules d'une colonne aux cellules à propager, si elle est
+     * éclairée.
+     *
+     * @param column La colonne de cellules.
+     */
+    private void enqueueColumn(int column) {
+        if (lightColumns.containsKey(column >> Chunk.SHIFT)) {
+            for (int row = 0; row < map.getHeight(); row++) {
+                additions.add(row);
+                additions.add(column);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.CellListener#cellChanged(int, int)
+     */
+    @Override
+    public void cellChanged(int row, int column) {
+        byte[] light = lightColumns.get(column >> Chunk.SHIFT);
+        if (light == null) {
+            return;
+        }
+
+        // On éteint d'abord la région qui était éclairée par cette cellule.
+        int old = get(light, row, column);
+        change(row, column, 0);
+        removals.add(row);
+        removals.add(column);
+        removals.add(old);
+        unpropagate();
+
+        // Puis on l'éclaire de nouveau à partir de la cellule et de ses voisines.
+        raise(row, column, sourceLevel(row, column));
+        enqueue(row - 1, column);
+        enqueue(row + 1, column);
+        enqueue(row, column - 1);
+        enqueue(row, column + 1);
+        propagate();
+    }
+
+    /**
+     * Éteint les cellules de la file des cellules à éteindre, ainsi que celles qu'elles
+     * éclairaient.
+     * Les cellules éclairées par une autre source sont ajoutées aux cellules à propager.
+     */
+    private void unpropagate() {
+        while (!removals.isEmpty()) {
+            int row = removals.poll();
+            int column = removals.poll();
+            int level = removals.poll();
+            unpropagate(row - 1, column, level, false);
+            unpropagate(row + 1, column, level, true);
+            unpropagate(row, column - 1, level, false);
+            unpropagate(row, column + 1, level, false);
+        }
+    }
+
+    /**
+     * Éteint une cellule voisine d'une cellule venant d'être éteinte, si elle était
+     * éclairée par cette dernière.
+     *
+     * @param row La ligne de la cellule voisine.
+     * @param column La colonne de la cellule voisine.
+     * @param level L'ancien niveau de lumière de la cellule venant d'être éteinte.
+     * @param below Si la cellule voisine est sous la cellule venant d'être éteinte.
+     */
+    private void unpropagate(int row, int column, int level, boolean below) {
+        byte[] light = lightOf(row, column);
+        if (light == null) {
+            return;
+        }
+
+        int neighbor = get(light, row, column);
+        if (neighbor == 0) {
+            return;
+        }
+
+        if ((neighbor < level) || (below && (level == MAX_LIGHT) && (neighbor == MAX_LIGHT))) {
+            // La cellule était éclairée par la cellule éteinte (ou par le même rayon de
+            // lumière du ciel).
+            change(row, column, 0);
+            removals.add(row);
+            removals.add(column);
+            removals.add(neighbor);
+            raise(row, column, sourceLevel(row, column));
+
+        } else {
+            // La cellule est éclairée par une autre source, qui éclairera de nouveau la
+            // région éteinte.
+            enqueue(row, column);
+        }
+    }
+
+    /**
+     * Propage la lumière des cellules de la file des cellules à propager.
+     */
+    private void propagate() {
+        while (!additions.isEmpty()) {
+            int row = additions.poll();
+            int column = additions.poll();
+            byte[] light = lightColumns.get(column >> Chunk.SHIFT);
+            int level = get(light, row, column);
+            if (level > 0) {
+                propagate(row - 1, column, level, false);
+                propagate(row + 1, column, level, true);
+                propagate(row, column - 1, level, false);
+                propagate(row, column + 1, level, false);
+            }
+        }
+    }
+
+    /**
+     * Éclaire une cellule voisine d'une cellule éclairée.
+     *
+     * @param row La ligne de la cellule voisine.
+     * @param column La colonne de la cellule voisine.
+     * @param level Le niveau de lumière de la cellule éclairée.
+     * @param below Si la cellule voisine est sous la cellule éclairée.
+     */
+    private void propagate(int row, int column, int level, boolean below) {
+        if (lightOf(row, column) == null) {
+            return;
+        }
+
+        short block = map.getBlockAt(row, column);
+        int newLevel;
+        if (below && (level == MAX_LIGHT) && registry.isAir(block)) {
+            // La lumière du ciel descend sans perte dans l'air.
+            newLevel = MAX_LIGHT;
+
+        } else {
+            newLevel = level - attenuation(block);
+        }
+        raise(row, column, newLevel);
+    }
+
+    /**
+     * Augmente le niveau de lumière d'une cellule s'il est inférieur à celui donné, et
+     * l'ajoute alors aux cellules à propager.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param level Le nouveau niveau de lumière de la cellule.
+     */
+    private void raise(int row, int column, int level) {
+        byte[] light = lightColumns.get(column >> Chunk.SHIFT);
+        if (level > get(light, row, column)) {
+            change(row, column, level);
+            additions.add(row);
+            additions.add(column);
+        }
+    }
+
+    /**
+     * Ajoute une cellule aux cellules à propager, si elle est éclairée.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void enqueue(int row, int column) {
+        if (lightOf(row, column) != null) {
+            additions.add(row);
+            additions.add(column);
+        }
+    }
+
+    /**
+     * Donne le niveau de lumière dont une cellule dispose d'elle-même, indépendamment de
+     * ses voisines : celui qu'elle émet, ou celui du ciel si elle est sur la première
+     * ligne de la carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Le niveau de lumière propre à la cellule.
+     */
+    private int sourceLevel(int row, int column) {
+        short block = map.getBlockAt(row, column);
+        int level = registry.getLightEmission(block);
+        if (row == 0) {
+            int sky = registry.isAir(block) ? MAX_LIGHT : (MAX_LIGHT - attenuation(block));
+            level = Math.max(level, sky);
+        }
+        return level;
+    }
+
+    /**
+     * Donne la perte de lumière dans un bloc.
+     *
+     * @param block L'identifiant du bloc.
+     *
+     * @return La perte de lumière dans le bloc.
+     */
+    private int attenuation(short block) {
+        if (registry.isAir(block)) {
+            return AIR_ATTENUATION;
+        }
+
+        if (registry.isResource(block) && !registry.isFluid(block)) {
+            return OPAQUE_ATTENUATION;
+        }
+        return TRANSLUCENT_ATTENUATION;
+    }
+
+    /**
+     * Donne les niveaux de lumière de la colonne de chunks contenant une cellule.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Les niveaux de lumière de la colonne, ou {@code null} si la cellule n'existe
+     *         pas ou n'est pas éclairée.
+     */
+    private byte[] lightOf(int row, int column) {
+        if (!map.contains(row, column)) {
+            return null;
+        }
+        return lightColumns.get(column >> Chunk.SHIFT);
+    }
+
+    /**
+     * Modifie le niveau de lumière d'une cellule éclairée, en informant les objets
+     * concernés s'il change.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param level Le nouveau niveau de lumière de la cellule.
+     */
+    private void change(int row, int column, int level) {
+        byte[] light = lightColumns.get(column >> Chunk.SHIFT);
+        if (get(light, row, column) == level) {
+            return;
+        }
+
+        int index = (row << Chunk.SHIFT) | (column & Chunk.MASK);
+        int shift = (index & 1) << 2;
+        light[index >> 1] = (byte) ((light[index >> 1] & ~(0xf << shift)) | (level << shift));
+        for (CellListener listener : listeners) {
+            listener.cellChanged(row, column);
+        }
+    }
+
+    /**
+     * Lit le niveau de lumière d'une cellule dans les niveaux de lumière de sa colonne de
+     * chunks.
+     *
+     * @param light Les niveaux de lumière de la colonne de chunks.
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Le niveau de lumière de la cellule.
+     */
+    private static int get(byte[] light, int row, int column) {
+        int index = (row << Chunk.SHIFT) | (column & Chunk.MASK);
+        return (light[index >> 1] >> ((index & 1) << 2)) & 0xf;
+    }
+
+}
@@ -0,0 +1,204 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link LongSet} est un ensemble d'entiers de type {@code long}, stockés sans
+ * être encapsulés dans des objets.
+ * Elle est implantée par une table de hachage à adressage ouvert (avec sondage linéaire),
+ * agrandie lorsqu'elle est à moitié pleine.
+ * La valeur {@link Long#MIN_VALUE} y marque les cases libres : elle ne peut donc pas
+ * être ajoutée à l'ensemble.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class LongSet {
+
+    /**
+     * La valeur marquant une case libre de la table.
+     */
+    private static final long FREE = Long.MIN_VALUE;
+
+    /**
+     * La constante multiplicative utilisée pour mélanger les bits des éléments.
+     */
+    private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+    /**
+     * La table contenant les éléments de cet ensemble, dont la taille est une puissance
+     * de 2.
+     */
+    private long[] table = newTable(64);
+
+    /**
+     * Le nombre d'éléments dans cet ensemble.
+     */
+    private int size;
+
+    /**
+     * Ajoute un élément à cet ensemble, s'il n'y est pas déjà.
+     *
+     * @param element L'élément à ajouter.
+     *
+     * @return Si l'élément a été ajouté, c'est-à-dire s'il n'était pas déjà présent.
+     *
+     * @throws IllegalArgumentException Si l'élément est {@link Long#MIN_VALUE}.
+     */
+    boolean add(long element) {
+        if (element == FREE) {
+            throw new IllegalArgumentException("Unsupported element: " + element);
+        }
+
+        int mask = table.length - 1;
+        int i = slot(element, mask);
+        while (table[i] != FREE) {
+            if (table[i] == element) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = element;
+        size++;
+
+        if ((2 * size) > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Retire un élément de cet ensemble.
+     * Les éléments qui suivent l'élément retiré dans la table sont décalés, de sorte
+     * qu'aucune case supprimée ne ralentit les recherches suivantes.
+     *
+     * @param element L'élément à retirer.
+     *
+     * @return Si l'élément était présent dans cet ensemble.
+     */
+    boolean remove(long element) {
+        int mask = table.length - 1;
+        int hole = slot(element, mask);
+        while (table[hole] != element) {
+            if (table[hole] == FREE) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+
+        for (int i = (hole + 1) & mask; table[i] != FREE; i = (i + 1) & mask) {
+            // Un élément ne peut être décalé que si sa case d'origine précède le trou.
+            int home = slot(table[i], mask);
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Vérifie si un élément appartient à cet ensemble.
+     *
+     * @param element L'élément à rechercher.
+     *
+     * @return Si l'élément appartient à cet ensemble.
+     */
+    boolean contains(long element) {
+        int mask = table.length - 1;
+        for (int i = slot(element, mask); table[i] != FREE; i = (i + 1) & mask) {
+            if (table[i] == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Donne le nombre d'éléments dans cet ensemble.
+     *
+     * @return Le nombre d'éléments dans cet ensemble.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vérifie si cet ensemble est vide.
+     *
+     * @return Si cet ensemble est vide.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Retire tous les éléments de cet ensemble.
+     */
+    void clear() {
+        Arrays.fill(table, FREE);
+        size = 0;
+    }
+
+    /**
+     * Double la taille de la table, en y replaçant tous les éléments.
+     */
+    private void grow() {
+        long[] old = table;
+        table = newTable(2 * old.length);
+        int mask = table.length - 1;
+        for (long element : old) {
+            if (element != FREE) {
+                int i = slot(element, mask);
+                while (table[i] != FREE) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = element;
+            }
+        }
+    }
+
+    /**
+     * Calcule la case d'origine d'un élément dans la table.
+     *
+     * @param element L'élément dont la case est calculée.
+     * @param mask Le masque correspondant à la taille de la table.
+     *
+     * @return La case d'origine de l'élément.
+     */
+    private static int slot(long element, int mask) {
+        return (int) ((element * GOLDEN_RATIO) >>> 32) & mask;
+    }
+
+    /**
+     * Crée une table ne contenant que des cases libres.
+     *
+     * @param length La taille de la table.
+     *
+     * @return La table créée.
+     */
+    private static long[] newTable(int length) {
+        long[] newTable = new long[length];
+        Arrays.fill(newTable, FREE);
+        return newTable;
+    }
+
+}
@@ -14,17 +14,11 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import java.util.Random;
-
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.scene.image.Image;
-import javafx.util.Duration;
-
 /**
  * La classe Mob représente une créature vivante du jeu Flatcraft.
- * Celle-ci peut se déplacer seule, sans avoir besoin d'être contrôlée par le joueur.
+ * Celle-ci peut se déplacer seule, sans avoir besoin d'être contrôlée par le joueur :
+ * elle suit le {@link FlowField} du jeu pour rejoindre le joueur, et se déplace au hasard
+ * lorsqu'il est hors de portée.
  *
  * @author Romain Wallon
  *
@@ -33,41 +27,77 @@ import javafx.util.Duration;
 public final class Mob extends AbstractMovable {
 
     /**
-     * Le générateur de nombres pseudo-aléatoires utilisé pour les déplacements aléatoires
-     * des mobs.
+     * Si ce mob se déplace seul.
      */
-    private static final Random RANDOM = new Random();
+    private boolean animated;
 
     /**
-     * La timeline permettant d'animer le mob.
+     * Le nombre de pas de simulation restant avant le prochain déplacement de ce mob.
      */
-    private Timeline timeline;
+    private int ticksBeforeMove;
 
     /**
      * Crée une nouvelle instance de Mob.
      *
      * @param game Le jeu dans lequel le mob évolue.
-     * @param sprite Le sprite représentant le mob.
+     * @param spriteName Le nom du sprite représentant le mob.
      * @param initialHealth Les points de vie initiaux du mob.
      */
-    public Mob(FlatcraftGame game, Image sprite, int initialHealth) {
-        super(game, sprite, initialHealth);
+    public Mob(FlatcraftGame game, String spriteName, int initialHealth) {
+        super(game, spriteName, initialHealth);
     }
 
     /**
-     * Anime ce mob afin qu'il se déplace seul.
+     * Anime ce mob afin qu'il se déplace seul, environ une fois par seconde.
+     * Le premier déplacement a lieu au hasard dans la première seconde, afin que les
+     * mobs animés en même temps ne se déplacent pas tous lors du même pas de simulation.
      */
     public void animate() {
-        timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> moveRandomly()));
-        timeline.setCycleCount(Animation.INDEFINITE);
-        timeline.play();
+        animated = true;
+        ticksBeforeMove = 1 + game.getRandom().nextInt(game.getGameLoop().getTickRate());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        if (animated) {
+            ticksBeforeMove--;
+            if (ticksBeforeMove <= 0) {
+                ticksBeforeMove = game.getGameLoop().getTickRate();
+                move();
+            }
+        }
+    }
+
+    /**
+     * Rapproche ce mob du joueur, ou le déplace au hasard si le joueur n'est pas
+     * accessible.
+     */
+    private void move() {
+        FlowField field = game.getFlowField();
+        int step = (field == null) ? FlowField.NONE : field.nextStep(getRow(), getColumn());
+        switch (step) {
+            case FlowField.UP -> game.moveUp(this);
+            case FlowField.DOWN -> game.moveDown(this);
+            case FlowField.LEFT -> game.moveLeft(this);
+            case FlowField.RIGHT -> game.moveRight(this);
+            default -> {
+                if ((field == null) || (field.getDistance(getRow(), getColumn()) != 0)) {
+                    moveRandomly();
+                }
+            }
+        }
     }
 
     /**
      * Réalise un déplacement aléatoire de ce mob.
      */
     private void moveRandomly() {
-        if (RANDOM.nextBoolean()) {
+        if (game.getRandom().nextBoolean()) {
             game.moveLeft(this);
 
         } else {
@@ -84,7 +114,7 @@ public final class Mob extends AbstractMovable {
     public void decrementHealth() {
         super.decrementHealth();
         if (getHealth() == 0) {
-            timeline.stop();
+            animated = false;
         }
     }
 
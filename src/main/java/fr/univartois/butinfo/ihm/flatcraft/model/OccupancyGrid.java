@@ -0,0 +1,121 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.BitSet;
+
+/**
+ * La classe {@link OccupancyGrid} mémorise les cellules d'une zone de la carte déjà
+ * recouvertes par des structures, afin que les structures placées ensuite ne les
+ * chevauchent pas.
+ *
+ * Les cellules situées en dehors de la zone sont toujours considérées comme libres.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class OccupancyGrid {
+
+    /**
+     * La première colonne de la zone couverte par cette grille.
+     */
+    private final int fromColumn;
+
+    /**
+     * La largeur de la zone couverte par cette grille.
+     */
+    private final int width;
+
+    /**
+     * La hauteur de la zone couverte par cette grille.
+     */
+    private final int height;
+
+    /**
+     * Les cellules occupées de la zone, rangées ligne par ligne.
+     */
+    private final BitSet occupied;
+
+    /**
+     * Crée une nouvelle instance d'OccupancyGrid, dont toutes les cellules sont libres.
+     *
+     * @param fromColumn La première colonne de la zone couverte par la grille.
+     * @param width La largeur de la zone couverte par la grille.
+     * @param height La hauteur de la zone couverte par la grille.
+     */
+    OccupancyGrid(int fromColumn, int width, int height) {
+        this.fromColumn = fromColumn;
+        this.width = width;
+        this.height = height;
+        this.occupied = new BitSet(width * height);
+    }
+
+    /**
+     * Vérifie si l'une des cellules consécutives d'une ligne est occupée.
+     *
+     * @param row La ligne des cellules.
+     * @param column La colonne de la première cellule.
+     * @param length Le nombre de cellules à vérifier.
+     *
+     * @return Si l'une des cellules est occupée.
+     */
+    boolean isOccupied(int row, int column, int length) {
+        int from = indexOf(row, column, 0);
+        int to = indexOf(row, column, length);
+        if (from >= to) {
+            return false;
+        }
+
+        int next = occupied.nextSetBit(from);
+        return (0 <= next) && (next < to);
+    }
+
+    /**
+     * Marque des cellules consécutives d'une ligne comme occupées.
+     *
+     * @param row La ligne des cellules.
+     * @param column La colonne de la première cellule.
+     * @param length Le nombre de cellules à marquer.
+     */
+    void occupy(int row, int column, int length) {
+        int from = indexOf(row, column, 0);
+        int to = indexOf(row, column, length);
+        if (from < to) {
+            occupied.set(from, to);
+        }
+    }
+
+    /**
+     * Calcule la position, dans {@link #occupied}, d'une extrémité d'un segment de
+     * cellules rogné à la zone couverte par cette grille.
+     *
+     * @param row La ligne du segment.
+     * @param column La colonne de la première cellule du segment.
+     * @param offset La position de l'extrémité dans le segment.
+     *
+     * @return La position de l'extrémité, ou {@code -1} si la ligne du segment est en
+     *         dehors de la zone.
+     */
+    private int indexOf(int row, int column, int offset) {
+        if ((row < 0) || (height <= row)) {
+            return -1;
+        }
+
+        int local = Math.max(0, Math.min(width, column + offset - fromColumn));
+        return (row * width) + local;
+    }
+
+}
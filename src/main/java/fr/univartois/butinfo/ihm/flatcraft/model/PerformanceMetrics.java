@@ -0,0 +1,217 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * La classe {@link PerformanceMetrics} regroupe les mesures de performance du jeu
+ * Flatcraft : des {@link LatencyHistogram} pour les durées (génération de la carte, pas
+ * de simulation, actions du joueur, dessin...) et des compteurs.
+ *
+ * Les mesures sont identifiées par leur nom, et créées à leur première utilisation.
+ * Les classes instrumentées récupèrent leurs mesures une seule fois (dans des constantes),
+ * de sorte que mesurer une durée ne coûte que deux appels à {@link System#nanoTime()} et
+ * quelques opérations atomiques.
+ * Les mesures peuvent être exposées par JMX (voir {@link #register()}) et résumées
+ * régulièrement dans le journal de l'application (voir {@link #startLogging(long)}).
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class PerformanceMetrics implements PerformanceMetricsMXBean {
+
+    /**
+     * Le nom sous lequel les mesures sont exposées par JMX.
+     */
+    public static final String OBJECT_NAME = "fr.univartois.butinfo.ihm.flatcraft:type=PerformanceMetrics";
+
+    /**
+     * Le journal dans lequel les résumés des mesures sont écrits.
+     */
+    private static final Logger LOGGER = Logger.getLogger(PerformanceMetrics.class.getName());
+
+    /**
+     * Les mesures utilisées par défaut par les classes du jeu.
+     */
+    private static final PerformanceMetrics DEFAULT = new PerformanceMetrics();
+
+    /**
+     * Les histogrammes des durées mesurées, indexés par leur nom.
+     */
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Les compteurs, indexés par leur nom.
+     */
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Le service écrivant régulièrement le résumé des mesures dans le journal, ou
+     * {@code null} s'il n'est pas démarré.
+     */
+    private ScheduledExecutorService logger;
+
+    /**
+     * Donne les mesures utilisées par défaut par les classes du jeu.
+     *
+     * @return Les mesures par défaut.
+     */
+    public static PerformanceMetrics getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Donne l'histogramme des durées ayant le nom donné, en le créant si nécessaire.
+     *
+     * @param name Le nom de la mesure.
+     *
+     * @return L'histogramme correspondant.
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Donne le compteur ayant le nom donné, en le créant si nécessaire.
+     *
+     * @param name Le nom du compteur.
+     *
+     * @return Le compteur correspondant.
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetricsMXBean#getLatencies()
+     */
+    @Override
+    public List<LatencySummary> getLatencies() {
+        List<LatencySummary> summaries = new ArrayList<>();
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            summaries.add(new LatencySummary(histogram));
+        }
+        return summaries;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetricsMXBean#getCounters()
+     */
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetricsMXBean#getSummary()
+     */
+    @Override
+    public String getSummary() {
+        StringBuilder builder = new StringBuilder("Performance metrics");
+        for (LatencySummary summary : getLatencies()) {
+            if (summary.getCount() > 0) {
+                builder.append(System.lineSeparator()).append("  ").append(summary);
+            }
+        }
+        getCounters().forEach((name, value) -> builder.append(System.lineSeparator())
+                .append("  ").append(name).append(": ").append(value));
+        return builder.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetricsMXBean#reset()
+     */
+    @Override
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Expose ces mesures par JMX, sous le nom {@value #OBJECT_NAME}.
+     * Si des mesures sont déjà exposées sous ce nom, cette méthode n'a aucun effet.
+     *
+     * @throws IllegalStateException Si les mesures ne peuvent pas être exposées.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+
+        } catch (InstanceAlreadyExistsException e) {
+            // Les mesures sont déjà exposées.
+
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register performance metrics", e);
+        }
+    }
+
+    /**
+     * Écrit régulièrement le résumé de ces mesures dans le journal de l'application.
+     * Le résumé est écrit par un thread démon, qui n'empêche pas l'application de
+     * s'arrêter.
+     *
+     * @param periodSeconds La période (en secondes) entre deux résumés.
+     */
+    public synchronized void startLogging(long periodSeconds) {
+        stopLogging();
+        logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flatcraft-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.scheduleAtFixedRate(() -> LOGGER.info(getSummary()),
+                periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Arrête l'écriture régulière du résumé de ces mesures dans le journal.
+     */
+    public synchronized void stopLogging() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * L'interface {@link PerformanceMetricsMXBean} définit les mesures de performance du jeu
+ * Flatcraft exposées par JMX (et donc consultables avec JConsole ou VisualVM, par
+ * exemple).
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ *
+ * @see PerformanceMetrics
+ */
+public interface PerformanceMetricsMXBean {
+
+    /**
+     * Donne les résumés des durées mesurées, triés par nom.
+     *
+     * @return Les résumés des durées mesurées.
+     */
+    List<LatencySummary> getLatencies();
+
+    /**
+     * Donne les valeurs des compteurs, indexées par leur nom.
+     *
+     * @return Les valeurs des compteurs.
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Donne un résumé lisible de toutes les mesures.
+     *
+     * @return Le résumé des mesures.
+     */
+    String getSummary();
+
+    /**
+     * Remet à zéro toutes les mesures.
+     */
+    void reset();
+
+}
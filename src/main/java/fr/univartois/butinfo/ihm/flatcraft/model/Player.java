@@ -16,8 +16,6 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
 
 import java.util.NoSuchElementException;
 
-import javafx.scene.image.Image;
-
 /**
  * La classe Player représente le personnage du joueur qui se déplace sur la carte du jeu.
  *
@@ -31,10 +29,10 @@ public final class Player extends AbstractMovable {
      * Crée une nouvelle instance de Player.
      *
      * @param game Le jeu dans lequel le joueur évolue.
-     * @param sprite Le sprite représentant le joueur.
+     * @param spriteName Le nom du sprite représentant le joueur.
      */
-    public Player(FlatcraftGame game, Image sprite) {
-        super(game, sprite, 3);
+    public Player(FlatcraftGame game, String spriteName) {
+        super(game, spriteName, 3);
     }
 
     /**
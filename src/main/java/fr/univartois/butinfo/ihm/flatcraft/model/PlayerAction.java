@@ -0,0 +1,101 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+/**
+ * L'énumération {@link PlayerAction} liste les actions qu'un joueur peut demander au
+ * jeu Flatcraft.
+ * Une action est désignée par un simple code (son rang dans l'énumération), ce qui
+ * permet de la transmettre sur le réseau ou de l'enregistrer de manière compacte.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public enum PlayerAction {
+
+    /**
+     * L'action de se déplacer vers la gauche.
+     */
+    MOVE_LEFT,
+
+    /**
+     * L'action de se déplacer vers la droite.
+     */
+    MOVE_RIGHT,
+
+    /**
+     * L'action de creuser vers le bas.
+     */
+    DIG_DOWN,
+
+    /**
+     * L'action de creuser vers la gauche.
+     */
+    DIG_LEFT,
+
+    /**
+     * L'action de creuser vers la droite.
+     */
+    DIG_RIGHT;
+
+    /**
+     * Les actions, indexées par leur code.
+     */
+    private static final PlayerAction[] VALUES = values();
+
+    /**
+     * Donne le code désignant cette action.
+     *
+     * @return Le code de cette action.
+     */
+    public int getCode() {
+        return ordinal();
+    }
+
+    /**
+     * Donne l'action désignée par un code.
+     *
+     * @param code Le code de l'action.
+     *
+     * @return L'action désignée par le code.
+     *
+     * @throws IllegalArgumentException Si aucune action n'a le code donné.
+     */
+    public static PlayerAction fromCode(int code) {
+        if ((code < 0) || (code >= VALUES.length)) {
+            throw new IllegalArgumentException("Unknown action " + code);
+        }
+        return VALUES[code];
+    }
+
+    /**
+     * Fait réaliser cette action à un joueur.
+     *
+     * @param game Le jeu dans lequel le joueur évolue.
+     * @param player Le joueur qui réalise l'action.
+     */
+    public void apply(FlatcraftGame game, Player player) {
+        switch (this) {
+            case MOVE_LEFT -> game.moveLeft(player);
+            case MOVE_RIGHT -> game.moveRight(player);
+            case DIG_DOWN -> game.digDown(player);
+            case DIG_LEFT -> game.digLeft(player);
+            case DIG_RIGHT -> game.digRight(player);
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * La classe {@link RegionFile} représente un fichier de région, dans lequel sont
+ * sauvegardés les chunks d'un ensemble de colonnes de chunks consécutives d'une carte.
+ *
+ * Le fichier commence par un en-tête, suivi d'un index donnant pour chaque chunk la
+ * position et le nombre des secteurs qu'il occupe.
+ * Viennent ensuite les secteurs eux-mêmes, qui contiennent les chunks sous la forme
+ * compacte produite par {@link ChunkCodec} : un chunk uniforme n'occupe ainsi qu'un
+ * seul secteur.
+ * Un chunk réécrit reste à sa place s'il y tient encore, et est déplacé vers les
+ * premiers secteurs libres sinon, de sorte qu'un chunk peut être lu ou écrit sans
+ * toucher au reste du fichier.
+ * Le fichier est projeté en mémoire : seules les pages correspondant aux chunks utilisés
+ * sont effectivement lues ou écrites sur le disque.
+ * Lorsqu'un chunk est placé au-delà de la fin de la projection, celle-ci est agrandie
+ * (au moins du double de sa taille), ce qui agrandit également le fichier.
+ * Un fichier de région peut être lu et écrit depuis plusieurs threads : chaque lecture
+ * ou écriture d'un chunk est atomique, et la synchronisation avec le disque ne bloque
+ * pas les lectures.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class RegionFile implements Closeable {
+
+    /**
+     * Le nombre de colonnes de chunks sauvegardées dans un fichier de région.
+     */
+    static final int REGION_WIDTH = 32;
+
+    /**
+     * Le nombre magique identifiant un fichier de région ("FLRG").
+     */
+    private static final int MAGIC = 0x464c5247;
+
+    /**
+     * La version du format des fichiers de région.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * La taille (en octets) de l'en-tête d'un fichier de région.
+     */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    /**
+     * La taille (en octets) d'un secteur.
+     */
+    private static final int SECTOR_SIZE = 32;
+
+    /**
+     * La taille (en octets) d'une page, dont la taille de la projection du fichier est
+     * toujours un multiple.
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * Le nombre de bits d'une entrée de l'index donnant le nombre de secteurs d'un chunk.
+     * Les autres bits donnent la position de son premier secteur.
+     */
+    private static final int COUNT_BITS = 8;
+
+    /**
+     * Le masque permettant d'extraire le nombre de secteurs d'une entrée de l'index.
+     */
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+
+    /**
+     * Le nombre maximal de secteurs d'un fichier de région.
+     */
+    private static final int MAX_SECTORS = 1 << (Integer.SIZE - COUNT_BITS - 1);
+
+    /**
+     * La valeur de l'index indiquant qu'un chunk est absent.
+     */
+    private static final int ABSENT = 0;
+
+    /**
+     * Le canal permettant d'accéder au fichier.
+     */
+    private final FileChannel channel;
+
+    /**
+     * La projection en mémoire du fichier, qui est remplacée lorsqu'elle est agrandie.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * Le nombre de chunks dans une colonne de chunks.
+     */
+    private final int chunkRows;
+
+    /**
+     * La position (en octets) du premier secteur dans le fichier.
+     */
+    private final int dataOffset;
+
+    /**
+     * Les entrées de l'index, qui sont gardées en mémoire.
+     */
+    private final int[] index;
+
+    /**
+     * Les secteurs actuellement occupés par un chunk.
+     */
+    private final BitSet usedSectors = new BitSet();
+
+    /**
+     * Si des données ont été écrites depuis la dernière synchronisation avec le disque.
+     */
+    private boolean dirty;
+
+    /**
+     * Ouvre un fichier de région, en le créant s'il n'existe pas.
+     *
+     * @param path Le chemin du fichier.
+     * @param chunkRows Le nombre de chunks dans une colonne de chunks.
+     *
+     * @throws IOException Si le fichier ne peut pas être ouvert, ou s'il n'est pas un
+     *         fichier de région valide.
+     */
+    RegionFile(Path path, int chunkRows) throws IOException {
+        this.chunkRows = chunkRows;
+        this.index = new int[REGION_WIDTH * chunkRows];
+        int indexEnd = HEADER_SIZE + (index.length * Integer.BYTES);
+        this.dataOffset = ((indexEnd + SECTOR_SIZE - 1) / SECTOR_SIZE) * SECTOR_SIZE;
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            // La projection agrandit le fichier si nécessaire, sans en écrire le contenu.
+            this.buffer = channel.map(MapMode.READ_WRITE, 0,
+                    pageAligned(Math.max(channel.size(), dataOffset)));
+            if (created) {
+                buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, chunkRows).putInt(12, REGION_WIDTH);
+                buffer.force(0, HEADER_SIZE);
+
+            } else {
+                readHeader(path);
+            }
+
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lit l'en-tête et l'index d'un fichier de région existant.
+     *
+     * @param path Le chemin du fichier.
+     *
+     * @throws IOException Si le fichier n'est pas un fichier de région valide.
+     */
+    private void readHeader(Path path) throws IOException {
+        if ((buffer.getInt(0) != MAGIC) || (buffer.getInt(4) != VERSION)
+                || (buffer.getInt(8) != chunkRows) || (buffer.getInt(12) != REGION_WIDTH)) {
+            throw new IOException("Not a valid region file: " + path);
+        }
+
+        long sectors = (buffer.capacity() - dataOffset) / SECTOR_SIZE;
+        for (int i = 0; i < index.length; i++) {
+            int entry = buffer.getInt(HEADER_SIZE + (i * Integer.BYTES));
+            if (entry != ABSENT) {
+                int first = entry >>> COUNT_BITS;
+                int count = entry & COUNT_MASK;
+                if ((count == 0) || ((first + count) > sectors)) {
+                    throw new IOException("Corrupted region file: " + path);
+                }
+                usedSectors.set(first, first + count);
+            }
+            index[i] = entry;
+        }
+    }
+
+    /**
+     * Vérifie si une colonne de chunks de cette région contient au moins un chunk
+     * sauvegardé.
+     *
+     * @param localColumn La position de la colonne de chunks dans la région.
+     *
+     * @return Si la colonne contient au moins un chunk sauvegardé.
+     */
+    synchronized boolean containsColumn(int localColumn) {
+        for (int row = 0; row < chunkRows; row++) {
+            if (index[slot(localColumn, row)] != ABSENT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lit un chunk de cette région.
+     *
+     * @param localColumn La position de la colonne de chunks dans la région.
+     * @param chunkRow La position du chunk dans sa colonne.
+     *
+     * @return La représentation compacte du chunk (voir {@link ChunkCodec}), ou
+     *         {@code null} si le chunk est absent de la région.
+     */
+    synchronized byte[] read(int localColumn, int chunkRow) {
+        int entry = index[slot(localColumn, chunkRow)];
+        if (entry == ABSENT) {
+            return null;
+        }
+
+        byte[] data = new byte[(entry & COUNT_MASK) * SECTOR_SIZE];
+        buffer.get(sectorOffset(entry >>> COUNT_BITS), data);
+        return data;
+    }
+
+    /**
+     * Écrit un chunk dans cette région.
+     * Seules les pages contenant ce chunk et son entrée dans l'index sont écrites.
+     * Les données ne sont synchronisées avec le disque qu'à l'appel de {@link #flush()}.
+     *
+     * @param localColumn La position de la colonne de chunks dans la région.
+     * @param chunkRow La position du chunk dans sa colonne.
+     * @param data La représentation compacte du chunk (voir {@link ChunkCodec}).
+     * @param length La taille (en octets) de la représentation.
+     *
+     * @throws IOException Si le chunk ne peut pas être écrit, ou si la projection du
+     *         fichier ne peut pas être agrandie.
+     */
+    synchronized void write(int localColumn, int chunkRow, byte[] data, int length)
+            throws IOException {
+        int slot = slot(localColumn, chunkRow);
+        int entry = index[slot];
+        int needed = (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        int first = entry >>> COUNT_BITS;
+        int count = entry & COUNT_MASK;
+
+        if ((entry != ABSENT) && (needed <= count)) {
+            // Le chunk tient encore dans ses secteurs : les secteurs en trop sont libérés.
+            usedSectors.clear(first + needed, first + count);
+
+        } else {
+            usedSectors.clear(first, first + count);
+            first = allocate(needed);
+        }
+        usedSectors.set(first, first + needed);
+        ensureMapped(sectorOffset(first + needed));
+        buffer.put(sectorOffset(first), data, 0, length);
+
+        index[slot] = (first << COUNT_BITS) | needed;
+        buffer.putInt(HEADER_SIZE + (slot * Integer.BYTES), index[slot]);
+        dirty = true;
+    }
+
+    /**
+     * S'assure que la projection du fichier s'étend au moins jusqu'à une position donnée,
+     * en l'agrandissant si nécessaire.
+     * La projection est alors au moins doublée, de sorte qu'elle n'est agrandie qu'un
+     * nombre logarithmique de fois.
+     *
+     * @param end La position (exclue) jusqu'à laquelle la projection doit s'étendre.
+     *
+     * @throws IOException Si la projection ne peut pas être agrandie.
+     */
+    private void ensureMapped(int end) throws IOException {
+        int capacity = buffer.capacity();
+        if (end > capacity) {
+            long size = Math.min(Math.max(end, 2L * capacity), sectorOffset(MAX_SECTORS));
+            // Les pages modifiées de l'ancienne projection sont écrites avant de l'abandonner.
+            buffer.force();
+            buffer = channel.map(MapMode.READ_WRITE, 0, pageAligned(size));
+        }
+    }
+
+    /**
+     * Cherche les premiers secteurs libres consécutifs pouvant contenir un chunk.
+     *
+     * @param count Le nombre de secteurs nécessaires.
+     *
+     * @return La position du premier des secteurs trouvés.
+     *
+     * @throws IOException Si le fichier ne peut plus contenir de secteurs.
+     */
+    private int allocate(int count) throws IOException {
+        int start = usedSectors.nextClearBit(0);
+        for (int end = usedSectors.nextSetBit(start); (end >= 0) && ((end - start) < count);
+                end = usedSectors.nextSetBit(start)) {
+            start = usedSectors.nextClearBit(end);
+        }
+
+        if ((start + count) > MAX_SECTORS) {
+            throw new IOException("Region file is full!");
+        }
+        return start;
+    }
+
+    /**
+     * Synchronise avec le disque les données écrites dans cette région depuis la
+     * dernière synchronisation.
+     *
+     * @throws IOException Si la synchronisation échoue.
+     */
+    void flush() throws IOException {
+        MappedByteBuffer written;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            written = buffer;
+            dirty = false;
+        }
+
+        // L'écriture sur le disque peut être longue : les chunks restent lisibles pendant
+        // ce temps.
+        written.force();
+    }
+
+    /**
+     * Calcule la position d'un chunk dans l'index.
+     *
+     * @param localColumn La position de la colonne de chunks dans la région.
+     * @param chunkRow La position du chunk dans sa colonne.
+     *
+     * @return La position du chunk dans l'index.
+     */
+    private int slot(int localColumn, int chunkRow) {
+        return (localColumn * chunkRows) + chunkRow;
+    }
+
+    /**
+     * Calcule la position dans le fichier d'un secteur.
+     *
+     * @param sector Le numéro du secteur.
+     *
+     * @return La position du secteur dans le fichier.
+     */
+    private int sectorOffset(int sector) {
+        return dataOffset + (sector * SECTOR_SIZE);
+    }
+
+    /**
+     * Arrondit une taille au multiple de {@link #PAGE_SIZE} supérieur.
+     *
+     * @param size La taille à arrondir.
+     *
+     * @return La taille arrondie.
+     */
+    private static long pageAligned(long size) {
+        return ((size + PAGE_SIZE - 1) / PAGE_SIZE) * PAGE_SIZE;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+
+        } finally {
+            channel.close();
+        }
+    }
+
+}
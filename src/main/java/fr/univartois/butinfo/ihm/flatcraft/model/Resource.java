@@ -16,8 +16,6 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
 
 import java.util.Objects;
 
-import javafx.scene.image.Image;
-
 /**
  * Une ressource est un élément de la carte avec lequel le joueur peut interagir.
  * Il peut soit l'extraire, soit la laisser sur place.
@@ -34,20 +32,14 @@ public final class Resource {
      */
     private final String name;
 
-    /**
-     * L'image représentant cette ressource.
-     */
-    private final Image sprite;
-
     /**
      * Crée une nouvelle instance de Resource.
      *
-     * @param name Le nom unique identifiant le type de cette ressource.
-     * @param sprite L'image représentant cette ressource.
+     * @param name Le nom unique identifiant le type de cette ressource, qui est aussi
+     *        celui de son sprite.
      */
-    public Resource(String name, Image sprite) {
+    public Resource(String name) {
         this.name = name;
-        this.sprite = sprite;
     }
 
     /**
@@ -59,15 +51,6 @@ public final class Resource {
         return name;
     }
 
-    /**
-     * Donne l'image représentant cette ressource.
-     *
-     * @return L'image représentant cette ressource.
-     */
-    public Image getSprite() {
-        return sprite;
-    }
-
     /*
      * (non-Javadoc)
      *
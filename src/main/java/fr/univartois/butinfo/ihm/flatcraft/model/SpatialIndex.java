@@ -0,0 +1,277 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * La classe {@link SpatialIndex} range des objets mobiles selon leur position sur la
+ * carte, afin de retrouver rapidement ceux qui se trouvent dans une cellule ou dans une
+ * zone, sans parcourir tous les objets du jeu.
+ *
+ * Les objets sont regroupés par carré de {@value GameMap#CHUNK_SIZE} cellules de côté
+ * (comme les chunks de la carte).
+ * L'index est mis à jour par les objets eux-mêmes lorsque leur position change : seuls
+ * les déplacements d'un carré à un autre ont un coût.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class SpatialIndex {
+
+    /**
+     * Les objets mobiles indexés, regroupés par carré de cellules.
+     */
+    private final Map<Long, List<AbstractMovable>> buckets = new HashMap<>();
+
+    /**
+     * Le nombre d'objets mobiles indexés.
+     */
+    private int size;
+
+    /**
+     * Ajoute un objet mobile à cet index.
+     *
+     * @param movable L'objet mobile à ajouter.
+     *
+     * @throws IllegalStateException Si l'objet est déjà dans un index.
+     */
+    public void add(AbstractMovable movable) {
+        if (movable.index != null) {
+            throw new IllegalStateException("Movable already indexed!");
+        }
+
+        movable.index = this;
+        bucket(movable.getRow(), movable.getColumn()).add(movable);
+        size++;
+    }
+
+    /**
+     * Retire un objet mobile de cet index.
+     *
+     * @param movable L'objet mobile à retirer.
+     *
+     * @return Si l'objet était dans cet index.
+     */
+    public boolean remove(AbstractMovable movable) {
+        if (movable.index != this) {
+            return false;
+        }
+
+        movable.index = null;
+        removeFrom(movable, movable.getRow(), movable.getColumn());
+        size--;
+        return true;
+    }
+
+    /**
+     * Donne le nombre d'objets mobiles dans cet index.
+     *
+     * @return Le nombre d'objets mobiles indexés.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Donne les objets mobiles se trouvant dans une cellule.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Les objets mobiles dans la cellule.
+     */
+    public List<AbstractMovable> getAt(int row, int column) {
+        return getInRange(row, column, row, column);
+    }
+
+    /**
+     * Donne les objets mobiles se trouvant dans une zone rectangulaire.
+     *
+     * @param fromRow La première ligne de la zone (incluse).
+     * @param fromColumn La première colonne de la zone (incluse).
+     * @param toRow La dernière ligne de la zone (incluse).
+     * @param toColumn La dernière colonne de la zone (incluse).
+     *
+     * @return Les objets mobiles dans la zone.
+     */
+    public List<AbstractMovable> getInRange(int fromRow, int fromColumn, int toRow, int toColumn) {
+        List<AbstractMovable> found = new ArrayList<>();
+        forEachInRange(fromRow, fromColumn, toRow, toColumn, found::add);
+        return found;
+    }
+
+    /**
+     * Applique une action sur chacun des objets mobiles se trouvant dans une zone
+     * rectangulaire.
+     * L'action ne doit pas déplacer d'objet mobile entre deux carrés de cellules.
+     *
+     * @param fromRow La première ligne de la zone (incluse).
+     * @param fromColumn La première colonne de la zone (incluse).
+     * @param toRow La dernière ligne de la zone (incluse).
+     * @param toColumn La dernière colonne de la zone (incluse).
+     * @param action L'action à appliquer.
+     */
+    public void forEachInRange(int fromRow, int fromColumn, int toRow, int toColumn,
+            Consumer<AbstractMovable> action) {
+        for (int bucketRow = fromRow >> Chunk.SHIFT; bucketRow <= (toRow >> Chunk.SHIFT); bucketRow++) {
+            for (int bucketColumn = fromColumn >> Chunk.SHIFT; bucketColumn <= (toColumn >> Chunk.SHIFT); bucketColumn++) {
+                List<AbstractMovable> bucket = buckets.get(key(bucketRow, bucketColumn));
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (int i = 0; i < bucket.size(); i++) {
+                    AbstractMovable movable = bucket.get(i);
+                    int row = movable.getRow();
+                    int column = movable.getColumn();
+                    if ((fromRow <= row) && (row <= toRow) && (fromColumn <= column) && (column <= toColumn)) {
+                        action.accept(movable);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Donne l'objet mobile le plus proche d'une cellule parmi ceux satisfaisant un
+     * critère.
+     * La distance utilisée est la distance euclidienne entre les cellules.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param maxDistance La distance (en nombre de cellules) au-delà de laquelle les
+     *        objets ne sont pas recherchés.
+     * @param filter Le critère que doit satisfaire l'objet recherché.
+     *
+     * @return L'objet mobile le plus proche, ou {@code null} s'il n'y en a aucun à moins
+     *         de {@code maxDistance} cellules.
+     */
+    public AbstractMovable nearest(int row, int column, int maxDistance,
+            Predicate<? super AbstractMovable> filter) {
+        int centerRow = row >> Chunk.SHIFT;
+        int centerColumn = column >> Chunk.SHIFT;
+        int maxRing = (maxDistance >> Chunk.SHIFT) + 1;
+        long maxSquared = (long) maxDistance * maxDistance;
+
+        AbstractMovable best = null;
+        long bestSquared = Long.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Les carrés de cet anneau sont tous à au moins cette distance de la cellule.
+            long ringDistance = Math.max(0, ((long) (ring - 1) << Chunk.SHIFT) + 1);
+            if ((best != null) && ((ringDistance * ringDistance) > bestSquared)) {
+                break;
+            }
+
+            for (int bucketRow = centerRow - ring; bucketRow <= (centerRow + ring); bucketRow++) {
+                boolean edge = (bucketRow == (centerRow - ring)) || (bucketRow == (centerRow + ring));
+                // Seuls les bords de l'anneau n'ont pas encore été parcourus.
+                int step = edge ? 1 : (2 * ring);
+                for (int bucketColumn = centerColumn - ring; bucketColumn <= (centerColumn + ring); bucketColumn += step) {
+                    List<AbstractMovable> bucket = buckets.get(key(bucketRow, bucketColumn));
+                    if (bucket == null) {
+                        continue;
+                    }
+
+                    for (int i = 0; i < bucket.size(); i++) {
+                        AbstractMovable movable = bucket.get(i);
+                        long dRow = (long) movable.getRow() - row;
+                        long dColumn = (long) movable.getColumn() - column;
+                        long squared = (dRow * dRow) + (dColumn * dColumn);
+                        if ((squared < bestSquared) && (squared <= maxSquared) && filter.test(movable)) {
+                            best = movable;
+                            bestSquared = squared;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Met à jour cet index après le déplacement d'un objet mobile.
+     *
+     * @param movable L'objet mobile déplacé.
+     * @param oldRow La ligne où se trouvait l'objet.
+     * @param oldColumn La colonne où se trouvait l'objet.
+     */
+    void moved(AbstractMovable movable, int oldRow, int oldColumn) {
+        int row = movable.getRow();
+        int column = movable.getColumn();
+        if (((oldRow >> Chunk.SHIFT) != (row >> Chunk.SHIFT))
+                || ((oldColumn >> Chunk.SHIFT) != (column >> Chunk.SHIFT))) {
+            removeFrom(movable, oldRow, oldColumn);
+            bucket(row, column).add(movable);
+        }
+    }
+
+    /**
+     * Retire un objet mobile du carré contenant une cellule.
+     *
+     * @param movable L'objet mobile à retirer.
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void removeFrom(AbstractMovable movable, int row, int column) {
+        long key = key(row >> Chunk.SHIFT, column >> Chunk.SHIFT);
+        List<AbstractMovable> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(movable);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Donne la liste des objets mobiles du carré contenant une cellule, en la créant si
+     * nécessaire.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La liste des objets du carré.
+     */
+    private List<AbstractMovable> bucket(int row, int column) {
+        long key = key(row >> Chunk.SHIFT, column >> Chunk.SHIFT);
+        List<AbstractMovable> bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * Calcule la clé identifiant un carré de cellules.
+     *
+     * @param bucketRow La ligne du carré.
+     * @param bucketColumn La colonne du carré.
+     *
+     * @return La clé du carré.
+     */
+    private static long key(int bucketRow, int bucketColumn) {
+        return ((long) bucketRow << Integer.SIZE) | (bucketColumn & 0xffffffffL);
+    }
+
+}
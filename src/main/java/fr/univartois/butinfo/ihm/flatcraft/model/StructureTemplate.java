@@ -0,0 +1,256 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * La classe {@link StructureTemplate} représente le modèle d'une structure (un arbre, un
+ * terril, une ruine, etc.) pouvant être placée sur une carte.
+ *
+ * Le modèle est compilé une fois pour toutes sous la forme de segments horizontaux de
+ * blocs consécutifs, les cellules qu'il ne recouvre pas étant laissées intactes.
+ * Placer la structure revient alors à copier chacun de ses segments d'un seul bloc dans
+ * les chunks de la carte (voir {@link GameMap#setBlocksAt(int, int, short[], int, int)}).
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class StructureTemplate {
+
+    /**
+     * L'identifiant utilisé, lors de la compilation d'un modèle, pour les cellules que
+     * la structure ne recouvre pas.
+     */
+    static final short VOID = -1;
+
+    /**
+     * La largeur de ce modèle, en nombre de cellules.
+     */
+    private final int width;
+
+    /**
+     * La hauteur de ce modèle, en nombre de cellules.
+     */
+    private final int height;
+
+    /**
+     * Les segments de ce modèle, décrits chacun par quatre entiers consécutifs : leur
+     * ligne et leur colonne relativement au coin supérieur gauche du modèle, leur
+     * longueur et la position de leur premier bloc dans {@link #blocks}.
+     */
+    private final int[] runs;
+
+    /**
+     * Les identifiants des blocs recouverts par ce modèle, segment après segment.
+     */
+    private final short[] blocks;
+
+    /**
+     * Crée une nouvelle instance de StructureTemplate.
+     *
+     * @param width La largeur du modèle.
+     * @param height La hauteur du modèle.
+     * @param runs Les segments du modèle.
+     * @param blocks Les identifiants des blocs recouverts par le modèle.
+     */
+    private StructureTemplate(int width, int height, int[] runs, short[] blocks) {
+        this.width = width;
+        this.height = height;
+        this.runs = runs;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Compile un modèle de structure.
+     *
+     * @param width La largeur du modèle.
+     * @param cells Les identifiants des blocs du modèle, rangés ligne par ligne, les
+     *        cellules que la structure ne recouvre pas valant {@link #VOID}.
+     *
+     * @return Le modèle compilé.
+     *
+     * @throws IllegalArgumentException Si le nombre de cellules n'est pas un multiple de
+     *         la largeur donnée.
+     */
+    static StructureTemplate compile(int width, short[] cells) {
+        if ((width <= 0) || ((cells.length % width) != 0)) {
+            throw new IllegalArgumentException("Incorrect template size!");
+        }
+
+        int[] runs = new int[cells.length * 4];
+        short[] blocks = new short[cells.length];
+        int nbRuns = 0;
+        int nbBlocks = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == VOID) {
+                continue;
+            }
+
+            // On démarre un nouveau segment, sauf si la cellule prolonge le précédent.
+            int row = i / width;
+            int column = i % width;
+            if ((column == 0) || (cells[i - 1] == VOID)) {
+                runs[nbRuns++] = row;
+                runs[nbRuns++] = column;
+                runs[nbRuns++] = 0;
+                runs[nbRuns++] = nbBlocks;
+            }
+            runs[nbRuns - 2]++;
+            blocks[nbBlocks++] = cells[i];
+        }
+        return new StructureTemplate(width, cells.length / width,
+                Arrays.copyOf(runs, nbRuns), Arrays.copyOf(blocks, nbBlocks));
+    }
+
+    /**
+     * Compile un modèle de structure décrit par un dessin, dont chaque caractère
+     * représente une cellule.
+     * Les caractères absents de la légende représentent les cellules que la structure
+     * ne recouvre pas.
+     *
+     * @param legend La légende associant chaque caractère à l'identifiant de son bloc.
+     * @param rows Les lignes du dessin, de haut en bas, qui doivent avoir la même
+     *        longueur.
+     *
+     * @return Le modèle compilé.
+     *
+     * @throws IllegalArgumentException Si les lignes du dessin n'ont pas toutes la même
+     *         longueur.
+     */
+    static StructureTemplate parse(Map<Character, Short> legend, String... rows) {
+        int width = rows[0].length();
+        short[] cells = new short[rows.length * width];
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].length() != width) {
+                throw new IllegalArgumentException("Incorrect template size!");
+            }
+
+            for (int j = 0; j < width; j++) {
+                cells[(i * width) + j] = legend.getOrDefault(rows[i].charAt(j), VOID);
+            }
+        }
+        return compile(width, cells);
+    }
+
+    /**
+     * Donne la largeur de ce modèle.
+     *
+     * @return La largeur de ce modèle, en nombre de cellules.
+     */
+    int getWidth() {
+        return width;
+    }
+
+    /**
+     * Donne la hauteur de ce modèle.
+     *
+     * @return La hauteur de ce modèle, en nombre de cellules.
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Donne le nombre de cellules recouvertes par ce modèle.
+     *
+     * @return Le nombre de cellules recouvertes par ce modèle.
+     */
+    int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * Vérifie si la structure, placée à une position donnée, peut être ajoutée à une
+     * grille d'occupation sans chevaucher les structures qui s'y trouvent déjà.
+     *
+     * @param grid La grille d'occupation.
+     * @param row La ligne du coin supérieur gauche de la structure.
+     * @param column La colonne du coin supérieur gauche de la structure.
+     *
+     * @return Si la structure ne chevauche aucune structure de la grille.
+     */
+    boolean fits(OccupancyGrid grid, int row, int column) {
+        for (int i = 0; i < runs.length; i += 4) {
+            if (grid.isOccupied(row + runs[i], column + runs[i + 1], runs[i + 2])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marque les cellules recouvertes par la structure, placée à une position donnée,
+     * comme occupées dans une grille d'occupation.
+     *
+     * @param grid La grille d'occupation.
+     * @param row La ligne du coin supérieur gauche de la structure.
+     * @param column La colonne du coin supérieur gauche de la structure.
+     */
+    void occupy(OccupancyGrid grid, int row, int column) {
+        for (int i = 0; i < runs.length; i += 4) {
+            grid.occupy(row + runs[i], column + runs[i + 1], runs[i + 2]);
+        }
+    }
+
+    /**
+     * Place la structure sur une carte, en ne modifiant que les colonnes d'un intervalle
+     * donné.
+     *
+     * @param map La carte sur laquelle placer la structure.
+     * @param row La ligne du coin supérieur gauche de la structure.
+     * @param column La colonne du coin supérieur gauche de la structure.
+     * @param fromColumn La première colonne pouvant être modifiée (incluse).
+     * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+     */
+    void stamp(GameMap map, int row, int column, int fromColumn, int toColumn) {
+        stamp(map, row, column, blocks, fromColumn, toColumn);
+    }
+
+    /**
+     * Place la structure sur une carte avec d'autres blocs que ceux de ce modèle, en ne
+     * modifiant que les colonnes d'un intervalle donné.
+     * Cela permet de varier les blocs de structures ayant la même forme.
+     *
+     * @param map La carte sur laquelle placer la structure.
+     * @param row La ligne du coin supérieur gauche de la structure.
+     * @param column La colonne du coin supérieur gauche de la structure.
+     * @param content Les identifiants des blocs à placer, dans l'ordre des cellules
+     *        recouvertes par ce modèle (ligne par ligne), qui doivent être au nombre de
+     *        {@link #getBlockCount()}.
+     * @param fromColumn La première colonne pouvant être modifiée (incluse).
+     * @param toColumn La dernière colonne pouvant être modifiée (exclue).
+     */
+    void stamp(GameMap map, int row, int column, short[] content, int fromColumn,
+            int toColumn) {
+        for (int i = 0; i < runs.length; i += 4) {
+            int runRow = row + runs[i];
+            if ((runRow < 0) || (map.getHeight() <= runRow)) {
+                continue;
+            }
+
+            // Le segment est rogné à l'intervalle de colonnes autorisé.
+            int start = column + runs[i + 1];
+            int first = Math.max(start, fromColumn);
+            int last = Math.min(start + runs[i + 2], toColumn);
+            if (first < last) {
+                map.setBlocksAt(runRow, first, content, runs[i + 3] + first - start, last - first);
+            }
+        }
+    }
+
+}
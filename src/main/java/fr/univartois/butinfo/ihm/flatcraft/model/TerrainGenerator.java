@@ -0,0 +1,285 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+/**
+ * La classe {@link TerrainGenerator} génère les colonnes de chunks d'une carte à partir
+ * de bruits cohérents (voir {@link ValueNoise}).
+ *
+ * La surface du sol varie autour de la hauteur de la surface de la carte, formant des
+ * collines et des vallées.
+ * Le sous-sol est creusé de grottes sinueuses, et parsemé de filons de minerais, les
+ * plus précieux ne se trouvant qu'en profondeur.
+ * Le ciel comporte des nuages regroupés en bancs.
+ *
+ * Chaque chunk est rempli d'un seul bloc, à partir de bruits évalués sur l'ensemble de
+ * ses cellules.
+ * Une cellule ne dépend que de la graine et de sa position : la carte est donc la même
+ * quel que soit l'ordre dans lequel ses colonnes sont générées, et qu'elle soit infinie
+ * ou non.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class TerrainGenerator implements ChunkColumnGenerator {
+
+    /**
+     * Le nombre de cellules d'un chunk.
+     */
+    private static final int CELLS = GameMap.CHUNK_SIZE * GameMap.CHUNK_SIZE;
+
+    /**
+     * L'amplitude des variations de la surface, relativement à la hauteur de la carte.
+     */
+    private static final double RELIEF = 0.125;
+
+    /**
+     * L'épaisseur (en nombre de cellules) de la croûte située sous la surface, dans
+     * laquelle aucune grotte n'est creusée.
+     */
+    private static final int CRUST_DEPTH = 4;
+
+    /**
+     * La demi-largeur (en valeur de bruit) des grottes.
+     * Les grottes suivent les lignes où le bruit s'annule : plus cette valeur est grande,
+     * plus elles sont larges.
+     */
+    private static final double CAVE_WIDTH = 0.07;
+
+    /**
+     * La valeur de bruit au-dessus de laquelle une cellule de ciel est un nuage.
+     */
+    private static final double CLOUD_THRESHOLD = 0.45;
+
+    /**
+     * La valeur de bruit au-dessus de laquelle une cellule de surface est de la pelouse
+     * de jungle.
+     */
+    private static final double JUNGLE_THRESHOLD = 0.3;
+
+    /**
+     * Les blocs des minerais, du plus rare au plus commun.
+     */
+    private static final short[] ORES = {
+            BlockRegistry.DIAMOND_BLOCK, BlockRegistry.GOLD_BLOCK, BlockRegistry.BRONZE_BLOCK,
+            BlockRegistry.COPPER_BLOCK, BlockRegistry.COAL_BLOCK };
+
+    /**
+     * Les valeurs de bruit au-dessus desquelles une cellule appartient à un filon de
+     * chacun des minerais.
+     */
+    private static final double[] ORE_THRESHOLDS = { 0.62, 0.58, 0.55, 0.52, 0.48 };
+
+    /**
+     * Les profondeurs (relativement à la hauteur de la carte sous la surface) à partir
+     * desquelles se trouvent chacun des minerais.
+     */
+    private static final double[] ORE_DEPTHS = { 0.6, 0.4, 0.2, 0.1, 0 };
+
+    /**
+     * La mesure du temps passé à générer une colonne de chunks.
+     */
+    private static final LatencyHistogram TERRAIN_TIME = PerformanceMetrics.getDefault()
+            .histogram("generator.terrain");
+
+    /**
+     * Le bruit donnant la hauteur de la surface.
+     */
+    private final ValueNoise surfaceNoise;
+
+    /**
+     * Le bruit donnant les zones de pelouse de jungle.
+     */
+    private final ValueNoise jungleNoise;
+
+    /**
+     * Le bruit donnant les grottes.
+     */
+    private final ValueNoise caveNoise;
+
+    /**
+     * Le bruit donnant les nuages.
+     */
+    private final ValueNoise cloudNoise;
+
+    /**
+     * Les bruits donnant les filons de chacun des minerais.
+     */
+    private final ValueNoise[] oreNoises = new ValueNoise[ORES.length];
+
+    /**
+     * Crée une nouvelle instance de TerrainGenerator.
+     *
+     * @param seed La graine à partir de laquelle la carte est générée.
+     */
+    public TerrainGenerator(long seed) {
+        this.surfaceNoise = new ValueNoise(GameMapGenerator.deriveSeed(seed, 1), 1.0 / 48, 4);
+        this.jungleNoise = new ValueNoise(GameMapGenerator.deriveSeed(seed, 2), 1.0 / 24, 2);
+        this.caveNoise = new ValueNoise(GameMapGenerator.deriveSeed(seed, 3), 1.0 / 32, 3);
+        this.cloudNoise = new ValueNoise(GameMapGenerator.deriveSeed(seed, 4), 1.0 / 12, 2);
+        for (int i = 0; i < ORES.length; i++) {
+            oreNoises[i] = new ValueNoise(GameMapGenerator.deriveSeed(seed, 5 + i), 1.0 / 6, 2);
+        }
+    }
+
+    /**
+     * Calcule la hauteur de la surface du sol sur un intervalle de colonnes d'une carte.
+     *
+     * @param map La carte générée.
+     * @param fromColumn La première colonne de l'intervalle.
+     * @param heights Le tableau dans lequel écrire la ligne de la surface du sol de
+     *        chacune des colonnes de l'intervalle.
+     */
+    public void surfaceHeights(GameMap map, int fromColumn, int[] heights) {
+        double[] noise = new double[heights.length];
+        surfaceNoise.fill(noise, fromColumn, heights.length);
+        double relief = map.getHeight() * RELIEF;
+        for (int i = 0; i < heights.length; i++) {
+            int height = map.getSoilHeight() + (int) Math.round(noise[i] * relief);
+            heights[i] = Math.max(1, Math.min(map.getHeight() - 2, height));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ChunkColumnGenerator#generate(fr.univartois.butinfo.ihm.flatcraft.model.GameMap, int)
+     */
+    @Override
+    public void generate(GameMap map, int chunkColumn) {
+        long start = System.nanoTime();
+        int fromColumn = chunkColumn * GameMap.CHUNK_SIZE;
+        int[] heights = new int[GameMap.CHUNK_SIZE];
+        surfaceHeights(map, fromColumn, heights);
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (int height : heights) {
+            lowest = Math.min(lowest, height);
+            highest = Math.max(highest, height);
+        }
+
+        double[] surface = new double[GameMap.CHUNK_SIZE];
+        jungleNoise.fill(surface, fromColumn, GameMap.CHUNK_SIZE);
+        double[] noise = new double[CELLS];
+        double[][] ores = new double[ORES.length][CELLS];
+        for (int chunkRow = 0; chunkRow < map.getChunkRows(); chunkRow++) {
+            int fromRow = chunkRow * GameMap.CHUNK_SIZE;
+            int toRow = fromRow + GameMap.CHUNK_SIZE;
+            Chunk chunk = new Chunk();
+            short[] blocks = chunk.blocks();
+
+            if (fromRow <= highest) {
+                cloudNoise.fill(noise, fromColumn, fromRow, GameMap.CHUNK_SIZE, GameMap.CHUNK_SIZE);
+                fillSky(blocks, noise, heights, fromRow);
+            }
+
+            if (toRow > lowest) {
+                caveNoise.fill(noise, fromColumn, fromRow, GameMap.CHUNK_SIZE, GameMap.CHUNK_SIZE);
+                for (int i = 0; i < ORES.length; i++) {
+                    oreNoises[i].fill(ores[i], fromColumn, fromRow, GameMap.CHUNK_SIZE, GameMap.CHUNK_SIZE);
+                }
+                fillGround(map, blocks, noise, ores, surface, heights, fromRow);
+            }
+            map.putChunk(chunkColumn, chunkRow, chunk);
+        }
+        TERRAIN_TIME.recordSince(start);
+    }
+
+    /**
+     * Remplit les cellules de ciel d'un chunk.
+     *
+     * @param blocks Les blocs du chunk, rangés ligne par ligne.
+     * @param clouds Le bruit des nuages, évalué sur les cellules du chunk.
+     * @param heights La ligne de la surface du sol de chacune des colonnes du chunk.
+     * @param fromRow La première ligne du chunk.
+     */
+    private static void fillSky(short[] blocks, double[] clouds, int[] heights, int fromRow) {
+        for (int y = 0; y < GameMap.CHUNK_SIZE; y++) {
+            int row = fromRow + y;
+            for (int x = 0; x < GameMap.CHUNK_SIZE; x++) {
+                if (row < heights[x]) {
+                    // Les nuages restent à distance du sol.
+                    boolean cloud = (clouds[(y * GameMap.CHUNK_SIZE) + x] > CLOUD_THRESHOLD)
+                            && (row < (heights[x] - GameMap.CHUNK_SIZE));
+                    blocks[(y * GameMap.CHUNK_SIZE) + x] = cloud ? BlockRegistry.CLOUD : BlockRegistry.ICE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remplit les cellules de surface et de sous-sol d'un chunk.
+     *
+     * @param map La carte générée.
+     * @param blocks Les blocs du chunk, rangés ligne par ligne.
+     * @param caves Le bruit des grottes, évalué sur les cellules du chunk.
+     * @param ores Les bruits des filons de chacun des minerais, évalués sur les cellules
+     *        du chunk.
+     * @param surface Le bruit des zones de pelouse de jungle, évalué sur les colonnes du
+     *        chunk.
+     * @param heights La ligne de la surface du sol de chacune des colonnes du chunk.
+     * @param fromRow La première ligne du chunk.
+     */
+    private static void fillGround(GameMap map, short[] blocks, double[] caves, double[][] ores,
+            double[] surface, int[] heights, int fromRow) {
+        // La dernière ligne de la carte n'est jamais creusée.
+        int bottom = map.getHeight() - 1;
+        double depthScale = (double) (map.getHeight() - map.getSoilHeight());
+        for (int y = 0; y < GameMap.CHUNK_SIZE; y++) {
+            int row = fromRow + y;
+            for (int x = 0; x < GameMap.CHUNK_SIZE; x++) {
+                int index = (y * GameMap.CHUNK_SIZE) + x;
+                int depth = row - heights[x];
+                if (depth < 0) {
+                    continue;
+                }
+
+                if (depth == 0) {
+                    blocks[index] = (surface[x] > JUNGLE_THRESHOLD)
+                            ? BlockRegistry.JUNGLEGRASS : BlockRegistry.GRASS;
+
+                } else if ((depth > CRUST_DEPTH) && (row < bottom)
+                        && (Math.abs(caves[index]) < CAVE_WIDTH)) {
+                    blocks[index] = BlockRegistry.EMPTY;
+
+                } else {
+                    blocks[index] = oreAt(ores, index, depth / depthScale);
+                }
+            }
+        }
+    }
+
+    /**
+     * Choisit le bloc d'une cellule du sous-sol, selon les filons de minerais qui la
+     * traversent.
+     *
+     * @param ores Les bruits des filons de chacun des minerais.
+     * @param index La position de la cellule dans son chunk.
+     * @param depth La profondeur de la cellule, relativement à la hauteur de la carte
+     *        sous la surface.
+     *
+     * @return Le bloc de la cellule.
+     */
+    private static short oreAt(double[][] ores, int index, double depth) {
+        for (int i = 0; i < ORES.length; i++) {
+            if ((depth >= ORE_DEPTHS[i]) && (ores[i][index] > ORE_THRESHOLDS[i])) {
+                return ORES[i];
+            }
+        }
+        return BlockRegistry.DIRT;
+    }
+
+}
@@ -0,0 +1,183 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link ValueNoise} produit un bruit cohérent (en une ou deux dimensions),
+ * c'est-à-dire une fonction pseudo-aléatoire qui varie continûment d'une cellule à ses
+ * voisines.
+ *
+ * Le bruit est obtenu en tirant une valeur (qui ne dépend que de la graine) en chaque
+ * point d'une grille entière, puis en interpolant ces valeurs entre les points de la
+ * grille.
+ * Plusieurs octaves de fréquences croissantes et d'amplitudes décroissantes sont
+ * superposées, pour obtenir à la fois de grandes variations et des détails.
+ * Le bruit est évalué par lots, sur des rectangles entiers de cellules : les valeurs de
+ * la grille et les poids d'interpolation sont ainsi calculés une seule fois pour toutes
+ * les cellules qui les partagent.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class ValueNoise {
+
+    /**
+     * Le multiplicateur (impair) appliqué aux abscisses de la grille avant mélange.
+     */
+    private static final long PRIME_X = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Le multiplicateur (impair) appliqué aux ordonnées de la grille avant mélange.
+     */
+    private static final long PRIME_Y = 0xc2b2ae3d27d4eb4fL;
+
+    /**
+     * La graine de ce bruit.
+     */
+    private final long seed;
+
+    /**
+     * Le nombre d'octaves superposées.
+     */
+    private final int octaves;
+
+    /**
+     * La fréquence de la première octave, en nombre de points de la grille par cellule.
+     */
+    private final double frequency;
+
+    /**
+     * Crée une nouvelle instance de ValueNoise.
+     *
+     * @param seed La graine du bruit.
+     * @param frequency La fréquence de la première octave, en nombre de points de la
+     *        grille par cellule.
+     * @param octaves Le nombre d'octaves superposées.
+     */
+    ValueNoise(long seed, double frequency, int octaves) {
+        this.seed = seed;
+        this.frequency = frequency;
+        this.octaves = octaves;
+    }
+
+    /**
+     * Évalue ce bruit en une dimension sur un intervalle de cellules.
+     *
+     * @param target Le tableau dans lequel écrire les valeurs du bruit, comprises entre
+     *        {@code -1} et {@code 1}.
+     * @param x0 La première cellule de l'intervalle.
+     * @param width Le nombre de cellules de l'intervalle.
+     */
+    void fill(double[] target, int x0, int width) {
+        fill(target, x0, 0, width, 1);
+    }
+
+    /**
+     * Évalue ce bruit en deux dimensions sur un rectangle de cellules.
+     *
+     * @param target Le tableau dans lequel écrire les valeurs du bruit (comprises entre
+     *        {@code -1} et {@code 1}), rangées ligne par ligne.
+     * @param x0 L'abscisse du coin supérieur gauche du rectangle.
+     * @param y0 L'ordonnée du coin supérieur gauche du rectangle.
+     * @param width La largeur du rectangle.
+     * @param height La hauteur du rectangle.
+     */
+    void fill(double[] target, int x0, int y0, int width, int height) {
+        Arrays.fill(target, 0, width * height, 0);
+        long[] cellX = new long[width];
+        double[] weightX = new double[width];
+        double amplitude = 1;
+        double total = 0;
+        double octaveFrequency = frequency;
+
+        for (int octave = 0; octave < octaves; octave++) {
+            long octaveSeed = seed + (octave * PRIME_Y);
+            for (int x = 0; x < width; x++) {
+                double position = (x0 + x) * octaveFrequency;
+                cellX[x] = (long) Math.floor(position);
+                weightX[x] = fade(position - cellX[x]);
+            }
+
+            for (int y = 0; y < height; y++) {
+                double position = (y0 + y) * octaveFrequency;
+                long cellY = (long) Math.floor(position);
+                double weightY = fade(position - cellY);
+
+                // Les valeurs de la grille ne changent que lorsque l'on change de case.
+                long lastCell = Long.MIN_VALUE;
+                double top = 0;
+                double topRight = 0;
+                double bottom = 0;
+                double bottomRight = 0;
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    if (cellX[x] != lastCell) {
+                        lastCell = cellX[x];
+                        top = lattice(octaveSeed, lastCell, cellY);
+                        topRight = lattice(octaveSeed, lastCell + 1, cellY);
+                        bottom = lattice(octaveSeed, lastCell, cellY + 1);
+                        bottomRight = lattice(octaveSeed, lastCell + 1, cellY + 1);
+                    }
+                    double upper = top + (weightX[x] * (topRight - top));
+                    double lower = bottom + (weightX[x] * (bottomRight - bottom));
+                    target[offset + x] += amplitude * (upper + (weightY * (lower - upper)));
+                }
+            }
+
+            total += amplitude;
+            amplitude /= 2;
+            octaveFrequency *= 2;
+        }
+
+        for (int i = 0; i < width * height; i++) {
+            target[i] /= total;
+        }
+    }
+
+    /**
+     * Donne la valeur pseudo-aléatoire associée à un point de la grille.
+     *
+     * @param octaveSeed La graine de l'octave.
+     * @param x L'abscisse du point.
+     * @param y L'ordonnée du point.
+     *
+     * @return La valeur du point, comprise entre {@code -1} (inclus) et {@code 1}
+     *         (exclus).
+     */
+    private static double lattice(long octaveSeed, long x, long y) {
+        // On applique la fonction de mélange de MurmurHash3.
+        long z = octaveSeed + (x * PRIME_X) + (y * PRIME_Y);
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z ^= z >>> 33;
+        return ((z >>> 11) * 0x1.0p-52) - 1;
+    }
+
+    /**
+     * Adoucit un poids d'interpolation, afin que le bruit n'ait pas d'angles aux points
+     * de la grille.
+     *
+     * @param t Le poids à adoucir, compris entre {@code 0} et {@code 1}.
+     *
+     * @return Le poids adouci.
+     */
+    private static double fade(double t) {
+        return t * t * t * ((t * ((t * 6) - 15)) + 10);
+    }
+
+}
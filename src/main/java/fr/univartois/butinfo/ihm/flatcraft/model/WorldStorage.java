@@ -0,0 +1,565 @@
+package fr.univartois.butinfo.ihm.flatcraft.model; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * La classe {@link WorldStorage} permet de sauvegarder une {@link GameMap} dans un
+ * répertoire, et de l'y recharger.
+ *
+ * Le répertoire contient un fichier décrivant la carte (ses dimensions et les noms des
+ * blocs qu'elle utilise), ainsi qu'un {@link RegionFile} par groupe de
+ * {@value RegionFile#REGION_WIDTH} colonnes de chunks, dans lesquels les chunks sont
+ * écrits sous la forme compacte produite par {@link ChunkCodec}.
+ * Une carte rechargée ne lit ses chunks qu'au moment où ils sont utilisés, et une
+ * sauvegarde n'écrit que les chunks modifiés depuis leur chargement ou la sauvegarde
+ * précédente.
+ * Les chunks peuvent être lus pendant qu'une sauvegarde est en cours dans un autre
+ * thread : seule l'écriture de chacun des chunks d'un même fichier de région empêche
+ * temporairement leur lecture.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class WorldStorage implements Closeable {
+
+    /**
+     * Le nom du fichier décrivant la carte.
+     */
+    private static final String METADATA_FILE = "world.dat";
+
+    /**
+     * Le nombre magique identifiant un fichier de description de carte ("FLWD").
+     */
+    private static final int MAGIC = 0x464c5744;
+
+    /**
+     * La version du format des fichiers de description de carte.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * La largeur sauvegardée pour une carte infinie.
+     */
+    private static final int UNBOUNDED_WIDTH = -1;
+
+    /**
+     * Le répertoire dans lequel la carte est sauvegardée.
+     */
+    private final Path directory;
+
+    /**
+     * La hauteur de la carte sauvegardée.
+     */
+    private final int height;
+
+    /**
+     * La largeur de la carte sauvegardée, ou {@link #UNBOUNDED_WIDTH} si elle est infinie.
+     */
+    private final int width;
+
+    /**
+     * La hauteur de la surface du sol de la carte sauvegardée.
+     */
+    private final int soilHeight;
+
+    /**
+     * Les noms des blocs, indexés par l'identifiant utilisé dans les fichiers de région.
+     * Cette liste ne fait que grandir, afin que les chunks déjà sauvegardés restent
+     * valides.
+     */
+    private final List<String> blockNames;
+
+    /**
+     * Les identifiants (dans les fichiers de région) des blocs qui sont des ressources.
+     */
+    private final BitSet resourceBlocks;
+
+    /**
+     * Les fichiers de région déjà ouverts, indexés par leur position.
+     * Les accès à cette table sont synchronisés sur celle-ci.
+     */
+    private final Map<Integer, RegionFile> regions = new HashMap<>();
+
+    /**
+     * Si des noms de blocs ont été ajoutés depuis la dernière écriture de la description
+     * de la carte.
+     */
+    private boolean metadataModified;
+
+    /**
+     * Le registre des blocs de la carte associée à cette sauvegarde.
+     */
+    private BlockRegistry registry;
+
+    /**
+     * La correspondance entre les identifiants des fichiers et ceux du registre, ou
+     * {@code null} s'ils sont identiques.
+     * Elle est lue lors du chargement des chunks, pendant qu'une sauvegarde peut la
+     * remplacer.
+     */
+    private volatile short[] fromDisk;
+
+    /**
+     * La correspondance entre les identifiants du registre et ceux des fichiers, ou
+     * {@code null} s'ils sont identiques.
+     */
+    private short[] toDisk;
+
+    /**
+     * Crée une nouvelle instance de WorldStorage.
+     *
+     * @param directory Le répertoire dans lequel la carte est sauvegardée.
+     * @param height La hauteur de la carte sauvegardée.
+     * @param width La largeur de la carte sauvegardée.
+     * @param soilHeight La hauteur de la surface du sol de la carte sauvegardée.
+     * @param blockNames Les noms des blocs utilisés dans les fichiers de région.
+     * @param resourceBlocks Les identifiants des blocs qui sont des ressources.
+     */
+    private WorldStorage(Path directory, int height, int width, int soilHeight,
+            List<String> blockNames, BitSet resourceBlocks) {
+        this.directory = directory;
+        this.height = height;
+        this.width = width;
+        this.soilHeight = soilHeight;
+        this.blockNames = blockNames;
+        this.resourceBlocks = resourceBlocks;
+    }
+
+    /**
+     * Crée une nouvelle sauvegarde pour la carte donnée.
+     * Aucun chunk n'est écrit tant que {@link #save(GameMap)} n'est pas appelée.
+     *
+     * @param directory Le répertoire dans lequel sauvegarder la carte.
+     * @param map La carte à sauvegarder.
+     *
+     * @return La sauvegarde créée.
+     *
+     * @throws IOException Si le répertoire ne peut pas être créé.
+     */
+    public static WorldStorage create(Path directory, GameMap map) throws IOException {
+        Files.createDirectories(directory);
+        List<String> names = new ArrayList<>();
+        names.add("");
+        int width = map.isUnbounded() ? UNBOUNDED_WIDTH : map.getWidth();
+        WorldStorage storage = new WorldStorage(directory, map.getHeight(), width,
+                map.getSoilHeight(), names, new BitSet());
+        storage.bindTo(map.getRegistry());
+        storage.writeMetadata();
+        return storage;
+    }
+
+    /**
+     * Ouvre une sauvegarde existante.
+     *
+     * @param directory Le répertoire dans lequel la carte a été sauvegardée.
+     *
+     * @return La sauvegarde ouverte.
+     *
+     * @throws IOException Si la description de la carte ne peut pas être lue.
+     */
+    public static WorldStorage open(Path directory) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(METADATA_FILE))))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                throw new IOException("Not a valid world in " + directory);
+            }
+
+            int height = input.readInt();
+            int width = input.readInt();
+            int soilHeight = input.readInt();
+            if (input.readInt() != GameMap.CHUNK_SIZE) {
+                throw new IOException("Unsupported chunk size in " + directory);
+            }
+
+            int nbNames = input.readInt();
+            List<String> names = new ArrayList<>(nbNames);
+            BitSet resources = new BitSet();
+            for (int i = 0; i < nbNames; i++) {
+                names.add(input.readUTF());
+                resources.set(i, input.readBoolean());
+            }
+            return new WorldStorage(directory, height, width, soilHeight, names, resources);
+        }
+    }
+
+    /**
+     * Crée la carte sauvegardée, dont les chunks sont lus au moment où ils sont utilisés.
+     * Les colonnes de chunks qui n'ont jamais été sauvegardées restent vides.
+     *
+     * @param registry Le registre des blocs de la carte à créer.
+     *
+     * @return La carte sauvegardée.
+     */
+    public GameMap loadMap(BlockRegistry registry) {
+        return loadMap(registry, (map, chunkColumn) -> {
+            // Les colonnes absentes de la sauvegarde sont vides.
+        });
+    }
+
+    /**
+     * Crée la carte sauvegardée, dont les chunks sont lus au moment où ils sont utilisés.
+     * Chaque colonne de chunks est d'abord remplie par le générateur donné, puis les
+     * chunks sauvegardés y remplacent ceux qui ont été générés.
+     * Il n'est ainsi pas nécessaire de sauvegarder les chunks qui n'ont pas été modifiés
+     * depuis leur génération, et l'exploration d'une carte infinie peut se poursuivre.
+     *
+     * @param registry Le registre des blocs de la carte à créer.
+     * @param fallback Le générateur utilisé pour les colonnes absentes de la sauvegarde.
+     *
+     * @return La carte sauvegardée.
+     */
+    public GameMap loadMap(BlockRegistry registry, ChunkColumnGenerator fallback) {
+        bindTo(registry);
+        ChunkColumnGenerator loader = (map, chunkColumn) -> {
+            fallback.generate(map, chunkColumn);
+            loadColumn(map, chunkColumn);
+        };
+
+        if (width == UNBOUNDED_WIDTH) {
+            return new GameMap(height, soilHeight, registry, loader);
+        }
+        return new GameMap(height, width, soilHeight, registry, loader);
+    }
+
+    /**
+     * Sauvegarde les chunks de la carte modifiés depuis leur chargement ou la sauvegarde
+     * précédente.
+     * Les chunks sauvegardés sont alors considérés comme non modifiés, ce qui permet
+     * notamment de les décharger.
+     *
+     * @param map La carte à sauvegarder, qui doit avoir été créée ou chargée par cette
+     *        sauvegarde.
+     *
+     * @return Le nombre de chunks écrits.
+     *
+     * @throws IOException Si l'écriture de l'un des chunks échoue.
+     */
+    public synchronized int save(GameMap map) throws IOException {
+        prepareSave(map.getRegistry());
+        return writeChunks(map::forEachLoadedColumn, Chunk::isModified, true);
+    }
+
+    /**
+     * Sauvegarde les chunks d'une snapshot de la carte qui avaient été modifiés depuis
+     * leur chargement ou la sauvegarde précédente au moment où la snapshot a été prise.
+     * Cette méthode peut être appelée depuis un autre thread que celui qui modifie la
+     * carte, sans interrompre ce dernier.
+     * Les chunks sauvegardés restent considérés comme modifiés jusqu'à l'appel de
+     * {@link GameMap#markSaved(GameMapSnapshot)} depuis le thread de la carte.
+     * Aucun bloc ne doit être enregistré dans le registre de la carte pendant cette
+     * sauvegarde.
+     *
+     * @param snapshot La snapshot à sauvegarder, prise sur une carte créée ou chargée par
+     *        cette sauvegarde.
+     *
+     * @return Le nombre de chunks écrits.
+     *
+     * @throws IOException Si l'écriture de l'un des chunks échoue.
+     */
+    public synchronized int save(GameMapSnapshot snapshot) throws IOException {
+        prepareSave(snapshot.getRegistry());
+        return writeChunks(snapshot::forEachColumn, snapshot::isModified, false);
+    }
+
+    /**
+     * Vérifie qu'une carte peut être sauvegardée dans cette sauvegarde, et met à jour ses
+     * métadonnées si nécessaire.
+     *
+     * @param mapRegistry Le registre des blocs de la carte.
+     *
+     * @throws IOException Si l'écriture des métadonnées échoue.
+     */
+    private void prepareSave(BlockRegistry mapRegistry) throws IOException {
+        if (mapRegistry != registry) {
+            throw new IllegalArgumentException("This map is not bound to this storage!");
+        }
+        updateBlockNames();
+        if (metadataModified) {
+            writeMetadata();
+        }
+    }
+
+    /**
+     * Écrit des chunks modifiés dans les fichiers de région.
+     *
+     * @param columns Le parcours des colonnes de chunks à sauvegarder.
+     * @param modified Le test indiquant si un chunk a été modifié.
+     * @param markSaved Si les chunks écrits doivent être considérés comme non modifiés.
+     *
+     * @return Le nombre de chunks écrits.
+     *
+     * @throws IOException Si l'écriture de l'un des chunks échoue.
+     */
+    private int writeChunks(Consumer<ObjIntConsumer<Chunk[]>> columns, Predicate<Chunk> modified,
+            boolean markSaved) throws IOException {
+        int[] written = new int[1];
+        short[] buffer = new short[Chunk.SIZE * Chunk.SIZE];
+        byte[] encoded = new byte[ChunkCodec.MAX_SIZE];
+        try {
+            columns.accept((chunks, chunkColumn) -> {
+                for (int row = 0; row < chunks.length; row++) {
+                    Chunk chunk = chunks[row];
+                    if ((chunk != null) && modified.test(chunk)) {
+                        write(chunkColumn, row, chunk, buffer, encoded);
+                        if (markSaved) {
+                            chunk.setModified(false);
+                        }
+                        written[0]++;
+                    }
+                }
+            });
+
+            for (RegionFile region : openedRegions()) {
+                region.flush();
+            }
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return written[0];
+    }
+
+    /**
+     * Écrit un chunk dans le fichier de région correspondant, sous sa forme compacte.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     * @param row La position du chunk dans sa colonne.
+     * @param chunk Le chunk à écrire, qui n'est pas modifié.
+     * @param buffer Un tableau pouvant recevoir les identifiants des blocs du chunk.
+     * @param encoded Un tableau pouvant recevoir la représentation compacte du chunk.
+     *
+     * @throws UncheckedIOException Si l'écriture du chunk échoue.
+     */
+    private void write(int chunkColumn, int row, Chunk chunk, short[] buffer, byte[] encoded) {
+        int length;
+        if (toDisk == null) {
+            length = chunk.encode(encoded);
+
+        } else {
+            short[] blocks = chunk.copyBlocks(buffer);
+            length = ChunkCodec.encode(translate(blocks, toDisk, blocks), encoded);
+        }
+
+        try {
+            region(chunkColumn).write(Math.floorMod(chunkColumn, RegionFile.REGION_WIDTH),
+                    row, encoded, length);
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lit les chunks sauvegardés d'une colonne depuis les fichiers de région.
+     *
+     * @param map La carte dans laquelle placer les chunks lus.
+     * @param chunkColumn La position de la colonne de chunks.
+     *
+     * @throws UncheckedIOException Si le fichier de région ne peut pas être ouvert.
+     */
+    private void loadColumn(GameMap map, int chunkColumn) {
+        RegionFile region = region(chunkColumn);
+        int localColumn = Math.floorMod(chunkColumn, RegionFile.REGION_WIDTH);
+        if (!region.containsColumn(localColumn)) {
+            return;
+        }
+
+        for (int row = 0; row < map.getChunkRows(); row++) {
+            byte[] data = region.read(localColumn, row);
+            if (data != null) {
+                Chunk chunk = new Chunk();
+                ChunkCodec.decode(data, chunk.blocks());
+                translate(chunk.blocks(), fromDisk, chunk.blocks());
+                map.putChunk(chunkColumn, row, chunk);
+            }
+        }
+    }
+
+    /**
+     * Donne le fichier de région contenant une colonne de chunks, en l'ouvrant si
+     * nécessaire.
+     *
+     * @param chunkColumn La position de la colonne de chunks.
+     *
+     * @return Le fichier de région correspondant.
+     *
+     * @throws UncheckedIOException Si le fichier ne peut pas être ouvert.
+     */
+    private RegionFile region(int chunkColumn) {
+        int index = Math.floorDiv(chunkColumn, RegionFile.REGION_WIDTH);
+        synchronized (regions) {
+            RegionFile region = regions.get(index);
+            if (region == null) {
+                try {
+                    int chunkRows = ((height - 1) / GameMap.CHUNK_SIZE) + 1;
+                    region = new RegionFile(directory.resolve("r." + index + ".flr"), chunkRows);
+                    regions.put(index, region);
+
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return region;
+        }
+    }
+
+    /**
+     * Donne les fichiers de région actuellement ouverts.
+     *
+     * @return Une copie de la liste des fichiers de région ouverts.
+     */
+    private List<RegionFile> openedRegions() {
+        synchronized (regions) {
+            return new ArrayList<>(regions.values());
+        }
+    }
+
+    /**
+     * Associe cette sauvegarde au registre des blocs de la carte, en y enregistrant les
+     * blocs sauvegardés qu'il ne connaît pas encore.
+     *
+     * @param registry Le registre des blocs de la carte.
+     */
+    private void bindTo(BlockRegistry registry) {
+        this.registry = registry;
+        for (int i = 1; i < blockNames.size(); i++) {
+            registry.register(blockNames.get(i), resourceBlocks.get(i));
+        }
+        updateBlockNames();
+    }
+
+    /**
+     * Met à jour la correspondance entre les identifiants des fichiers et ceux du
+     * registre, en ajoutant aux noms sauvegardés ceux des blocs enregistrés depuis la
+     * dernière mise à jour.
+     */
+    private void updateBlockNames() {
+        boolean identity = true;
+        short[] newToDisk = new short[registry.size()];
+        for (short id = 1; id < newToDisk.length; id++) {
+            String name = registry.getName(id);
+            int diskId = blockNames.indexOf(name);
+            if (diskId < 0) {
+                diskId = blockNames.size();
+                blockNames.add(name);
+                resourceBlocks.set(diskId, registry.isResource(id));
+                metadataModified = true;
+            }
+            newToDisk[id] = (short) diskId;
+            identity &= (diskId == id);
+        }
+
+        if (identity) {
+            toDisk = null;
+            fromDisk = null;
+
+        } else {
+            toDisk = newToDisk;
+            fromDisk = new short[blockNames.size()];
+            for (short id = 0; id < toDisk.length; id++) {
+                fromDisk[toDisk[id]] = id;
+            }
+        }
+    }
+
+    /**
+     * Traduit des identifiants de blocs selon une table de correspondance.
+     *
+     * @param blocks Les identifiants à traduire.
+     * @param table La table de correspondance, ou {@code null} si les identifiants sont
+     *        inchangés.
+     * @param target Le tableau dans lequel écrire les identifiants traduits.
+     *
+     * @return Les identifiants traduits.
+     */
+    private static short[] translate(short[] blocks, short[] table, short[] target) {
+        if (table == null) {
+            return blocks;
+        }
+
+        for (int i = 0; i < blocks.length; i++) {
+            target[i] = table[blocks[i]];
+        }
+        return target;
+    }
+
+    /**
+     * Écrit le fichier décrivant la carte.
+     *
+     * @throws IOException Si le fichier ne peut pas être écrit.
+     */
+    private void writeMetadata() throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(directory.resolve(METADATA_FILE))))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(height);
+            output.writeInt(width);
+            output.writeInt(soilHeight);
+            output.writeInt(GameMap.CHUNK_SIZE);
+            output.writeInt(blockNames.size());
+            for (int i = 0; i < blockNames.size(); i++) {
+                output.writeUTF(blockNames.get(i));
+                output.writeBoolean(resourceBlocks.get(i));
+            }
+        }
+        metadataModified = false;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (RegionFile region : openedRegions()) {
+            try {
+                region.close();
+
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        synchronized (regions) {
+            regions.clear();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+}
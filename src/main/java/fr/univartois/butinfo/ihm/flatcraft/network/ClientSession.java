@@ -0,0 +1,194 @@
+package fr.univartois.butinfo.ihm.flatcraft.network; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Player;
+
+/**
+ * La classe {@link ClientSession} représente, sur le serveur, la connexion d'un client
+ * et ce qui lui a déjà été envoyé.
+ *
+ * Le serveur retient les colonnes de chunks que le client connaît, ainsi que la dernière
+ * position qu'il lui a transmise pour chaque objet mobile : seules les différences avec
+ * cet état lui sont ensuite envoyées.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class ClientSession {
+
+    /**
+     * Le nombre maximal d'octets en attente d'envoi vers un client.
+     * Un client qui ne lit pas assez vite ses messages est déconnecté.
+     */
+    private static final int MAX_PENDING_BYTES = 8 << 20;
+
+    /**
+     * Le canal de communication avec le client.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * La clé associant le canal au sélecteur du serveur.
+     */
+    private final SelectionKey key;
+
+    /**
+     * Le joueur contrôlé par le client.
+     */
+    private final Player player;
+
+    /**
+     * Les octets reçus du client, pas encore traités.
+     */
+    private ByteBuffer input = ByteBuffer.allocate(256);
+
+    /**
+     * Les messages en attente d'envoi vers le client.
+     */
+    private final Queue<ByteBuffer> output = new ArrayDeque<>();
+
+    /**
+     * Le nombre d'octets en attente d'envoi vers le client.
+     */
+    private int pendingBytes;
+
+    /**
+     * Les colonnes de chunks envoyées au client, et tenues à jour depuis.
+     */
+    final Set<Integer> chunkColumns = new HashSet<>();
+
+    /**
+     * Les positions (sous la forme d'un entier long) des objets mobiles connus du
+     * client, indexées par leur identifiant.
+     */
+    final Map<Integer, Long> knownMovables = new HashMap<>();
+
+    /**
+     * Crée une nouvelle instance de ClientSession.
+     *
+     * @param channel Le canal de communication avec le client.
+     * @param key La clé associant le canal au sélecteur du serveur.
+     * @param player Le joueur contrôlé par le client.
+     */
+    ClientSession(SocketChannel channel, SelectionKey key, Player player) {
+        this.channel = channel;
+        this.key = key;
+        this.player = player;
+    }
+
+    /**
+     * Donne le joueur contrôlé par le client.
+     *
+     * @return Le joueur du client.
+     */
+    Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Lit les octets envoyés par le client, sans bloquer.
+     *
+     * @return Le tampon contenant les octets reçus et pas encore traités, prêt à être
+     *         lu, ou {@code null} si le client a fermé la connexion.
+     *
+     * @throws IOException Si une erreur se produit lors de la lecture.
+     */
+    ByteBuffer read() throws IOException {
+        if (!input.hasRemaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(2 * input.capacity());
+            input.flip();
+            input = grown.put(input);
+        }
+
+        if (channel.read(input) < 0) {
+            return null;
+        }
+        return input.flip();
+    }
+
+    /**
+     * Conserve les octets reçus du client qui n'ont pas encore été traités, en vue de
+     * la prochaine lecture.
+     */
+    void compact() {
+        input.compact();
+    }
+
+    /**
+     * Ajoute des messages à envoyer au client, et envoie autant d'octets que possible
+     * sans bloquer.
+     *
+     * @param messages Les messages à envoyer.
+     *
+     * @throws IOException Si une erreur se produit lors de l'envoi, ou si le client a
+     *         trop de messages en attente.
+     */
+    void send(ByteBuffer messages) throws IOException {
+        pendingBytes += messages.remaining();
+        if (pendingBytes > MAX_PENDING_BYTES) {
+            throw new IOException("Client is too slow to read its messages");
+        }
+        output.add(messages);
+        flush();
+    }
+
+    /**
+     * Envoie autant d'octets en attente que possible sans bloquer.
+     * Tant qu'il en reste, le serveur est prévenu lorsque le client peut en recevoir
+     * davantage.
+     *
+     * @throws IOException Si une erreur se produit lors de l'envoi.
+     */
+    void flush() throws IOException {
+        while (!output.isEmpty()) {
+            ByteBuffer buffer = output.peek();
+            pendingBytes -= channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            output.poll();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    /**
+     * Ferme la connexion avec le client.
+     */
+    void close() {
+        key.cancel();
+        try {
+            channel.close();
+
+        } catch (IOException e) {
+            // La connexion est de toute façon perdue.
+        }
+    }
+
+}
@@ -0,0 +1,541 @@
+package fr.univartois.butinfo.ihm.flatcraft.network; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.PlayerAction;
+
+/**
+ * La classe {@link GameClient} permet de participer à une partie de Flatcraft hébergée
+ * par un {@link GameServer}.
+ *
+ * Le client transmet au serveur les actions de son joueur, et tient à jour une copie de
+ * la partie autour de ce joueur à partir des messages qu'il reçoit.
+ * Il ne bloque jamais : {@link #poll()} traite seulement les messages déjà reçus, et peut
+ * donc être appelée à chaque image de l'affichage.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class GameClient implements Closeable {
+
+    /**
+     * Le canal de communication avec le serveur.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Les octets reçus du serveur, pas encore traités.
+     */
+    private ByteBuffer input = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * L'écrivain utilisé pour préparer les messages envoyés au serveur.
+     */
+    private final MessageWriter writer = new MessageWriter();
+
+    /**
+     * Les octets en attente d'envoi vers le serveur.
+     */
+    private ByteBuffer output = ByteBuffer.allocate(0);
+
+    /**
+     * Le nombre d'octets reçus du serveur.
+     */
+    private long receivedBytes;
+
+    /**
+     * Si le serveur a fermé la connexion.
+     */
+    private boolean disconnected;
+
+    /**
+     * L'identifiant du joueur de ce client, ou {@code -1} s'il n'est pas encore connu.
+     */
+    private int playerId = -1;
+
+    /**
+     * La hauteur de la carte de la partie.
+     */
+    private int height;
+
+    /**
+     * La largeur de la carte de la partie, ou {@code -1} si elle est infinie.
+     */
+    private int width;
+
+    /**
+     * La hauteur de la surface du sol de la carte de la partie.
+     */
+    private int soilHeight;
+
+    /**
+     * Le nombre de pas de simulation par seconde de la partie.
+     */
+    private int tickRate;
+
+    /**
+     * Les noms des blocs, indexés par leur identifiant sur le serveur.
+     */
+    private String[] blockNames = new String[0];
+
+    /**
+     * Le numéro du dernier pas de simulation dont les modifications ont été reçues.
+     */
+    private long lastTick;
+
+    /**
+     * Les blocs des colonnes de chunks reçues, rangés colonne par colonne.
+     */
+    private final Map<Integer, short[]> chunkColumns = new HashMap<>();
+
+    /**
+     * Les positions (sous la forme d'un entier long) des objets mobiles connus,
+     * indexées par leur identifiant.
+     */
+    private final Map<Integer, Long> positions = new HashMap<>();
+
+    /**
+     * Les noms des sprites des objets mobiles connus, indexés par leur identifiant.
+     */
+    private final Map<Integer, String> sprites = new HashMap<>();
+
+    /**
+     * Crée une nouvelle instance de GameClient.
+     *
+     * @param channel Le canal de communication avec le serveur.
+     */
+    private GameClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Se connecte à un serveur.
+     *
+     * @param address L'adresse du serveur.
+     *
+     * @return Le client connecté au serveur.
+     *
+     * @throws IOException Si la connexion échoue.
+     */
+    public static GameClient connect(SocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return new GameClient(channel);
+    }
+
+    /**
+     * Demande au serveur de faire réaliser une action au joueur de ce client.
+     *
+     * @param action L'action à réaliser.
+     *
+     * @throws IOException Si une erreur se produit lors de l'envoi.
+     */
+    public void send(PlayerAction action) throws IOException {
+        writer.begin(Protocol.ACTION).writeByte(action.getCode()).end();
+        ByteBuffer message = writer.drain();
+        if (output.hasRemaining()) {
+            message = ByteBuffer.allocate(output.remaining() + message.remaining())
+                    .put(output).put(message).flip();
+        }
+        output = message;
+        channel.write(output);
+    }
+
+    /**
+     * Traite les messages déjà reçus du serveur, sans bloquer.
+     *
+     * @return Le nombre de messages traités.
+     *
+     * @throws IOException Si une erreur se produit lors de la lecture, ou si un message
+     *         est incorrect.
+     */
+    public int poll() throws IOException {
+        if (output.hasRemaining()) {
+            channel.write(output);
+        }
+
+        int read;
+        do {
+            if (!input.hasRemaining()) {
+                input = ByteBuffer.allocate(2 * input.capacity()).put(input.flip());
+            }
+            read = channel.read(input);
+            if (read > 0) {
+                receivedBytes += read;
+            }
+        } while (read > 0);
+        disconnected |= (read < 0);
+
+        input.flip();
+        int messages = 0;
+        try {
+            for (int length = Protocol.completeMessageLength(input); length > 0;
+                    length = Protocol.completeMessageLength(input)) {
+                int end = input.position() + length;
+                input.position(input.position() + Protocol.HEADER_SIZE);
+                handle(input.get());
+                input.position(end);
+                messages++;
+            }
+
+        } catch (RuntimeException e) {
+            throw new IOException("Incorrect message from server", e);
+
+        } finally {
+            input.compact();
+        }
+        return messages;
+    }
+
+    /**
+     * Traite un message reçu du serveur.
+     *
+     * @param type Le type du message, dont le contenu suit dans le tampon d'entrée.
+     */
+    private void handle(byte type) {
+        switch (type) {
+            case Protocol.WELCOME -> readWelcome();
+            case Protocol.CHUNK -> readChunkColumn();
+            case Protocol.UNLOAD -> chunkColumns.remove(Protocol.readSignedVarInt(input));
+            case Protocol.DELTA -> readDelta();
+            default -> throw new IllegalArgumentException("Unexpected message type " + type);
+        }
+    }
+
+    /**
+     * Lit le message décrivant la partie.
+     */
+    private void readWelcome() {
+        playerId = Protocol.readVarInt(input);
+        height = Protocol.readVarInt(input);
+        width = Protocol.readSignedVarInt(input);
+        soilHeight = Protocol.readVarInt(input);
+        tickRate = Protocol.readVarInt(input);
+        blockNames = new String[Protocol.readVarInt(input)];
+        for (int i = 0; i < blockNames.length; i++) {
+            blockNames[i] = Protocol.readString(input);
+        }
+    }
+
+    /**
+     * Lit le message contenant tous les blocs d'une colonne de chunks.
+     */
+    private void readChunkColumn() {
+        int chunkColumn = Protocol.readSignedVarInt(input);
+        short[] blocks = new short[GameMap.CHUNK_SIZE * height];
+        int index = 0;
+        while (index < blocks.length) {
+            int run = Protocol.readVarInt(input);
+            short block = (short) Protocol.readVarInt(input);
+            if ((run <= 0) || (run > (blocks.length - index))) {
+                throw new IllegalArgumentException("Incorrect run length " + run);
+            }
+            for (int end = index + run; index < end; index++) {
+                blocks[index] = block;
+            }
+        }
+        chunkColumns.put(chunkColumn, blocks);
+    }
+
+    /**
+     * Lit le message contenant les modifications survenues lors d'un pas de simulation.
+     */
+    private void readDelta() {
+        lastTick = Protocol.readVarLong(input);
+
+        int row = 0;
+        int column = 0;
+        for (int i = Protocol.readVarInt(input); i > 0; i--) {
+            row += Protocol.readSignedVarInt(input);
+            column += Protocol.readSignedVarInt(input);
+            short block = (short) Protocol.readVarInt(input);
+            short[] blocks = chunkColumns.get(Math.floorDiv(column, GameMap.CHUNK_SIZE));
+            if (blocks != null) {
+                blocks[index(row, column)] = block;
+            }
+        }
+
+        for (int i = Protocol.readVarInt(input); i > 0; i--) {
+            int id = Protocol.readVarInt(input);
+            positions.remove(id);
+            sprites.remove(id);
+        }
+
+        for (int i = Protocol.readVarInt(input); i > 0; i--) {
+            int id = Protocol.readVarInt(input);
+            sprites.put(id, Protocol.readString(input));
+            int spawnRow = Protocol.readSignedVarInt(input);
+            int spawnColumn = Protocol.readSignedVarInt(input);
+            positions.put(id, pack(spawnRow, spawnColumn));
+        }
+
+        for (int i = Protocol.readVarInt(input); i > 0; i--) {
+            int id = Protocol.readVarInt(input);
+            long position = positions.get(id);
+            int newRow = (int) (position >> 32) + Protocol.readSignedVarInt(input);
+            int newColumn = (int) position + Protocol.readSignedVarInt(input);
+            positions.put(id, pack(newRow, newColumn));
+        }
+    }
+
+    /**
+     * Vérifie si ce client a reçu la description de la partie.
+     *
+     * @return Si la description de la partie a été reçue.
+     */
+    public boolean isWelcomed() {
+        return playerId >= 0;
+    }
+
+    /**
+     * Vérifie si le serveur a fermé la connexion.
+     *
+     * @return Si la connexion a été fermée par le serveur.
+     */
+    public boolean isDisconnected() {
+        return disconnected;
+    }
+
+    /**
+     * Donne l'identifiant du joueur de ce client.
+     *
+     * @return L'identifiant du joueur, ou {@code -1} s'il n'est pas encore connu.
+     */
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Donne la hauteur de la carte de la partie.
+     *
+     * @return La hauteur de la carte.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Donne la largeur de la carte de la partie.
+     *
+     * @return La largeur de la carte, ou {@code -1} si elle est infinie.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Donne la hauteur de la surface du sol de la carte de la partie.
+     *
+     * @return La hauteur de la surface du sol.
+     */
+    public int getSoilHeight() {
+        return soilHeight;
+    }
+
+    /**
+     * Donne le nombre de pas de simulation par seconde de la partie.
+     *
+     * @return Le nombre de pas de simulation par seconde.
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Donne le numéro du dernier pas de simulation dont les modifications ont été
+     * reçues.
+     *
+     * @return Le numéro du dernier pas de simulation reçu.
+     */
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    /**
+     * Donne le nombre d'octets reçus du serveur depuis la connexion.
+     *
+     * @return Le nombre d'octets reçus.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    /**
+     * Donne le nombre de colonnes de chunks reçues et tenues à jour par le serveur.
+     *
+     * @return Le nombre de colonnes de chunks connues.
+     */
+    public int getChunkColumnCount() {
+        return chunkColumns.size();
+    }
+
+    /**
+     * Vérifie si une colonne de la carte est tenue à jour par le serveur.
+     *
+     * @param column La colonne de la carte.
+     *
+     * @return Si les blocs de la colonne sont connus.
+     */
+    public boolean isLoaded(int column) {
+        return chunkColumns.containsKey(Math.floorDiv(column, GameMap.CHUNK_SIZE));
+    }
+
+    /**
+     * Donne le nom du bloc se trouvant dans une cellule de la carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Le nom du bloc, ou {@code null} si la cellule est vide.
+     *
+     * @throws IllegalArgumentException Si la cellule n'est pas connue de ce client.
+     */
+    public String getBlockNameAt(int row, int column) {
+        short block = getBlockAt(row, column);
+        return (block == 0) ? null : blockNames[block];
+    }
+
+    /**
+     * Donne l'identifiant (sur le serveur) du bloc se trouvant dans une cellule de la
+     * carte.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return L'identifiant du bloc.
+     *
+     * @throws IllegalArgumentException Si la cellule n'est pas connue de ce client.
+     */
+    public short getBlockAt(int row, int column) {
+        short[] blocks = chunkColumns.get(Math.floorDiv(column, GameMap.CHUNK_SIZE));
+        if ((blocks == null) || (row < 0) || (row >= height)) {
+            throw new IllegalArgumentException("Unknown cell " + row + ", " + column);
+        }
+        return blocks[index(row, column)];
+    }
+
+    /**
+     * Donne les identifiants des objets mobiles connus de ce client.
+     *
+     * @return Les identifiants des objets mobiles proches du joueur.
+     */
+    public Set<Integer> getMovableIds() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    /**
+     * Donne le nom du sprite représentant un objet mobile.
+     *
+     * @param id L'identifiant de l'objet mobile.
+     *
+     * @return Le nom du sprite de l'objet, ou {@code null} s'il n'est pas connu.
+     */
+    public String getMovableSpriteName(int id) {
+        return sprites.get(id);
+    }
+
+    /**
+     * Donne la ligne où se trouve un objet mobile.
+     *
+     * @param id L'identifiant de l'objet mobile.
+     *
+     * @return La ligne de l'objet mobile.
+     *
+     * @throws IllegalArgumentException Si l'objet mobile n'est pas connu.
+     */
+    public int getMovableRow(int id) {
+        return (int) (positionOf(id) >> 32);
+    }
+
+    /**
+     * Donne la colonne où se trouve un objet mobile.
+     *
+     * @param id L'identifiant de l'objet mobile.
+     *
+     * @return La colonne de l'objet mobile.
+     *
+     * @throws IllegalArgumentException Si l'objet mobile n'est pas connu.
+     */
+    public int getMovableColumn(int id) {
+        return (int) positionOf(id);
+    }
+
+    /**
+     * Donne la position d'un objet mobile, sous la forme d'un entier long.
+     *
+     * @param id L'identifiant de l'objet mobile.
+     *
+     * @return La position de l'objet mobile.
+     *
+     * @throws IllegalArgumentException Si l'objet mobile n'est pas connu.
+     */
+    private long positionOf(int id) {
+        Long position = positions.get(id);
+        if (position == null) {
+            throw new IllegalArgumentException("Unknown movable " + id);
+        }
+        return position;
+    }
+
+    /**
+     * Donne la position d'une cellule dans le tableau des blocs de sa colonne de chunks.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return La position de la cellule dans sa colonne de chunks.
+     */
+    private int index(int row, int column) {
+        return (Math.floorMod(column, GameMap.CHUNK_SIZE) * height) + row;
+    }
+
+    /**
+     * Représente une position sous la forme d'un entier long.
+     *
+     * @param row La ligne de la position.
+     * @param column La colonne de la position.
+     *
+     * @return L'entier long représentant la position.
+     */
+    private static long pack(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,751 @@
+package fr.univartois.butinfo.ihm.flatcraft.network; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface;
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.BlockRegistry;
+import fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch;
+import fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBus;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameLoop;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.Player;
+import fr.univartois.butinfo.ihm.flatcraft.model.PlayerAction;
+
+/**
+ * La classe {@link GameServer} héberge une partie de Flatcraft à laquelle plusieurs
+ * joueurs participent à travers le réseau.
+ *
+ * Le serveur fait foi : il simule seul la partie, et les clients ne font que lui
+ * transmettre les actions de leur joueur.
+ * Chaque client ne reçoit que les colonnes de chunks proches de son joueur, puis, à
+ * chaque pas de simulation, seulement les cellules modifiées et les déplacements des
+ * objets mobiles qui le concernent, au format décrit par {@link Protocol}.
+ * Un unique thread gère toutes les connexions, grâce à des canaux non bloquants.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class GameServer implements TerrariaInterface, Closeable {
+
+    /**
+     * Le port sur lequel le serveur attend les connexions par défaut.
+     */
+    public static final int DEFAULT_PORT = 4242;
+
+    /**
+     * La distance (en nombre de colonnes de chunks) autour d'un joueur jusqu'à laquelle
+     * la carte est envoyée à son client.
+     */
+    private static final int VIEW_DISTANCE = 2;
+
+    /**
+     * Le nom du sprite représentant les joueurs des clients.
+     */
+    private static final String PLAYER_SPRITE = "player";
+
+    /**
+     * Le journal dans lequel les connexions sont enregistrées.
+     */
+    private static final Logger LOGGER = Logger.getLogger(GameServer.class.getName());
+
+    /**
+     * La partie hébergée par ce serveur.
+     */
+    private final FlatcraftGame game;
+
+    /**
+     * La carte de la partie hébergée.
+     */
+    private GameMap map;
+
+    /**
+     * Le bus regroupant les modifications des blocs de la carte depuis le dernier pas
+     * de simulation (sans celles de l'éclairage, que les clients n'ont pas besoin de
+     * recevoir).
+     */
+    private final CellChangeBus blockChanges = new CellChangeBus();
+
+    /**
+     * Les identifiants attribués aux objets mobiles de la partie.
+     */
+    private final Map<AbstractMovable, Integer> movableIds = new IdentityHashMap<>();
+
+    /**
+     * Les objets mobiles de la partie, indexés par leur identifiant.
+     */
+    private final Map<Integer, AbstractMovable> movables = new HashMap<>();
+
+    /**
+     * L'identifiant du prochain objet mobile ajouté à la partie.
+     */
+    private int nextId;
+
+    /**
+     * Les positions, dans le lot des cellules modifiées, de celles à envoyer au client
+     * en cours de synchronisation (ce tableau est réutilisé d'un client à l'autre).
+     */
+    private int[] selectedChanges = new int[64];
+
+    /**
+     * Les sessions des clients connectés.
+     */
+    private final List<ClientSession> sessions = new ArrayList<>();
+
+    /**
+     * L'écrivain utilisé pour préparer les messages envoyés aux clients.
+     */
+    private final MessageWriter writer = new MessageWriter();
+
+    /**
+     * Le sélecteur surveillant les canaux de communication.
+     */
+    private Selector selector;
+
+    /**
+     * Le canal sur lequel le serveur attend les connexions.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Le thread exécutant le serveur, ou {@code null} s'il n'a pas été démarré.
+     */
+    private Thread thread;
+
+    /**
+     * Si le serveur doit s'arrêter.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Crée une nouvelle instance de GameServer, et prépare la partie qu'il héberge.
+     *
+     * @param game La partie à héberger, qui ne doit pas encore avoir été préparée.
+     */
+    public GameServer(FlatcraftGame game) {
+        this(game, null);
+    }
+
+    /**
+     * Crée une nouvelle instance de GameServer, et prépare la partie qu'il héberge sur
+     * une carte déjà générée.
+     *
+     * @param game La partie à héberger, qui ne doit pas encore avoir été préparée.
+     * @param map La carte de la partie, ou {@code null} pour en générer une.
+     */
+    public GameServer(FlatcraftGame game, GameMap map) {
+        this.game = game;
+        game.setTerInter(this);
+        game.setLocalPlayer(false);
+        if (map == null) {
+            game.prepare();
+
+        } else {
+            game.prepare(map);
+        }
+    }
+
+    /**
+     * Donne la partie hébergée par ce serveur.
+     *
+     * @return La partie hébergée.
+     */
+    public FlatcraftGame getGame() {
+        return game;
+    }
+
+    /**
+     * Donne le nombre de clients connectés à ce serveur.
+     * Cette méthode ne doit être appelée que par le thread du serveur.
+     *
+     * @return Le nombre de clients connectés.
+     */
+    public int getClientCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Ouvre le serveur à l'adresse donnée.
+     *
+     * @param address L'adresse sur laquelle attendre les connexions (un port
+     *        {@code 0} laisse le système en choisir un).
+     *
+     * @return L'adresse sur laquelle le serveur attend effectivement les connexions.
+     *
+     * @throws IOException Si le serveur ne peut pas être ouvert.
+     */
+    public InetSocketAddress bind(SocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Démarre le serveur dans un nouveau thread, qui gère les connexions et fait avancer
+     * la partie jusqu'à la fermeture du serveur.
+     *
+     * @throws IllegalStateException Si le serveur n'est pas ouvert, ou est déjà démarré.
+     */
+    public synchronized void start() {
+        if ((selector == null) || (thread != null)) {
+            throw new IllegalStateException("Server is not bound or already started!");
+        }
+        thread = new Thread(this::run, "flatcraft-server");
+        thread.start();
+    }
+
+    /**
+     * Gère les connexions et fait avancer la partie jusqu'à la fermeture du serveur.
+     * Entre deux pas de simulation, le thread attend que des clients aient des messages
+     * à lire ou à recevoir.
+     */
+    private void run() {
+        GameLoop loop = game.getGameLoop();
+        try {
+            while (!closed) {
+                long tick = loop.getTickCount();
+                double elapsed = loop.advance(System.nanoTime());
+                if (loop.getTickCount() != tick) {
+                    broadcast(loop.getTickCount());
+                }
+
+                long timeout = (long) Math.ceil((1 - elapsed) * 1000 / loop.getTickRate());
+                selector.select(Math.max(1, timeout));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+
+        } catch (IOException | ClosedSelectorException e) {
+            LOGGER.log(Level.SEVERE, "Server stopped unexpectedly", e);
+
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Traite un canal prêt à être utilisé.
+     *
+     * @param key La clé du canal.
+     *
+     * @throws IOException Si une nouvelle connexion ne peut pas être acceptée.
+     */
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+
+        ClientSession session = (ClientSession) key.attachment();
+        try {
+            if (key.isWritable()) {
+                session.flush();
+            }
+            if (key.isReadable()) {
+                receive(session);
+            }
+
+        } catch (IOException | IllegalArgumentException | BufferUnderflowException e) {
+            LOGGER.log(Level.INFO, "Client disconnected: {0}", e.getMessage());
+            disconnect(session);
+        }
+    }
+
+    /**
+     * Accepte une nouvelle connexion, et ajoute un joueur à la partie pour le client.
+     *
+     * @throws IOException Si la connexion ne peut pas être acceptée.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        ClientSession session = new ClientSession(channel, key, game.addPlayer(PLAYER_SPRITE));
+        key.attach(session);
+        sessions.add(session);
+        LOGGER.log(Level.INFO, "Client connected from {0}", channel.getRemoteAddress());
+
+        try {
+            writeWelcome(session);
+            session.send(writer.drain());
+
+        } catch (IOException e) {
+            disconnect(session);
+        }
+    }
+
+    /**
+     * Traite les messages complets reçus d'un client.
+     *
+     * @param session La session du client.
+     *
+     * @throws IOException Si le client a fermé la connexion.
+     * @throws IllegalArgumentException Si un message est incorrect.
+     */
+    private void receive(ClientSession session) throws IOException {
+        ByteBuffer input = session.read();
+        if (input == null) {
+            throw new IOException("Connection closed by client");
+        }
+
+        for (int length = Protocol.completeMessageLength(input); length > 0;
+                length = Protocol.completeMessageLength(input)) {
+            int end = input.position() + length;
+            input.position(input.position() + Protocol.HEADER_SIZE);
+            byte type = input.get();
+            if (type != Protocol.ACTION) {
+                throw new IllegalArgumentException("Unexpected message type " + type);
+            }
+
+            PlayerAction action = PlayerAction.fromCode(input.get());
+            if (session.getPlayer().getHealth() > 0) {
+                game.perform(session.getPlayer(), action);
+            }
+            input.position(end);
+        }
+        session.compact();
+    }
+
+    /**
+     * Ferme la connexion d'un client, et retire son joueur de la partie.
+     *
+     * @param session La session du client.
+     */
+    private void disconnect(ClientSession session) {
+        session.close();
+        if (sessions.remove(session) && movableIds.containsKey(session.getPlayer())) {
+            game.removePlayer(session.getPlayer());
+        }
+    }
+
+    /**
+     * Envoie à chaque client ce qui a changé autour de son joueur depuis le pas de
+     * simulation précédent.
+     *
+     * @param tick Le numéro du pas de simulation qui vient d'être réalisé.
+     */
+    private void broadcast(long tick) {
+        CellChangeBatch changes = blockChanges.flush();
+        for (ClientSession session : List.copyOf(sessions)) {
+            try {
+                synchronize(session, changes, tick);
+                if (!writer.isEmpty()) {
+                    session.send(writer.drain());
+                }
+
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, "Client disconnected: {0}", e.getMessage());
+                writer.drain();
+                disconnect(session);
+            }
+        }
+    }
+
+    /**
+     * Prépare les messages mettant à jour ce que connaît un client.
+     *
+     * @param session La session du client.
+     * @param changes Les cellules modifiées lors du dernier pas de simulation.
+     * @param tick Le numéro du dernier pas de simulation.
+     */
+    private void synchronize(ClientSession session, CellChangeBatch changes, long tick) {
+        Player player = session.getPlayer();
+        int center = Math.floorDiv(player.getColumn(), GameMap.CHUNK_SIZE);
+
+        // Les colonnes de chunks trop éloignées ne sont plus tenues à jour.
+        // Une colonne de marge évite de renvoyer une colonne lors d'allers-retours.
+        Iterator<Integer> synced = session.chunkColumns.iterator();
+        while (synced.hasNext()) {
+            int chunkColumn = synced.next();
+            if (Math.abs(chunkColumn - center) > (VIEW_DISTANCE + 1)) {
+                synced.remove();
+                writer.begin(Protocol.UNLOAD).writeSignedVarInt(chunkColumn).end();
+            }
+        }
+
+        // Les modifications sont envoyées avant les nouvelles colonnes, qui les incluent.
+        writeDelta(session, changes, tick);
+        for (int chunkColumn = center - VIEW_DISTANCE; chunkColumn <= center + VIEW_DISTANCE;
+                chunkColumn++) {
+            if (map.contains(0, chunkColumn * GameMap.CHUNK_SIZE)
+                    && session.chunkColumns.add(chunkColumn)) {
+                writeChunkColumn(chunkColumn);
+            }
+        }
+    }
+
+    /**
+     * Écrit le message décrivant la partie à un client qui vient de se connecter.
+     *
+     * @param session La session du client.
+     */
+    private void writeWelcome(ClientSession session) {
+        BlockRegistry registry = map.getRegistry();
+        writer.begin(Protocol.WELCOME)
+                .writeVarInt(movableIds.get(session.getPlayer()))
+                .writeVarInt(map.getHeight())
+                .writeSignedVarInt(map.isUnbounded() ? -1 : map.getWidth())
+                .writeVarInt(map.getSoilHeight())
+                .writeVarInt(game.getGameLoop().getTickRate())
+                .writeVarInt(registry.size());
+        for (short id = 0; id < registry.size(); id++) {
+            String name = registry.getName(id);
+            writer.writeString((name == null) ? "" : name);
+        }
+        writer.end();
+    }
+
+    /**
+     * Écrit le message contenant tous les blocs d'une colonne de chunks.
+     * Chaque colonne de cellules est parcourue de haut en bas, et les blocs identiques
+     * successifs sont regroupés : le ciel et les couches du sous-sol n'occupent ainsi
+     * que quelques octets.
+     *
+     * @param chunkColumn La colonne de chunks à écrire.
+     */
+    private void writeChunkColumn(int chunkColumn) {
+        writer.begin(Protocol.CHUNK).writeSignedVarInt(chunkColumn);
+        int first = chunkColumn * GameMap.CHUNK_SIZE;
+        for (int column = first; column < first + GameMap.CHUNK_SIZE; column++) {
+            int run = 0;
+            short current = BlockRegistry.EMPTY;
+            for (int row = 0; row < map.getHeight(); row++) {
+                short block = map.contains(row, column) ? map.getBlockAt(row, column)
+                        : BlockRegistry.EMPTY;
+                if ((run > 0) && (block != current)) {
+                    writer.writeVarInt(run).writeVarInt(current);
+                    run = 0;
+                }
+                current = block;
+                run++;
+            }
+            writer.writeVarInt(run).writeVarInt(current);
+        }
+        writer.end();
+    }
+
+    /**
+     * Écrit le message contenant les modifications survenues autour du joueur d'un
+     * client lors du dernier pas de simulation.
+     * Les positions sont écrites relativement à la précédente (pour les cellules) ou à
+     * celle connue du client (pour les objets mobiles), ce qui n'occupe le plus souvent
+     * qu'un octet.
+     * Aucun message n'est écrit si rien n'a changé.
+     *
+     * @param session La session du client.
+     * @param changes Les cellules modifiées lors du dernier pas de simulation.
+     * @param tick Le numéro du dernier pas de simulation.
+     */
+    private void writeDelta(ClientSession session, CellChangeBatch changes, long tick) {
+        writer.begin(Protocol.DELTA).writeVarLong(tick);
+        boolean empty = true;
+
+        // Les cellules modifiées dans les colonnes connues du client sont retenues en un
+        // seul parcours du lot, leur nombre devant précéder leur description.
+        int count = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            if (isSynchronized(session, changes.getColumn(i))) {
+                if (count == selectedChanges.length) {
+                    selectedChanges = Arrays.copyOf(selectedChanges, 2 * count);
+                }
+                selectedChanges[count++] = i;
+            }
+        }
+        writer.writeVarInt(count);
+        int previousRow = 0;
+        int previousColumn = 0;
+        for (int i = 0; i < count; i++) {
+            int row = changes.getRow(selectedChanges[i]);
+            int column = changes.getColumn(selectedChanges[i]);
+            writer.writeSignedVarInt(row - previousRow)
+                    .writeSignedVarInt(column - previousColumn)
+                    .writeVarInt(map.getBlockAt(row, column));
+            previousRow = row;
+            previousColumn = column;
+        }
+        empty &= (count == 0);
+
+        // Les objets mobiles qui ont disparu ou se sont éloignés.
+        List<Integer> despawned = new ArrayList<>();
+        for (Iterator<Integer> it = session.knownMovables.keySet().iterator(); it.hasNext();) {
+            int id = it.next();
+            AbstractMovable movable = movables.get(id);
+            if ((movable == null) || !isSynchronized(session, movable.getColumn())) {
+                it.remove();
+                despawned.add(id);
+            }
+        }
+        writer.writeVarInt(despawned.size());
+        for (int id : despawned) {
+            writer.writeVarInt(id);
+        }
+        empty &= despawned.isEmpty();
+
+        // Les objets mobiles qui sont apparus ou se sont déplacés.
+        // Seules les colonnes de chunks tenues à jour chez le client (qui sont à au plus
+        // une colonne de plus que la distance de vue) sont parcourues.
+        List<AbstractMovable> spawned = new ArrayList<>();
+        List<AbstractMovable> moved = new ArrayList<>();
+        int center = Math.floorDiv(session.getPlayer().getColumn(), GameMap.CHUNK_SIZE);
+        int fromColumn = (center - VIEW_DISTANCE - 1) * GameMap.CHUNK_SIZE;
+        int toColumn = ((center + VIEW_DISTANCE + 2) * GameMap.CHUNK_SIZE) - 1;
+        game.getMovableIndex().forEachInRange(0, fromColumn, map.getHeight(), toColumn, movable -> {
+            Integer id = movableIds.get(movable);
+            if ((id == null) || !isNear(session, movable.getColumn())) {
+                return;
+            }
+
+            Long known = session.knownMovables.get(id);
+            if (known == null) {
+                spawned.add(movable);
+
+            } else if (known != pack(movable.getRow(), movable.getColumn())) {
+                moved.add(movable);
+            }
+        });
+
+        writer.writeVarInt(spawned.size());
+        for (AbstractMovable movable : spawned) {
+            int id = movableIds.get(movable);
+            writer.writeVarInt(id)
+                    .writeString(movable.getSpriteName())
+                    .writeSignedVarInt(movable.getRow())
+                    .writeSignedVarInt(movable.getColumn());
+            session.knownMovables.put(id, pack(movable.getRow(), movable.getColumn()));
+        }
+        writer.writeVarInt(moved.size());
+        for (AbstractMovable movable : moved) {
+            int id = movableIds.get(movable);
+            long known = session.knownMovables.get(id);
+            writer.writeVarInt(id)
+                    .writeSignedVarInt(movable.getRow() - (int) (known >> 32))
+                    .writeSignedVarInt(movable.getColumn() - (int) known);
+            session.knownMovables.put(id, pack(movable.getRow(), movable.getColumn()));
+        }
+        empty &= spawned.isEmpty() && moved.isEmpty();
+
+        if (empty) {
+            writer.cancel();
+
+        } else {
+            writer.end();
+        }
+    }
+
+    /**
+     * Vérifie si une colonne de la carte est tenue à jour chez un client.
+     *
+     * @param session La session du client.
+     * @param column La colonne de la carte.
+     *
+     * @return Si la colonne est connue du client.
+     */
+    private static boolean isSynchronized(ClientSession session, int column) {
+        return session.chunkColumns.contains(Math.floorDiv(column, GameMap.CHUNK_SIZE));
+    }
+
+    /**
+     * Vérifie si une colonne de la carte est proche du joueur d'un client, et donc sera
+     * tenue à jour chez ce client à l'issue du pas de simulation en cours.
+     *
+     * @param session La session du client.
+     * @param column La colonne de la carte.
+     *
+     * @return Si la colonne est proche du joueur du client.
+     */
+    private static boolean isNear(ClientSession session, int column) {
+        int center = Math.floorDiv(session.getPlayer().getColumn(), GameMap.CHUNK_SIZE);
+        int chunkColumn = Math.floorDiv(column, GameMap.CHUNK_SIZE);
+        return isSynchronized(session, column)
+                || (Math.abs(chunkColumn - center) <= VIEW_DISTANCE);
+    }
+
+    /**
+     * Représente une position sous la forme d'un entier long.
+     *
+     * @param row La ligne de la position.
+     * @param column La colonne de la position.
+     *
+     * @return L'entier long représentant la position.
+     */
+    private static long pack(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#setGame(fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame)
+     */
+    @Override
+    public void setGame(FlatcraftGame game) {
+        // La partie est donnée à la création du serveur.
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#initializeView(fr.univartois.butinfo.ihm.flatcraft.model.GameMap)
+     */
+    @Override
+    public void initializeView(GameMap gameMap) {
+        this.map = gameMap;
+        gameMap.addCellListener(blockChanges);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#addMovableObject(fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable)
+     */
+    @Override
+    public void addMovableObject(AbstractMovable movableObject) {
+        int id = nextId++;
+        movableIds.put(movableObject, id);
+        movables.put(id, movableObject);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#removeMovableObject(fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable)
+     */
+    @Override
+    public void removeMovableObject(AbstractMovable movableObject) {
+        Integer id = movableIds.remove(movableObject);
+        if (id != null) {
+            movables.remove(id);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.controller.TerrariaInterface#cellsChanged(fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch)
+     */
+    @Override
+    public void cellsChanged(CellChangeBatch changes) {
+        // Les clients reçoivent les modifications des blocs une fois par pas de
+        // simulation, sans celles de l'éclairage.
+    }
+
+    /**
+     * Arrête le serveur, et ferme les connexions de tous les clients.
+     * Cette méthode attend la fin du thread du serveur, s'il a été démarré.
+     *
+     * @throws IOException Si le thread du serveur est interrompu.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Thread running;
+        synchronized (this) {
+            running = thread;
+        }
+
+        if (running == null) {
+            shutdown();
+            return;
+        }
+
+        selector.wakeup();
+        try {
+            running.join();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the server", e);
+        }
+    }
+
+    /**
+     * Ferme toutes les connexions, ainsi que le sélecteur.
+     */
+    private void shutdown() {
+        for (ClientSession session : sessions) {
+            session.close();
+        }
+        sessions.clear();
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+            if (selector != null) {
+                selector.close();
+            }
+
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not close the server", e);
+        }
+    }
+
+    /**
+     * Démarre un serveur hébergeant une nouvelle partie sur une carte infinie.
+     *
+     * @param args Le port sur lequel attendre les connexions (facultatif).
+     *
+     * @throws IOException Si le serveur ne peut pas être ouvert.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        FlatcraftGame game = new FlatcraftGame(640, 480);
+        game.setUnbounded(true);
+        GameServer server = new GameServer(game);
+        LOGGER.log(Level.INFO, "Listening on {0}", server.bind(new InetSocketAddress(port)));
+        server.start();
+    }
+
+}
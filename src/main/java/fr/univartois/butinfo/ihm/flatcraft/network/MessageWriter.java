@@ -0,0 +1,207 @@
+package fr.univartois.butinfo.ihm.flatcraft.network; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * La classe {@link MessageWriter} permet d'écrire des messages au format décrit par
+ * {@link Protocol}, dans un tableau d'octets qui grandit au besoin.
+ * Un même écrivain peut être réutilisé pour tous les messages d'un pas de simulation,
+ * afin de ne pas allouer de tableau pour chacun d'eux.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class MessageWriter {
+
+    /**
+     * Les octets déjà écrits.
+     */
+    private byte[] bytes = new byte[256];
+
+    /**
+     * Le nombre d'octets déjà écrits.
+     */
+    private int size;
+
+    /**
+     * La position de l'en-tête du message en cours d'écriture, ou {@code -1} si aucun
+     * message n'est en cours d'écriture.
+     */
+    private int messageStart = -1;
+
+    /**
+     * Commence l'écriture d'un nouveau message.
+     *
+     * @param type Le type du message.
+     *
+     * @return Cet écrivain.
+     *
+     * @throws IllegalStateException Si un message est déjà en cours d'écriture.
+     */
+    MessageWriter begin(byte type) {
+        if (messageStart >= 0) {
+            throw new IllegalStateException("A message is already being written!");
+        }
+        messageStart = size;
+        ensureCapacity(Protocol.HEADER_SIZE);
+        size += Protocol.HEADER_SIZE;
+        return writeByte(type);
+    }
+
+    /**
+     * Termine l'écriture du message en cours, en écrivant sa longueur dans son en-tête.
+     *
+     * @throws IllegalStateException Si aucun message n'est en cours d'écriture.
+     */
+    void end() {
+        if (messageStart < 0) {
+            throw new IllegalStateException("No message is being written!");
+        }
+        int length = size - messageStart - Protocol.HEADER_SIZE;
+        bytes[messageStart] = (byte) (length >>> 24);
+        bytes[messageStart + 1] = (byte) (length >>> 16);
+        bytes[messageStart + 2] = (byte) (length >>> 8);
+        bytes[messageStart + 3] = (byte) length;
+        messageStart = -1;
+    }
+
+    /**
+     * Annule l'écriture du message en cours, par exemple parce qu'il s'avère vide.
+     */
+    void cancel() {
+        if (messageStart >= 0) {
+            size = messageStart;
+            messageStart = -1;
+        }
+    }
+
+    /**
+     * Écrit un octet.
+     *
+     * @param value L'octet à écrire.
+     *
+     * @return Cet écrivain.
+     */
+    MessageWriter writeByte(int value) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Écrit un entier positif sur un nombre variable d'octets.
+     *
+     * @param value L'entier à écrire.
+     *
+     * @return Cet écrivain.
+     */
+    MessageWriter writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7f) != 0) {
+            bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Écrit un entier long positif sur un nombre variable d'octets.
+     *
+     * @param value L'entier à écrire.
+     *
+     * @return Cet écrivain.
+     */
+    MessageWriter writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7fL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    /**
+     * Écrit un entier signé sur un nombre variable d'octets.
+     *
+     * @param value L'entier à écrire.
+     *
+     * @return Cet écrivain.
+     */
+    MessageWriter writeSignedVarInt(int value) {
+        return writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Écrit une chaîne de caractères en UTF-8, précédée de sa longueur.
+     *
+     * @param value La chaîne à écrire.
+     *
+     * @return Cet écrivain.
+     */
+    MessageWriter writeString(String value) {
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(encoded.length);
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    /**
+     * Vérifie si aucun octet n'a été écrit depuis le dernier appel à {@link #drain()}.
+     *
+     * @return Si cet écrivain est vide.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Donne une copie des messages écrits, et vide cet écrivain.
+     *
+     * @return Un tampon contenant les messages écrits, prêt à être envoyé.
+     *
+     * @throws IllegalStateException Si un message est encore en cours d'écriture.
+     */
+    ByteBuffer drain() {
+        if (messageStart >= 0) {
+            throw new IllegalStateException("A message is still being written!");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, size));
+        size = 0;
+        return buffer;
+    }
+
+    /**
+     * S'assure que des octets peuvent encore être écrits sans dépasser la taille du
+     * tableau.
+     *
+     * @param needed Le nombre d'octets à écrire.
+     */
+    private void ensureCapacity(int needed) {
+        if ((size + needed) > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + needed));
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package fr.univartois.butinfo.ihm.flatcraft.network; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * La classe {@link Protocol} décrit le format binaire des messages échangés entre un
+ * {@link GameServer} et ses {@link GameClient}.
+ *
+ * Chaque message est précédé de sa longueur (sur 4 octets), puis de son type (sur un
+ * octet).
+ * Les entiers sont ensuite écrits sur un nombre variable d'octets (7 bits par octet),
+ * les entiers signés étant d'abord « zigzagués » : les petites valeurs, comme les
+ * déplacements d'une cellule, n'occupent ainsi qu'un seul octet.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class Protocol {
+
+    /**
+     * La taille (en octets) de l'en-tête d'un message, qui donne sa longueur.
+     */
+    static final int HEADER_SIZE = 4;
+
+    /**
+     * La longueur maximale (en octets) d'un message.
+     * Un message plus long est considéré comme corrompu.
+     */
+    static final int MAX_MESSAGE_SIZE = 1 << 20;
+
+    /**
+     * Le type du message envoyé par un client pour faire réaliser une action à son
+     * joueur.
+     */
+    static final byte ACTION = 1;
+
+    /**
+     * Le type du message envoyé par le serveur à un client qui vient de se connecter,
+     * décrivant la carte et le joueur qui lui est attribué.
+     */
+    static final byte WELCOME = 2;
+
+    /**
+     * Le type du message contenant tous les blocs d'une colonne de chunks.
+     */
+    static final byte CHUNK = 3;
+
+    /**
+     * Le type du message indiquant qu'une colonne de chunks n'est plus synchronisée.
+     */
+    static final byte UNLOAD = 4;
+
+    /**
+     * Le type du message contenant les modifications (cellules et objets mobiles)
+     * survenues lors d'un pas de simulation.
+     */
+    static final byte DELTA = 5;
+
+    /**
+     * Désactive l'instanciation en dehors de la classe.
+     */
+    private Protocol() {
+        throw new AssertionError("No Protocol instances for you!");
+    }
+
+    /**
+     * Lit un entier positif écrit sur un nombre variable d'octets.
+     *
+     * @param buffer Le tampon dans lequel lire l'entier.
+     *
+     * @return L'entier lu.
+     *
+     * @throws IllegalArgumentException Si l'entier est mal formé.
+     */
+    static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer!");
+    }
+
+    /**
+     * Lit un entier long positif écrit sur un nombre variable d'octets.
+     *
+     * @param buffer Le tampon dans lequel lire l'entier.
+     *
+     * @return L'entier lu.
+     *
+     * @throws IllegalArgumentException Si l'entier est mal formé.
+     */
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer!");
+    }
+
+    /**
+     * Lit un entier signé écrit sur un nombre variable d'octets.
+     *
+     * @param buffer Le tampon dans lequel lire l'entier.
+     *
+     * @return L'entier lu.
+     *
+     * @throws IllegalArgumentException Si l'entier est mal formé.
+     */
+    static int readSignedVarInt(ByteBuffer buffer) {
+        int zigzag = readVarInt(buffer);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * Lit une chaîne de caractères, écrite en UTF-8 après sa longueur.
+     *
+     * @param buffer Le tampon dans lequel lire la chaîne.
+     *
+     * @return La chaîne lue.
+     *
+     * @throws IllegalArgumentException Si la chaîne est mal formée.
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed string!");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Donne la longueur du premier message complet d'un tampon, en-tête compris.
+     *
+     * @param buffer Le tampon contenant les octets reçus, prêt à être lu.
+     *
+     * @return La longueur du premier message, ou {@code -1} s'il n'a pas encore été
+     *         entièrement reçu.
+     *
+     * @throws IllegalArgumentException Si la longueur annoncée est incorrecte.
+     */
+    static int completeMessageLength(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+
+        int length = buffer.getInt(buffer.position());
+        if ((length <= 0) || (length > MAX_MESSAGE_SIZE)) {
+            throw new IllegalArgumentException("Incorrect message length " + length);
+        }
+
+        if (buffer.remaining() < (HEADER_SIZE + length)) {
+            return -1;
+        }
+        return HEADER_SIZE + length;
+    }
+
+}
@@ -0,0 +1,217 @@
+package fr.univartois.butinfo.ihm.flatcraft.view; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+
+/**
+ * La classe {@link Camera} représente la partie de la carte du jeu visible à l'écran.
+ * La caméra suit un objet mobile (en général le joueur), en se déplaçant de manière
+ * continue vers lui plutôt que cellule par cellule.
+ *
+ * La position de la caméra est celle du coin supérieur gauche de la partie visible,
+ * exprimée en pixels depuis le coin supérieur gauche de la carte.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class Camera {
+
+    /**
+     * La vitesse à laquelle la caméra rejoint sa cible.
+     * Après {@code 1 / FOLLOW_SPEED} secondes, la caméra a parcouru environ les deux tiers
+     * de la distance qui la séparait de sa cible.
+     */
+    private static final double FOLLOW_SPEED = 8;
+
+    /**
+     * La taille (en pixels) du côté d'une cellule à l'écran.
+     */
+    private final int tileSize;
+
+    /**
+     * L'objet mobile suivi par cette caméra.
+     */
+    private AbstractMovable target;
+
+    /**
+     * La largeur (en pixels) de la partie visible de la carte.
+     */
+    private double viewportWidth;
+
+    /**
+     * La hauteur (en pixels) de la partie visible de la carte.
+     */
+    private double viewportHeight;
+
+    /**
+     * L'abscisse (en pixels) du coin supérieur gauche de la partie visible.
+     */
+    private double x;
+
+    /**
+     * L'ordonnée (en pixels) du coin supérieur gauche de la partie visible.
+     */
+    private double y;
+
+    /**
+     * Si la caméra doit se placer directement sur sa cible lors de sa prochaine mise à
+     * jour.
+     */
+    private boolean snap = true;
+
+    /**
+     * Crée une nouvelle instance de Camera.
+     *
+     * @param tileSize La taille (en pixels) du côté d'une cellule à l'écran.
+     */
+    public Camera(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Donne la taille (en pixels) du côté d'une cellule à l'écran.
+     *
+     * @return La taille d'une cellule.
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Choisit l'objet mobile suivi par cette caméra.
+     * La caméra se place directement sur lui lors de sa prochaine mise à jour.
+     *
+     * @param target L'objet mobile à suivre.
+     */
+    public void follow(AbstractMovable target) {
+        this.target = target;
+        this.snap = true;
+    }
+
+    /**
+     * Modifie la taille de la partie visible de la carte.
+     *
+     * @param width La largeur (en pixels) de la partie visible.
+     * @param height La hauteur (en pixels) de la partie visible.
+     */
+    public void setViewportSize(double width, double height) {
+        this.viewportWidth = width;
+        this.viewportHeight = height;
+    }
+
+    /**
+     * Donne la largeur (en pixels) de la partie visible de la carte.
+     *
+     * @return La largeur de la partie visible.
+     */
+    public double getViewportWidth() {
+        return viewportWidth;
+    }
+
+    /**
+     * Donne la hauteur (en pixels) de la partie visible de la carte.
+     *
+     * @return La hauteur de la partie visible.
+     */
+    public double getViewportHeight() {
+        return viewportHeight;
+    }
+
+    /**
+     * Donne l'abscisse (en pixels) du coin supérieur gauche de la partie visible.
+     *
+     * @return L'abscisse de la caméra.
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * Donne l'ordonnée (en pixels) du coin supérieur gauche de la partie visible.
+     *
+     * @return L'ordonnée de la caméra.
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * Vérifie si une cellule de la carte est visible, à une marge près.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param margin La marge (en nombre de cellules) autour de la partie visible.
+     *
+     * @return Si la cellule est visible.
+     */
+    public boolean isVisible(int row, int column, int margin) {
+        double left = (column + margin + 1.0) * tileSize;
+        double top = (row + margin + 1.0) * tileSize;
+        double right = (column - margin) * (double) tileSize;
+        double bottom = (row - margin) * (double) tileSize;
+        return (x < left) && (right < (x + viewportWidth))
+                && (y < top) && (bottom < (y + viewportHeight));
+    }
+
+    /**
+     * Rapproche cette caméra de sa cible, sans sortir de la carte.
+     *
+     * @param map La carte sur laquelle la caméra se déplace.
+     * @param elapsed Le temps écoulé (en secondes) depuis la mise à jour précédente.
+     */
+    public void update(GameMap map, double elapsed) {
+        if (target != null) {
+            double targetX = ((target.getColumn() + 0.5) * tileSize) - (viewportWidth / 2);
+            double targetY = ((target.getRow() + 0.5) * tileSize) - (viewportHeight / 2);
+            boolean far = (Math.abs(targetX - x) > (2 * viewportWidth))
+                    || (Math.abs(targetY - y) > (2 * viewportHeight));
+
+            if (snap || far) {
+                // La cible vient d'apparaître ou de se téléporter : inutile de la rejoindre.
+                x = targetX;
+                y = targetY;
+                snap = false;
+
+            } else {
+                double progress = 1 - Math.exp(-FOLLOW_SPEED * elapsed);
+                x += (targetX - x) * progress;
+                y += (targetY - y) * progress;
+            }
+        }
+
+        if (!map.isUnbounded()) {
+            x = clamp(x, (double) map.getWidth() * tileSize - viewportWidth);
+        }
+        y = clamp(y, (double) map.getHeight() * tileSize - viewportHeight);
+    }
+
+    /**
+     * Restreint une coordonnée de la caméra à la carte.
+     *
+     * @param value La coordonnée à restreindre.
+     * @param max La valeur maximale de la coordonnée.
+     *
+     * @return La coordonnée, comprise entre {@code 0} et {@code max} (ou {@code 0} si
+     *         la carte est plus petite que la partie visible).
+     */
+    private static double clamp(double value, double max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+}
@@ -0,0 +1,134 @@
+package fr.univartois.butinfo.ihm.flatcraft.view; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * La classe {@link DirtyCellSet} mémorise les cellules d'une grille qui doivent être
+ * redessinées.
+ * Chaque cellule n'y est mémorisée qu'une seule fois, et les cellules mémorisées peuvent
+ * être parcourues en un temps proportionnel à leur nombre, quelle que soit la taille de
+ * la grille.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+final class DirtyCellSet {
+
+    /**
+     * Le nombre de lignes de la grille.
+     */
+    private final int rows;
+
+    /**
+     * Le nombre de colonnes de la grille.
+     */
+    private final int columns;
+
+    /**
+     * Les positions (ligne par ligne) des cellules mémorisées.
+     */
+    private final BitSet marked;
+
+    /**
+     * Les positions des cellules mémorisées, dans l'ordre où elles l'ont été.
+     */
+    private int[] positions = new int[64];
+
+    /**
+     * Le nombre de cellules mémorisées.
+     */
+    private int size;
+
+    /**
+     * Crée une nouvelle instance de DirtyCellSet.
+     *
+     * @param rows Le nombre de lignes de la grille.
+     * @param columns Le nombre de colonnes de la grille.
+     */
+    DirtyCellSet(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.marked = new BitSet(rows * columns);
+    }
+
+    /**
+     * Mémorise une cellule de la grille.
+     * Les cellules en dehors de la grille sont ignorées.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    void add(int row, int column) {
+        if ((row < 0) || (rows <= row) || (column < 0) || (columns <= column)) {
+            return;
+        }
+
+        int position = (row * columns) + column;
+        if (!marked.get(position)) {
+            marked.set(position);
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, 2 * size);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    /**
+     * Donne le nombre de cellules mémorisées.
+     *
+     * @return Le nombre de cellules mémorisées.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Donne la ligne de l'une des cellules mémorisées.
+     *
+     * @param index L'indice de la cellule, entre {@code 0} et {@link #size()}.
+     *
+     * @return La ligne de la cellule.
+     */
+    int rowAt(int index) {
+        return positions[index] / columns;
+    }
+
+    /**
+     * Donne la colonne de l'une des cellules mémorisées.
+     *
+     * @param index L'indice de la cellule, entre {@code 0} et {@link #size()}.
+     *
+     * @return La colonne de la cellule.
+     */
+    int columnAt(int index) {
+        return positions[index] % columns;
+    }
+
+    /**
+     * Oublie toutes les cellules mémorisées.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            marked.clear(positions[i]);
+        }
+        size = 0;
+    }
+
+}
@@ -0,0 +1,662 @@
+package fr.univartois.butinfo.ihm.flatcraft.view; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.BlockRegistry;
+import fr.univartois.butinfo.ihm.flatcraft.model.CellChangeBatch;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameLoop;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.LatencyHistogram;
+import fr.univartois.butinfo.ihm.flatcraft.model.LightEngine;
+import fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetrics;
+import fr.univartois.butinfo.ihm.flatcraft.model.SpatialIndex;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * La classe {@link MapRenderer} dessine la carte du jeu et les objets mobiles qui s'y
+ * déplacent sur deux {@link Canvas} superposés.
+ *
+ * Seule la partie de la carte visible par la {@link Camera}, augmentée d'une marge, est
+ * dessinée sur les canvas : leur taille dépend de celle de l'écran, et non de celle de
+ * la carte.
+ * Le défilement se fait en décalant les canvas, et la partie dessinée n'est déplacée
+ * que lorsque la caméra atteint la marge.
+ * Entre deux déplacements, le renderer reçoit les lots de cellules modifiées (voir
+ * {@link CellChangeBatch}), et ne redessine que celles-ci lors de l'image suivante.
+ * Les cellules sont dessinées à partir d'un {@link SpriteAtlas} créé en arrière-plan
+ * lorsque la carte est choisie, afin qu'aucun sprite ne soit chargé pendant le dessin :
+ * en attendant, les cellules sont dessinées avec l'image provisoire du
+ * {@link SpriteStore}, et sont redessinées dès que l'atlas est prêt.
+ * Le modèle ne désignant les blocs et les objets mobiles que par le nom de leur sprite,
+ * c'est le renderer qui retrouve les images correspondantes grâce à un
+ * {@link SpriteStore}.
+ *
+ * Si un {@link LightEngine} est donné, chaque cellule est assombrie selon son niveau de
+ * lumière, et redessinée lorsque celui-ci change.
+ *
+ * Le timer du renderer fait aussi avancer la {@link GameLoop} du jeu, puis dessine les
+ * objets mobiles entre leurs positions avant et après le dernier pas de simulation.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class MapRenderer {
+
+    /**
+     * La marge (en nombre de cellules) dessinée autour de la partie visible de la carte.
+     */
+    private static final int MARGIN = 2;
+
+    /**
+     * L'opacité de l'ombre recouvrant une cellule totalement obscure.
+     */
+    private static final double MAX_DARKNESS = 0.85;
+
+    /**
+     * Les ombres recouvrant les cellules, indexées par leur niveau de lumière.
+     */
+    private static final Color[] SHADES = new Color[LightEngine.MAX_LIGHT + 1];
+
+    /**
+     * La mesure du temps passé à dessiner une image.
+     */
+    private static final LatencyHistogram RENDER_TIME = PerformanceMetrics.getDefault()
+            .histogram("view.render");
+
+    /**
+     * La mesure du temps passé à prendre en compte un lot de cellules modifiées.
+     */
+    private static final LatencyHistogram CHANGES_TIME = PerformanceMetrics.getDefault()
+            .histogram("view.cellsChanged");
+
+    static {
+        for (int i = 0; i < SHADES.length; i++) {
+            double darkness = MAX_DARKNESS * (LightEngine.MAX_LIGHT - i) / LightEngine.MAX_LIGHT;
+            SHADES[i] = Color.color(0, 0, 0, darkness);
+        }
+    }
+
+    /**
+     * Le canvas sur lequel les cellules de la carte sont dessinées.
+     */
+    private final Canvas background;
+
+    /**
+     * Le canvas sur lequel les objets mobiles sont dessinés, au-dessus de la carte.
+     */
+    private final Canvas foreground;
+
+    /**
+     * La caméra donnant la partie visible de la carte.
+     */
+    private final Camera camera;
+
+    /**
+     * Le {@link SpriteStore} utilisé pour charger les sprites des blocs et des objets
+     * mobiles.
+     */
+    private final SpriteStore spriteStore;
+
+    /**
+     * La taille (en pixels) du côté d'une cellule à l'écran.
+     */
+    private final int tileSize;
+
+    /**
+     * Le timer permettant de dessiner une nouvelle image à chaque pulsation de JavaFX.
+     */
+    private final AnimationTimer timer = new AnimationTimer() {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see javafx.animation.AnimationTimer#handle(long)
+         */
+        @Override
+        public void handle(long now) {
+            double alpha = (gameLoop == null) ? 1 : gameLoop.advance(now);
+            render(now, alpha);
+        }
+
+    };
+
+    /**
+     * Les objets mobiles proches de la partie dessinée de la carte, retrouvés à chaque
+     * image (cette liste est réutilisée d'une image à l'autre).
+     */
+    private final List<AbstractMovable> nearbyMovables = new ArrayList<>();
+
+    /**
+     * L'action ajoutant un objet mobile à {@link #nearbyMovables}.
+     */
+    private final Consumer<AbstractMovable> addNearby = nearbyMovables::add;
+
+    /**
+     * Les objets mobiles dessinés lors de la dernière image.
+     */
+    private AbstractMovable[] drawnMovables = new AbstractMovable[16];
+
+    /**
+     * Les abscisses (en pixels, relativement à l'origine des canvas) où les objets
+     * mobiles ont été dessinés lors de la dernière image.
+     */
+    private double[] drawnX = new double[16];
+
+    /**
+     * Les ordonnées (en pixels, relativement à l'origine des canvas) où les objets
+     * mobiles ont été dessinés lors de la dernière image.
+     */
+    private double[] drawnY = new double[16];
+
+    /**
+     * Le nombre d'objets mobiles dessinés lors de la dernière image.
+     */
+    private int drawnCount;
+
+    /**
+     * L'index permettant de retrouver les objets mobiles proches de la partie dessinée,
+     * ou {@code null} si aucun objet mobile n'est dessiné.
+     */
+    private SpatialIndex movableIndex;
+
+    /**
+     * La boucle de simulation à faire avancer à chaque image, ou {@code null} si le
+     * renderer ne fait que dessiner.
+     */
+    private GameLoop gameLoop;
+
+    /**
+     * Si des objets mobiles ont été ajoutés ou retirés depuis la dernière image.
+     */
+    private boolean movablesChanged;
+
+    /**
+     * La carte à dessiner.
+     */
+    private GameMap map;
+
+    /**
+     * L'atlas contenant les sprites des blocs de la carte, ou {@code null} si aucune carte
+     * n'a encore été choisie ou si l'atlas est encore en cours de création.
+     */
+    private SpriteAtlas atlas;
+
+    /**
+     * Le moteur donnant l'éclairage des cellules, ou {@code null} si les cellules ne
+     * sont pas assombries.
+     */
+    private LightEngine lightEngine;
+
+    /**
+     * Les positions dans l'atlas des sprites des blocs, indexées par l'identifiant des
+     * blocs ({@code -1} pour les blocs absents de l'atlas).
+     */
+    private int[] atlasIndices = new int[0];
+
+    /**
+     * La ligne de la carte dessinée en haut des canvas.
+     */
+    private int originRow;
+
+    /**
+     * La colonne de la carte dessinée à gauche des canvas.
+     */
+    private int originColumn;
+
+    /**
+     * Le nombre de lignes de la carte dessinées sur les canvas.
+     */
+    private int rows;
+
+    /**
+     * Le nombre de colonnes de la carte dessinées sur les canvas.
+     */
+    private int columns;
+
+    /**
+     * Les cellules (relativement à l'origine des canvas) à redessiner lors de la
+     * prochaine image.
+     */
+    private DirtyCellSet dirtyCells = new DirtyCellSet(0, 0);
+
+    /**
+     * Si toutes les cellules dessinées doivent être redessinées lors de la prochaine
+     * image.
+     */
+    private boolean fullRedraw;
+
+    /**
+     * Si des cellules ont été dessinées avec l'image provisoire depuis la dernière fois
+     * que toutes les cellules ont été redessinées.
+     */
+    private boolean placeholdersDrawn;
+
+    /**
+     * L'instant (en nanosecondes) de la dernière image dessinée, ou {@code 0} si aucune
+     * image n'a encore été dessinée.
+     */
+    private long lastFrame;
+
+    /**
+     * Crée une nouvelle instance de MapRenderer.
+     *
+     * @param background Le canvas sur lequel les cellules de la carte sont dessinées.
+     * @param foreground Le canvas sur lequel les objets mobiles sont dessinés.
+     * @param camera La caméra donnant la partie visible de la carte.
+     * @param spriteStore Le {@link SpriteStore} utilisé pour charger les sprites.
+     */
+    public MapRenderer(Canvas background, Canvas foreground, Camera camera, SpriteStore spriteStore) {
+        this.background = background;
+        this.foreground = foreground;
+        this.camera = camera;
+        this.spriteStore = spriteStore;
+        this.tileSize = camera.getTileSize();
+        spriteStore.setOnSpriteLoaded(() -> Platform.runLater(this::spriteLoaded));
+    }
+
+    /**
+     * Modifie la carte à dessiner.
+     * Les sprites de ses blocs sont regroupés en arrière-plan dans un atlas, et toutes
+     * les cellules visibles de la carte sont dessinées lors de la prochaine image (avec
+     * l'image provisoire tant que l'atlas n'est pas prêt).
+     *
+     * @param map La carte à dessiner.
+     */
+    public void setMap(GameMap map) {
+        BlockRegistry registry = map.getRegistry();
+        List<String> names = new ArrayList<>(registry.size());
+        for (short id = 1; id < registry.size(); id++) {
+            names.add(registry.getName(id));
+        }
+
+        this.atlas = null;
+        this.atlasIndices = new int[0];
+        this.map = map;
+        this.fullRedraw = true;
+        spriteStore.createAtlasAsync(names)
+                .thenAcceptAsync(created -> setAtlas(map, created), Platform::runLater);
+    }
+
+    /**
+     * Installe l'atlas créé pour une carte, si celle-ci est toujours celle à dessiner.
+     * Toutes les cellules visibles de la carte sont alors redessinées lors de la
+     * prochaine image.
+     *
+     * @param forMap La carte pour laquelle l'atlas a été créé.
+     * @param created L'atlas créé.
+     */
+    private void setAtlas(GameMap forMap, SpriteAtlas created) {
+        if (forMap != map) {
+            // Une autre carte a été choisie pendant la création de l'atlas.
+            return;
+        }
+
+        BlockRegistry registry = map.getRegistry();
+        int[] indices = new int[registry.size()];
+        indices[BlockRegistry.EMPTY] = -1;
+        for (short id = 1; id < indices.length; id++) {
+            indices[id] = created.indexOf(registry.getName(id));
+        }
+
+        this.atlas = created;
+        this.atlasIndices = indices;
+        this.fullRedraw = true;
+    }
+
+    /**
+     * Indique qu'un sprite a fini d'être chargé en arrière-plan, de sorte que ce qui a
+     * été dessiné avec l'image provisoire doit être redessiné.
+     */
+    private void spriteLoaded() {
+        movablesChanged = true;
+        fullRedraw |= placeholdersDrawn;
+    }
+
+    /**
+     * Choisit le moteur donnant l'éclairage des cellules de la carte.
+     * Toutes les cellules visibles de la carte sont redessinées lors de la prochaine
+     * image.
+     *
+     * @param lightEngine Le moteur d'éclairage, ou {@code null} pour ne pas assombrir les
+     *        cellules.
+     */
+    public void setLightEngine(LightEngine lightEngine) {
+        this.lightEngine = lightEngine;
+        this.fullRedraw = true;
+    }
+
+    /**
+     * Choisit la boucle de simulation à faire avancer à chaque image.
+     *
+     * @param gameLoop La boucle de simulation du jeu.
+     */
+    public void setGameLoop(GameLoop gameLoop) {
+        this.gameLoop = gameLoop;
+    }
+
+    /**
+     * Choisit l'index donnant les objets mobiles à dessiner.
+     * Seuls les objets de cet index proches de la partie visible de la carte sont
+     * parcourus à chaque image.
+     *
+     * @param movableIndex L'index des objets mobiles du jeu.
+     */
+    public void setMovableIndex(SpatialIndex movableIndex) {
+        this.movableIndex = movableIndex;
+        this.movablesChanged = true;
+    }
+
+    /**
+     * Indique qu'un objet mobile a été ajouté à l'index des objets à dessiner.
+     * Son sprite est chargé dès maintenant, avant qu'il soit dessiné.
+     *
+     * @param movable L'objet mobile à dessiner.
+     */
+    public void addMovable(AbstractMovable movable) {
+        movablesChanged = true;
+
+        // Le sprite de l'objet est chargé dès maintenant, avant qu'il soit dessiné.
+        String name = movable.getSpriteName();
+        if (name != null) {
+            spriteStore.loadSprite(name, tileSize);
+        }
+    }
+
+    /**
+     * Indique qu'un objet mobile a été retiré de l'index des objets à dessiner.
+     *
+     * @param movable L'objet mobile à ne plus dessiner.
+     */
+    public void removeMovable(AbstractMovable movable) {
+        movablesChanged = true;
+    }
+
+    /**
+     * Démarre le dessin d'une nouvelle image à chaque pulsation de JavaFX.
+     */
+    public void start() {
+        lastFrame = 0;
+        if (gameLoop != null) {
+            gameLoop.reset();
+        }
+        timer.start();
+    }
+
+    /**
+     * Arrête le dessin des images.
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Indique les cellules de la carte à redessiner lors de la prochaine image, parce que
+     * leur bloc ou leur éclairage a changé.
+     *
+     * @param changes Le lot des cellules modifiées.
+     */
+    public void cellsChanged(CellChangeBatch changes) {
+        long start = System.nanoTime();
+        for (int i = 0; i < changes.size(); i++) {
+            dirtyCells.add(changes.getRow(i) - originRow, changes.getColumn(i) - originColumn);
+        }
+        CHANGES_TIME.recordSince(start);
+    }
+
+    /**
+     * Dessine une nouvelle image, en ne redessinant que ce qui a changé depuis la
+     * précédente.
+     *
+     * @param now L'instant (en nanosecondes) de l'image à dessiner.
+     * @param alpha La fraction écoulée du pas de simulation en cours, utilisée pour
+     *        placer les objets mobiles entre leurs deux dernières positions.
+     */
+    public void render(long now, double alpha) {
+        if (map == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        double elapsed = (lastFrame == 0) ? 0 : ((now - lastFrame) / 1e9);
+        lastFrame = now;
+        camera.update(map, elapsed);
+        boolean moved = placeWindow();
+
+        GraphicsContext context = background.getGraphicsContext2D();
+        if (fullRedraw) {
+            placeholdersDrawn = false;
+            context.clearRect(0, 0, background.getWidth(), background.getHeight());
+            for (int row = originRow; row < (originRow + rows); row++) {
+                for (int column = originColumn; column < (originColumn + columns); column++) {
+                    drawCell(context, row, column);
+                }
+            }
+            fullRedraw = false;
+
+        } else {
+            for (int i = 0; i < dirtyCells.size(); i++) {
+                drawCell(context, originRow + dirtyCells.rowAt(i), originColumn + dirtyCells.columnAt(i));
+            }
+        }
+        dirtyCells.clear();
+        drawMovables(moved, alpha);
+
+        // Le défilement entre deux cellules se fait en décalant les canvas.
+        double offsetX = ((double) originColumn * tileSize) - camera.getX();
+        double offsetY = ((double) originRow * tileSize) - camera.getY();
+        background.setTranslateX(offsetX);
+        background.setTranslateY(offsetY);
+        foreground.setTranslateX(offsetX);
+        foreground.setTranslateY(offsetY);
+        RENDER_TIME.recordSince(start);
+    }
+
+    /**
+     * Place la partie dessinée de la carte de sorte qu'elle contienne la partie visible
+     * par la caméra.
+     * Les canvas sont redimensionnés si la taille de la partie visible a changé.
+     *
+     * @return Si la partie dessinée a été déplacée ou redimensionnée, auquel cas tout
+     *         doit être redessiné.
+     */
+    private boolean placeWindow() {
+        int neededColumns = (int) Math.ceil(camera.getViewportWidth() / tileSize) + 1 + (2 * MARGIN);
+        int neededRows = (int) Math.ceil(camera.getViewportHeight() / tileSize) + 1 + (2 * MARGIN);
+        if ((neededColumns != columns) || (neededRows != rows)) {
+            columns = neededColumns;
+            rows = neededRows;
+            background.setWidth((double) columns * tileSize);
+            background.setHeight((double) rows * tileSize);
+            foreground.setWidth((double) columns * tileSize);
+            foreground.setHeight((double) rows * tileSize);
+            dirtyCells = new DirtyCellSet(rows, columns);
+            fullRedraw = true;
+        }
+
+        int firstColumn = (int) Math.floor(camera.getX() / tileSize);
+        int firstRow = (int) Math.floor(camera.getY() / tileSize);
+        int lastColumn = (int) Math.floor((camera.getX() + camera.getViewportWidth()) / tileSize);
+        int lastRow = (int) Math.floor((camera.getY() + camera.getViewportHeight()) / tileSize);
+        if (fullRedraw || (firstColumn < originColumn) || (firstRow < originRow)
+                || (lastColumn >= (originColumn + columns)) || (lastRow >= (originRow + rows))) {
+            originColumn = firstColumn - MARGIN;
+            originRow = firstRow - MARGIN;
+            fullRedraw = true;
+        }
+        return fullRedraw;
+    }
+
+    /**
+     * Dessine une cellule de la carte.
+     *
+     * @param context Le contexte graphique sur lequel dessiner.
+     * @param row La ligne de la cellule sur la carte.
+     * @param column La colonne de la cellule sur la carte.
+     */
+    private void drawCell(GraphicsContext context, int row, int column) {
+        int x = (column - originColumn) * tileSize;
+        int y = (row - originRow) * tileSize;
+        context.clearRect(x, y, tileSize, tileSize);
+        if (!map.contains(row, column)) {
+            return;
+        }
+
+        short block = map.getBlockAt(row, column);
+        if ((block < atlasIndices.length) && (atlasIndices[block] >= 0)) {
+            atlas.draw(context, atlasIndices[block], x, y, tileSize);
+
+        } else {
+            // Ce bloc n'est pas (encore) dans l'atlas : il a pu être enregistré après sa
+            // création, ou l'atlas n'est pas encore prêt.
+            String name = map.getRegistry().getName(block);
+            if (name != null) {
+                Image sprite = (atlas == null) ? spriteStore.getPlaceholder()
+                        : spriteStore.getSprite(name, tileSize);
+                placeholdersDrawn |= (sprite == spriteStore.getPlaceholder());
+                context.drawImage(sprite, x, y, tileSize, tileSize);
+            }
+        }
+
+        if (lightEngine != null) {
+            int level = lightEngine.getLightAt(row, column);
+            if (level < LightEngine.MAX_LIGHT) {
+                context.setFill(SHADES[level]);
+                context.fillRect(x, y, tileSize, tileSize);
+            }
+        }
+    }
+
+    /**
+     * Redessine les objets mobiles proches de la partie visible, si l'un d'entre eux a
+     * bougé depuis l'image précédente.
+     *
+     * @param force Si les objets mobiles doivent être redessinés même s'ils n'ont pas
+     *        bougé.
+     * @param alpha La fraction écoulée du pas de simulation en cours.
+     */
+    private void drawMovables(boolean force, double alpha) {
+        // Un objet se déplaçant d'au plus une cellule par pas, ceux situés juste en
+        // dehors de la partie dessinée peuvent encore y apparaître.
+        nearbyMovables.clear();
+        if (movableIndex != null) {
+            movableIndex.forEachInRange(originRow - 1, originColumn - 1, originRow + rows,
+                    originColumn + columns, addNearby);
+        }
+
+        int count = nearbyMovables.size();
+        boolean changed = force || movablesChanged || (count != drawnCount);
+        for (int i = 0; (i < count) && !changed; i++) {
+            AbstractMovable movable = nearbyMovables.get(i);
+            changed = (drawnMovables[i] != movable) || (drawnX[i] != interpolateX(movable, alpha))
+                    || (drawnY[i] != interpolateY(movable, alpha));
+        }
+
+        if (!changed) {
+            return;
+        }
+
+        // Les objets mobiles pouvant se chevaucher, ils sont tous effacés puis redessinés.
+        GraphicsContext context = foreground.getGraphicsContext2D();
+        context.clearRect(0, 0, foreground.getWidth(), foreground.getHeight());
+        if (count > drawnMovables.length) {
+            int capacity = Math.max(count, 2 * drawnMovables.length);
+            drawnMovables = new AbstractMovable[capacity];
+            drawnX = new double[capacity];
+            drawnY = new double[capacity];
+        }
+
+        for (int i = 0; i < count; i++) {
+            AbstractMovable movable = nearbyMovables.get(i);
+            double x = interpolateX(movable, alpha);
+            double y = interpolateY(movable, alpha);
+            drawnMovables[i] = movable;
+            drawnX[i] = x;
+            drawnY[i] = y;
+
+            String name = movable.getSpriteName();
+            if (name != null) {
+                context.drawImage(spriteStore.getSprite(name, tileSize), x, y, tileSize, tileSize);
+            }
+        }
+
+        // Les objets qui ne sont plus dessinés ne doivent pas être retenus.
+        if (count < drawnCount) {
+            Arrays.fill(drawnMovables, count, drawnCount, null);
+        }
+        drawnCount = count;
+        movablesChanged = false;
+    }
+
+    /**
+     * Calcule l'abscisse (relativement à l'origine des canvas) à laquelle dessiner un
+     * objet mobile.
+     *
+     * @param movable L'objet mobile à dessiner.
+     * @param alpha La fraction écoulée du pas de simulation en cours.
+     *
+     * @return L'abscisse de l'objet mobile.
+     */
+    private double interpolateX(AbstractMovable movable, double alpha) {
+        return interpolate(movable.getPreviousColumn(), movable.getColumn(), alpha, originColumn);
+    }
+
+    /**
+     * Calcule l'ordonnée (relativement à l'origine des canvas) à laquelle dessiner un
+     * objet mobile.
+     *
+     * @param movable L'objet mobile à dessiner.
+     * @param alpha La fraction écoulée du pas de simulation en cours.
+     *
+     * @return L'ordonnée de l'objet mobile.
+     */
+    private double interpolateY(AbstractMovable movable, double alpha) {
+        return interpolate(movable.getPreviousRow(), movable.getRow(), alpha, originRow);
+    }
+
+    /**
+     * Calcule la position (en pixels) à laquelle dessiner un objet mobile selon l'un des
+     * axes.
+     * Un objet qui s'est déplacé de plus d'une cellule est dessiné directement à sa
+     * position actuelle.
+     *
+     * @param previous La position précédente de l'objet, en nombre de cellules.
+     * @param current La position actuelle de l'objet, en nombre de cellules.
+     * @param alpha La fraction écoulée du pas de simulation en cours.
+     * @param origin La position de l'origine des canvas, en nombre de cellules.
+     *
+     * @return La position de l'objet, en pixels.
+     */
+    private double interpolate(int previous, int current, double alpha, int origin) {
+        double position = current;
+        if (Math.abs(current - previous) <= 1) {
+            position = previous + ((current - previous) * alpha);
+        }
+        return (position - origin) * tileSize;
+    }
+
+}
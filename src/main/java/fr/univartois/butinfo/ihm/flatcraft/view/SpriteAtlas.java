@@ -0,0 +1,155 @@
+package fr.univartois.butinfo.ihm.flatcraft.view; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+/**
+ * La classe {@link SpriteAtlas} regroupe plusieurs sprites de même taille dans une seule
+ * image.
+ * Chaque sprite y occupe une case d'une grille, et est dessiné à partir de la portion de
+ * l'image correspondante : l'image n'a ainsi besoin d'être transmise qu'une seule fois à
+ * la carte graphique.
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class SpriteAtlas {
+
+    /**
+     * L'image contenant tous les sprites de cet atlas.
+     */
+    private final WritableImage image;
+
+    /**
+     * La taille (en pixels) du côté d'un sprite de cet atlas.
+     */
+    private final int spriteSize;
+
+    /**
+     * Le nombre de sprites sur une ligne de l'image.
+     */
+    private final int columns;
+
+    /**
+     * Les positions des sprites dans cet atlas, indexées par leur nom.
+     */
+    private final Map<String, Integer> indices = new HashMap<>();
+
+    /**
+     * Crée une nouvelle instance de SpriteAtlas.
+     *
+     * @param names Les noms des sprites à placer dans l'atlas.
+     * @param sprites Les images des sprites, dans le même ordre que leurs noms.
+     *        Les sprites valant {@code null} ne sont pas placés dans l'atlas.
+     * @param spriteSize La taille (en pixels) du côté d'un sprite.
+     */
+    SpriteAtlas(List<String> names, List<Image> sprites, int spriteSize) {
+        this.spriteSize = spriteSize;
+        this.columns = Math.max(1, (int) Math.ceil(Math.sqrt(sprites.size())));
+        int rows = Math.max(1, ((sprites.size() - 1) / columns) + 1);
+        this.image = new WritableImage(columns * spriteSize, rows * spriteSize);
+
+        PixelWriter writer = image.getPixelWriter();
+        for (int i = 0; i < sprites.size(); i++) {
+            Image sprite = sprites.get(i);
+            if (sprite == null) {
+                continue;
+            }
+
+            int index = indices.size();
+            PixelReader reader = sprite.getPixelReader();
+            int width = (int) Math.min(spriteSize, sprite.getWidth());
+            int height = (int) Math.min(spriteSize, sprite.getHeight());
+            writer.setPixels(getX(index), getY(index), width, height, reader, 0, 0);
+            indices.put(names.get(i), index);
+        }
+    }
+
+    /**
+     * Donne l'image contenant tous les sprites de cet atlas.
+     *
+     * @return L'image de cet atlas.
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Donne la taille (en pixels) du côté d'un sprite de cet atlas.
+     *
+     * @return La taille d'un sprite.
+     */
+    public int getSpriteSize() {
+        return spriteSize;
+    }
+
+    /**
+     * Donne la position d'un sprite dans cet atlas.
+     *
+     * @param name Le nom du sprite.
+     *
+     * @return La position du sprite, ou {@code -1} s'il n'est pas dans cet atlas.
+     */
+    public int indexOf(String name) {
+        return indices.getOrDefault(name, -1);
+    }
+
+    /**
+     * Dessine un sprite de cet atlas.
+     *
+     * @param context Le contexte graphique sur lequel dessiner.
+     * @param index La position du sprite dans cet atlas.
+     * @param x L'abscisse à laquelle dessiner le sprite.
+     * @param y L'ordonnée à laquelle dessiner le sprite.
+     * @param size La taille (en pixels) du côté du sprite dessiné.
+     */
+    public void draw(GraphicsContext context, int index, double x, double y, double size) {
+        context.drawImage(image, getX(index), getY(index), spriteSize, spriteSize, x, y, size, size);
+    }
+
+    /**
+     * Donne l'abscisse d'un sprite dans l'image de cet atlas.
+     *
+     * @param index La position du sprite.
+     *
+     * @return L'abscisse du sprite.
+     */
+    private int getX(int index) {
+        return (index % columns) * spriteSize;
+    }
+
+    /**
+     * Donne l'ordonnée d'un sprite dans l'image de cet atlas.
+     *
+     * @param index La position du sprite.
+     *
+     * @return L'ordonnée du sprite.
+     */
+    private int getY(int index) {
+        return (index / columns) * spriteSize;
+    }
+
+}
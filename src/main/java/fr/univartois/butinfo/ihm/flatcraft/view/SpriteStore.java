@@ -0,0 +1,612 @@
+package fr.univartois.butinfo.ihm.flatcraft.view; /**
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import java.net.URL;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.PerformanceMetrics;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * La classe {@link SpriteStore} permet de charger les différentes images utilisées
+ * pour représenter les éléments du jeu, et de les conserver en cache pendant
+ * l'exécution du programme.
+ * Le modèle du jeu ne désigne les sprites que par leur nom : c'est la vue qui retrouve
+ * les images correspondantes grâce à cette classe.
+ *
+ * Les images sont décodées par des threads dédiés, afin de ne pas bloquer le thread de
+ * JavaFX : tant qu'un sprite n'est pas chargé, {@link #getSprite(String, int)} donne une
+ * image provisoire, et l'objet indiqué par {@link #setOnSpriteLoaded(Runnable)} est
+ * prévenu lorsque le sprite devient disponible.
+ *
+ * Chaque sprite peut être demandé à plusieurs tailles (par exemple pour différents
+ * niveaux de zoom).
+ * Les tailles demandées sont arrondies à la puissance de deux supérieure : les niveaux
+ * plus petits que {@link #getSpriteSize()} sont calculés à la demande en réduisant de
+ * moitié le niveau supérieur, tandis que les niveaux plus grands sont chargés depuis
+ * l'image d'origine.
+ * Le cache associe ainsi une image à chaque couple (sprite, taille), et ne dépasse pas
+ * un budget mémoire : les images utilisées le moins récemment en sont retirées (elles
+ * seront chargées à nouveau si elles sont redemandées).
+ *
+ * @author Romain Wallon
+ *
+ * @version 0.1.0
+ */
+public final class SpriteStore {
+
+    /**
+     * Le budget mémoire (en octets) utilisé par défaut pour le cache des sprites.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 16L << 20;
+
+    /**
+     * La plus petite taille (en pixels) de sprite conservée en cache.
+     */
+    private static final int MIN_LEVEL = 4;
+
+    /**
+     * La plus grande taille (en pixels) de sprite conservée en cache.
+     */
+    private static final int MAX_LEVEL = 512;
+
+    /**
+     * Le nombre d'octets occupés par un pixel d'une image.
+     */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Les threads (démons) chargeant les images en arrière-plan, partagés par toutes les
+     * instances de cette classe.
+     */
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "flatcraft-sprites");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * La couleur de l'image provisoire affichée à la place des sprites en cours de
+     * chargement.
+     */
+    private static final Color PLACEHOLDER_COLOR = Color.gray(0.5, 0.5);
+
+    /**
+     * Le nombre total de sprites trouvés dans le cache.
+     */
+    private static final LongAdder HITS = PerformanceMetrics.getDefault().counter("view.sprites.hits");
+
+    /**
+     * Le nombre total de sprites absents du cache, qui ont dû être chargés ou calculés.
+     */
+    private static final LongAdder MISSES = PerformanceMetrics.getDefault().counter("view.sprites.misses");
+
+    /**
+     * Le nombre total de sprites retirés du cache pour respecter son budget mémoire.
+     */
+    private static final LongAdder EVICTIONS = PerformanceMetrics.getDefault()
+            .counter("view.sprites.evictions");
+
+    /**
+     * La {@link Map} permettant de conserver en cache les différentes images déjà
+     * chargées ou en cours de chargement, de la moins récemment utilisée à la plus
+     * récemment utilisée.
+     * Tous les accès à cette {@link Map} doivent être synchronisés sur elle.
+     */
+    private final Map<SpriteKey, CompletableFuture<Image>> spriteCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Le nombre de sprites trouvés dans le cache de cette instance.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Le nombre de sprites absents du cache de cette instance.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Le nombre de sprites retirés du cache de cette instance.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * L'image provisoire affichée à la place des sprites en cours de chargement.
+     */
+    private final Image placeholder;
+
+    /**
+     * Le budget mémoire (en octets) du cache des sprites.
+     */
+    private long memoryBudget;
+
+    /**
+     * La mémoire (en octets) occupée par les sprites du cache.
+     */
+    private long memoryUsage;
+
+    /**
+     * L'objet prévenu lorsqu'un sprite a fini d'être chargé en arrière-plan.
+     */
+    private volatile Runnable onSpriteLoaded;
+
+    /**
+     * Crée une nouvelle instance de SpriteStore, dont le cache utilise le budget mémoire
+     * par défaut.
+     */
+    public SpriteStore() {
+        this(DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * Crée une nouvelle instance de SpriteStore.
+     *
+     * @param memoryBudget Le budget mémoire (en octets) du cache des sprites.
+     */
+    public SpriteStore(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        WritableImage image = new WritableImage(getSpriteSize(), getSpriteSize());
+        PixelWriter writer = image.getPixelWriter();
+        for (int y = 0; y < getSpriteSize(); y++) {
+            for (int x = 0; x < getSpriteSize(); x++) {
+                writer.setColor(x, y, PLACEHOLDER_COLOR);
+            }
+        }
+        this.placeholder = image;
+    }
+
+    /**
+     * Charge l'image d'un sprite donné par son identifiant.
+     * Si l'image n'est pas encore chargée, cette méthode attend la fin de son
+     * chargement : {@link #getSprite(String)} doit lui être préférée pendant le dessin.
+     *
+     * @param identifier L'identifiant du sprite à charger.
+     *
+     * @return L'image chargée.
+     *
+     * @throws NoSuchElementException Si aucun sprite ne correspond à l'identifiant donné.
+     */
+    public Image createSprite(String identifier) {
+        try {
+            return loadSprite(identifier).join();
+
+        } catch (CompletionException e) {
+            throw new NoSuchElementException("Could not load image " + identifier, e.getCause());
+        }
+    }
+
+    /**
+     * Donne l'image d'un sprite donné par son identifiant, à la taille par défaut et sans
+     * attendre son chargement.
+     *
+     * @param identifier L'identifiant du sprite.
+     *
+     * @return L'image du sprite, ou l'image provisoire si elle n'est pas (encore)
+     *         disponible.
+     *
+     * @see #getSprite(String, int)
+     */
+    public Image getSprite(String identifier) {
+        return getSprite(identifier, getSpriteSize());
+    }
+
+    /**
+     * Donne l'image d'un sprite donné par son identifiant, sans attendre son chargement.
+     * Si l'image n'est pas encore chargée, son chargement est lancé en arrière-plan, et
+     * l'image provisoire est donnée à sa place.
+     *
+     * @param identifier L'identifiant du sprite.
+     * @param size La taille (en pixels) à laquelle le sprite est dessiné.
+     *
+     * @return L'image du sprite, d'une taille au moins égale à celle demandée (dans la
+     *         limite des tailles conservées en cache), ou l'image provisoire si elle
+     *         n'est pas (encore) disponible.
+     */
+    public Image getSprite(String identifier, int size) {
+        CompletableFuture<Image> sprite = loadSprite(identifier, size);
+        if (sprite.isDone() && !sprite.isCompletedExceptionally()) {
+            return sprite.join();
+        }
+        return placeholder;
+    }
+
+    /**
+     * Lance (si ce n'est pas déjà fait) le chargement en arrière-plan de l'image d'un
+     * sprite donné par son identifiant, à la taille par défaut.
+     *
+     * @param identifier L'identifiant du sprite à charger.
+     *
+     * @return Le résultat du chargement de l'image.
+     *
+     * @see #loadSprite(String, int)
+     */
+    public CompletableFuture<Image> loadSprite(String identifier) {
+        return loadSprite(identifier, getSpriteSize());
+    }
+
+    /**
+     * Lance (si ce n'est pas déjà fait) le chargement en arrière-plan de l'image d'un
+     * sprite donné par son identifiant.
+     *
+     * @param identifier L'identifiant du sprite à charger.
+     * @param size La taille (en pixels) à laquelle le sprite est dessiné.
+     *
+     * @return Le résultat du chargement de l'image, qui échoue avec une
+     *         {@link NoSuchElementException} si aucun sprite ne correspond à
+     *         l'identifiant donné.
+     */
+    public CompletableFuture<Image> loadSprite(String identifier, int size) {
+        int level = levelOf(size);
+        SpriteKey key = new SpriteKey(identifier, level);
+        CompletableFuture<Image> loading;
+        synchronized (spriteCache) {
+            CompletableFuture<Image> cached = spriteCache.get(key);
+            if (cached != null) {
+                hits.increment();
+                HITS.increment();
+                return cached;
+            }
+
+            if (level < getSpriteSize()) {
+                // Les niveaux inférieurs sont calculés à partir du niveau supérieur.
+                loading = loadSprite(identifier, level * 2).thenApplyAsync(SpriteStore::halve, LOADER);
+
+            } else {
+                loading = CompletableFuture.supplyAsync(() -> loadImage(identifier, level), LOADER);
+            }
+
+            spriteCache.put(key, loading);
+            memoryUsage += key.getMemorySize();
+            misses.increment();
+            MISSES.increment();
+            evict();
+        }
+
+        loading.whenComplete((image, error) -> {
+            Runnable listener = onSpriteLoaded;
+            if (listener != null) {
+                listener.run();
+            }
+        });
+        return loading;
+    }
+
+    /**
+     * Retire du cache les sprites utilisés le moins récemment, jusqu'à ce que son budget
+     * mémoire soit respecté.
+     * Le sprite utilisé le plus récemment est toujours conservé.
+     * Cette méthode doit être appelée en étant synchronisé sur {@link #spriteCache}.
+     */
+    private void evict() {
+        Iterator<SpriteKey> iterator = spriteCache.keySet().iterator();
+        while ((memoryUsage > memoryBudget) && (spriteCache.size() > 1)) {
+            SpriteKey eldest = iterator.next();
+            iterator.remove();
+            memoryUsage -= eldest.getMemorySize();
+            evictions.increment();
+            EVICTIONS.increment();
+        }
+    }
+
+    /**
+     * Donne l'image provisoire affichée à la place des sprites en cours de chargement.
+     *
+     * @return L'image provisoire.
+     */
+    public Image getPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * Choisit l'objet à prévenir lorsqu'un sprite a fini d'être chargé en arrière-plan,
+     * par exemple pour redessiner les sprites provisoires.
+     * Cet objet est appelé depuis le thread ayant chargé le sprite.
+     *
+     * @param onSpriteLoaded L'objet à prévenir, ou {@code null} pour ne prévenir personne.
+     */
+    public void setOnSpriteLoaded(Runnable onSpriteLoaded) {
+        this.onSpriteLoaded = onSpriteLoaded;
+    }
+
+    /**
+     * Donne le budget mémoire (en octets) du cache des sprites.
+     *
+     * @return Le budget mémoire du cache.
+     */
+    public long getMemoryBudget() {
+        synchronized (spriteCache) {
+            return memoryBudget;
+        }
+    }
+
+    /**
+     * Modifie le budget mémoire (en octets) du cache des sprites.
+     * Si le nouveau budget est plus petit, des sprites sont immédiatement retirés du
+     * cache.
+     *
+     * @param memoryBudget Le nouveau budget mémoire du cache.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        synchronized (spriteCache) {
+            this.memoryBudget = memoryBudget;
+            evict();
+        }
+    }
+
+    /**
+     * Donne la mémoire (en octets) occupée par les sprites du cache.
+     *
+     * @return La mémoire occupée par le cache.
+     */
+    public long getMemoryUsage() {
+        synchronized (spriteCache) {
+            return memoryUsage;
+        }
+    }
+
+    /**
+     * Donne le nombre de sprites demandés qui ont été trouvés dans le cache.
+     *
+     * @return Le nombre de succès du cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Donne le nombre de sprites demandés qui ont dû être chargés ou calculés.
+     *
+     * @return Le nombre d'échecs du cache.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Donne le nombre de sprites retirés du cache pour respecter son budget mémoire.
+     *
+     * @return Le nombre de sprites retirés du cache.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Crée un atlas contenant les sprites donnés par leurs identifiants.
+     * Cette méthode attend la fin du chargement des sprites : voir
+     * {@link #createAtlasAsync(Collection)}.
+     *
+     * @param identifiers Les identifiants des sprites à placer dans l'atlas.
+     *
+     * @return L'atlas créé.
+     */
+    public SpriteAtlas createAtlas(Collection<String> identifiers) {
+        return createAtlasAsync(identifiers).join();
+    }
+
+    /**
+     * Crée en arrière-plan un atlas contenant les sprites donnés par leurs identifiants.
+     * Les images des sprites sont chargées en parallèle, puis regroupées dans l'image de
+     * l'atlas : elles ne sont pas conservées dans le cache de cette instance.
+     * Les sprites qui ne peuvent pas être chargés ne sont pas placés dans l'atlas.
+     *
+     * @param identifiers Les identifiants des sprites à placer dans l'atlas.
+     *
+     * @return Le résultat de la création de l'atlas.
+     */
+    public CompletableFuture<SpriteAtlas> createAtlasAsync(Collection<String> identifiers) {
+        List<String> names = List.copyOf(identifiers);
+        List<CompletableFuture<Image>> sprites = names.stream()
+                .map(name -> CompletableFuture.supplyAsync(() -> tryLoadImage(name), LOADER))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(sprites.toArray(CompletableFuture[]::new))
+                .thenApply(done -> new SpriteAtlas(names, sprites.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()), getSpriteSize()));
+    }
+
+    /**
+     * Donne la taille des images à charger.
+     *
+     * @return La taille des images (en pixels).
+     */
+    public int getSpriteSize() {
+        return 32;
+    }
+
+    /**
+     * Charge une image donnée par son nom.
+     *
+     * @param name Le nom de l'image à charger.
+     * @param size La taille (en pixels) de l'image à charger.
+     *
+     * @return L'image ayant le nom donné.
+     *
+     * @throws NoSuchElementException S'il n'existe pas d'image ayant le nom donné, ou si
+     *         elle ne peut pas être décodée.
+     */
+    private Image loadImage(String name, int size) {
+        Image image;
+        try {
+            URL urlImage = getClass().getResource("images/default_" + name + ".png");
+            image = new Image(urlImage.toExternalForm(), size, size, true, true);
+
+        } catch (NullPointerException | IllegalArgumentException e) {
+            throw new NoSuchElementException("Could not load image " + name, e);
+        }
+
+        if (image.isError()) {
+            throw new NoSuchElementException("Could not decode image " + name, image.getException());
+        }
+        return image;
+    }
+
+    /**
+     * Charge une image donnée par son nom, si elle existe.
+     *
+     * @param name Le nom de l'image à charger.
+     *
+     * @return L'image ayant le nom donné, ou {@code null} s'il n'existe pas d'image
+     *         ayant ce nom.
+     */
+    private Image tryLoadImage(String name) {
+        try {
+            return loadImage(name, getSpriteSize());
+
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calcule la taille conservée en cache pour un sprite dessiné à une taille donnée.
+     *
+     * @param size La taille (en pixels) à laquelle le sprite est dessiné.
+     *
+     * @return La plus petite puissance de deux supérieure à la taille donnée, dans la
+     *         limite des tailles conservées en cache.
+     */
+    private static int levelOf(int size) {
+        int clamped = Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, size));
+        return Integer.highestOneBit(clamped - 1) << 1;
+    }
+
+    /**
+     * Réduit une image de moitié, chaque pixel de l'image réduite étant la moyenne
+     * (pondérée par leur opacité) des quatre pixels correspondants de l'image d'origine.
+     *
+     * @param source L'image à réduire.
+     *
+     * @return L'image réduite.
+     */
+    private static Image halve(Image source) {
+        int sourceWidth = (int) source.getWidth();
+        int sourceHeight = (int) source.getHeight();
+        int width = Math.max(1, sourceWidth / 2);
+        int height = Math.max(1, sourceHeight / 2);
+        PixelReader reader = source.getPixelReader();
+        WritableImage result = new WritableImage(width, height);
+        PixelWriter writer = result.getPixelWriter();
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = 0;
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+                for (int dy = 0; dy < 2; dy++) {
+                    for (int dx = 0; dx < 2; dx++) {
+                        int argb = reader.getArgb(Math.min((2 * x) + dx, sourceWidth - 1),
+                                Math.min((2 * y) + dy, sourceHeight - 1));
+                        int a = argb >>> 24;
+                        alpha += a;
+                        red += ((argb >> 16) & 0xff) * a;
+                        green += ((argb >> 8) & 0xff) * a;
+                        blue += (argb & 0xff) * a;
+                    }
+                }
+
+                if (alpha == 0) {
+                    writer.setArgb(x, y, 0);
+
+                } else {
+                    writer.setArgb(x, y, ((alpha / 4) << 24) | ((red / alpha) << 16)
+                            | ((green / alpha) << 8) | (blue / alpha));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * La classe {@link SpriteKey} identifie une image du cache, par le nom de son sprite
+     * et sa taille.
+     */
+    private static final class SpriteKey {
+
+        /**
+         * Le nom du sprite.
+         */
+        private final String name;
+
+        /**
+         * La taille (en pixels) de l'image.
+         */
+        private final int size;
+
+        /**
+         * Crée une nouvelle instance de SpriteKey.
+         *
+         * @param name Le nom du sprite.
+         * @param size La taille (en pixels) de l'image.
+         */
+        SpriteKey(String name, int size) {
+            this.name = name;
+            this.size = size;
+        }
+
+        /**
+         * Donne la mémoire (en octets) occupée par l'image identifiée par cette clé.
+         *
+         * @return La mémoire occupée par l'image.
+         */
+        long getMemorySize() {
+            return (long) size * size * BYTES_PER_PIXEL;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, size);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (other instanceof SpriteKey key) {
+                return name.equals(key.name) && (size == key.size);
+            }
+            return false;
+        }
+
+    }
+
+}